@@ -0,0 +1,220 @@
+package com.jmdev.crazypic.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.UserKeysetRepositoryImpl;
+import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.service.dto.UserDTO;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Compares the handling of a burst of concurrent HTTP requests by the worker threads of Undertow with their handling by
+ * a virtual thread per request, as selected by {@code application.task-execution.virtual-threads.enabled} through the
+ * {@link WebConfigurer}.
+ * <p>
+ * Each request reads a user from the Ehcache second level cache, then a page of public users from an in-memory H2
+ * database, over a Hikari pool of {@code connectionPoolSize} connections, and writes it as JSON. With a
+ * {@code queryLatencyMillis}, the query also sleeps in the database, as a remote one waits for the network: the
+ * requests then queue for the connections in both modes.
+ * <p>
+ * The virtual mode needs Java 21: on an older runtime, the build only runs the platform mode, see
+ * {@code gradle/jmh.gradle}. Run it with {@code ./gradlew jmh -PjmhIncludes=ThreadModeBenchmark
+ * -PjmhJvm=<path to the java of a JDK 21>}, as the benchmarks workflow does.
+ * <p>
+ * The scores are in bursts of {@code concurrency} requests handled per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ThreadModeBenchmark {
+
+    private static final int USERS = 100;
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({ "platform", "virtual" })
+    private String threadMode;
+
+    @Param({ "100", "400" })
+    private int concurrency;
+
+    @Param({ "10" })
+    private int connectionPoolSize;
+
+    @Param({ "0", "5" })
+    private int queryLatencyMillis;
+
+    private HikariDataSource dataSource;
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+
+    private WebConfigurer webConfigurer;
+
+    private WebServer webServer;
+
+    private ExecutorService clientExecutor;
+
+    private HttpClient httpClient;
+
+    private String usersUri;
+
+    @Setup
+    public void setup() {
+        boolean virtual = threadMode.equals("virtual");
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException(
+                "Virtual threads are not supported by Java " + Runtime.version() + ", run the benchmark with -p threadMode=platform"
+            );
+        }
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:thread-mode;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(connectionPoolSize);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        properties.put("hibernate.physical_naming_strategy", SpringPhysicalNamingStrategy.class.getName());
+        properties.put("hibernate.cache.use_second_level_cache", "true");
+        properties.put("hibernate.cache.region.factory_class", "jcache");
+        properties.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+        properties.put("hibernate.javax.cache.missing_cache_strategy", "create");
+        // creates the entity listeners, such as the UserIdentityListener, without any filter to add the users to
+        properties.put(AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(new DefaultListableBeanFactory()));
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPackagesToScan(User.class.getPackageName());
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setJpaPropertyMap(properties);
+        entityManagerFactoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        UserRepository userRepository = new JpaRepositoryFactory(entityManager)
+            .getRepository(UserRepository.class, RepositoryFragments.just(new UserKeysetRepositoryImpl(entityManager)));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        List<Long> ids = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager
+                .createNativeQuery("create alias if not exists sleep for \"" + ThreadModeBenchmark.class.getName() + ".sleep\"")
+                .executeUpdate();
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setLogin("user-" + i);
+                user.setPassword("$2a$10$VEjxo0jq2YG9Rbk2HmX9S.k1uZBGYUHdUcid3g/vfiEl7lwWgOH/K");
+                user.setEmail("user-" + i + "@localhost");
+                user.setLangKey("en");
+                user.setActivated(true);
+                user.setCreatedBy("system");
+                entityManager.persist(user);
+                ids.add(user.getId());
+            }
+        });
+        transactionTemplate.setReadOnly(true);
+        Pageable pageable = PageRequest.of(0, PAGE_SIZE, Sort.by("id"));
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                Long id = ids.get(Integer.parseInt(req.getParameter("user")) % ids.size());
+                List<UserDTO> users = transactionTemplate.execute(status -> {
+                    User user = userRepository.findById(id).orElseThrow();
+                    if (queryLatencyMillis > 0) {
+                        entityManager.createNativeQuery("select sleep(" + queryLatencyMillis + ")").getSingleResult();
+                    }
+                    List<UserDTO> page = new ArrayList<>(userRepository.findAllPublicUsers(pageable).getContent());
+                    page.add(new UserDTO(user));
+                    return page;
+                });
+                resp.setContentType("application/json");
+                objectMapper.writeValue(resp.getOutputStream(), users);
+            }
+        };
+
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getTaskExecution().getVirtualThreads().setEnabled(virtual);
+        webConfigurer = new WebConfigurer(new MockEnvironment(), new JHipsterProperties(), applicationProperties);
+        UndertowServletWebServerFactory factory = new UndertowServletWebServerFactory(0);
+        webConfigurer.customize(factory);
+        webServer = factory.getWebServer(servletContext -> servletContext.addServlet("users", servlet).addMapping("/users"));
+        webServer.start();
+
+        clientExecutor = Executors.newFixedThreadPool(2);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientExecutor).build();
+        usersUri = "http://localhost:" + webServer.getPort() + "/users?user=";
+    }
+
+    /**
+     * Called by the queries of the database, as a remote one waits for the network.
+     */
+    public static int sleep(int millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return millis;
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        webServer.stop();
+        webConfigurer.shutdownRequestExecutor();
+        clientExecutor.shutdownNow();
+        entityManagerFactoryBean.destroy();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void burst() {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(usersUri + i)).build();
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            int status = response.join().statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("Request failed with status " + status);
+            }
+        }
+    }
+}
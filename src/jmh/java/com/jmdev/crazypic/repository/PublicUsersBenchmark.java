@@ -0,0 +1,123 @@
+package com.jmdev.crazypic.repository;
+
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.service.dto.UserDTO;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Benchmarks the pages of public users read as entities, then mapped to {@link UserDTO}s, against the pages read
+ * directly as {@link UserDTO}s by {@link UserRepository#findAllPublicUsers(Pageable)}, on an in-memory H2 database
+ * with the second level cache enabled.
+ * <p>
+ * The scores are per user: {@code gc.alloc.rate.norm} is the allocation per user read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PublicUsersBenchmark {
+
+    private static final int USERS = 1000;
+
+    private static final int PAGE_SIZE = 100;
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+
+    private UserRepository userRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Pageable pageable;
+
+    @Setup
+    public void setup() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        properties.put("hibernate.physical_naming_strategy", SpringPhysicalNamingStrategy.class.getName());
+        properties.put("hibernate.cache.use_second_level_cache", "true");
+        properties.put("hibernate.cache.region.factory_class", "jcache");
+        properties.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+        properties.put("hibernate.javax.cache.missing_cache_strategy", "create");
+        // creates the entity listeners, such as the UserIdentityListener, without any filter to add the users to
+        properties.put(AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(new DefaultListableBeanFactory()));
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPackagesToScan(User.class.getPackageName());
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setJpaPropertyMap(properties);
+        entityManagerFactoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        userRepository =
+            new JpaRepositoryFactory(entityManager)
+                .getRepository(UserRepository.class, RepositoryFragments.just(new UserKeysetRepositoryImpl(entityManager)));
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setLogin("user-" + i);
+                user.setPassword("$2a$10$VEjxo0jq2YG9Rbk2HmX9S.k1uZBGYUHdUcid3g/vfiEl7lwWgOH/K");
+                user.setFirstName("First " + i);
+                user.setLastName("Last " + i);
+                user.setEmail("user-" + i + "@localhost");
+                user.setLangKey("en");
+                user.setActivated(true);
+                user.setCreatedBy("system");
+                entityManager.persist(user);
+            }
+        });
+        pageable = PageRequest.of(USERS / PAGE_SIZE / 2, PAGE_SIZE, Sort.by("id"));
+        transactionTemplate.setReadOnly(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManagerFactoryBean.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public List<UserDTO> entities() {
+        return transactionTemplate.execute(status ->
+            userRepository.findAllByIdNotNullAndActivatedIsTrue(pageable).stream().map(UserDTO::new).collect(Collectors.toList())
+        );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public List<UserDTO> projections() {
+        return transactionTemplate.execute(status -> userRepository.findAllPublicUsers(pageable).getContent());
+    }
+}
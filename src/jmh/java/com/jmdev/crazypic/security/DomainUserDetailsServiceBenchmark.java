@@ -0,0 +1,142 @@
+package com.jmdev.crazypic.security;
+
+import com.jmdev.crazypic.cache.CacheInvalidationBus;
+import com.jmdev.crazypic.cache.CacheInvalidationTransport;
+import com.jmdev.crazypic.config.ApplicationProperties;
+import com.jmdev.crazypic.domain.Authority;
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.UserIdentityFilter;
+import com.jmdev.crazypic.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+/**
+ * Benchmarks {@link DomainUserDetailsService#loadUserByUsername(String)} once the {@link UserIdentityCache} is warm,
+ * and the rejection of an unknown login by the {@link UserIdentityFilter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DomainUserDetailsServiceBenchmark {
+
+    private DomainUserDetailsService domainUserDetailsService;
+
+    private CacheManager cacheManager;
+
+    @Setup
+    public void setup() {
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        User user = new User();
+        user.setId(1L);
+        user.setLogin("user");
+        user.setEmail("user@localhost");
+        user.setPassword("$2a$10$VEjxo0jq2YG9Rbk2HmX9S.k1uZBGYUHdUcid3g/vfiEl7lwWgOH/K");
+        user.setActivated(true);
+        user.setAuthorities(Set.of(authority));
+        Optional<User> cachedUser = Optional.of(user);
+
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(
+            UserRepository.class.getClassLoader(),
+            new Class<?>[] { UserRepository.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "findOneWithAuthoritiesByLogin":
+                    case "findOneWithAuthoritiesByEmailIgnoreCase":
+                        return cachedUser;
+                    case "count":
+                        return 1L;
+                    case "streamAllLogins":
+                        return Stream.of(user.getLogin());
+                    case "streamAllEmails":
+                        return Stream.of(user.getEmail());
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        );
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // the identity filter is only used with a transport, through which nothing is sent here
+        CacheInvalidationTransport transport = new CacheInvalidationTransport() {
+            @Override
+            public int getMaxMessageLength() {
+                return 8000;
+            }
+
+            @Override
+            public void send(String message) {}
+
+            @Override
+            public void subscribe(Receiver receiver) {}
+        };
+        CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(
+            new StaticListableBeanFactory(Map.of("cacheInvalidationTransport", transport))
+                .getBeanProvider(CacheInvalidationTransport.class),
+            meterRegistry
+        );
+        UserIdentityFilter userIdentityFilter = new UserIdentityFilter(
+            userRepository,
+            new ApplicationProperties(),
+            cacheInvalidationBus,
+            meterRegistry
+        );
+        userIdentityFilter.rebuild();
+        cacheManager = Caching.getCachingProvider().getCacheManager();
+        // stored by reference, as configured by the CacheConfiguration
+        MutableConfiguration<Object, Object> configuration = new MutableConfiguration<>().setStoreByValue(false);
+        cacheManager.createCache(UserIdentityCache.USER_IDENTITIES_CACHE, configuration);
+        cacheManager.createCache(UserIdentityCache.USER_IDS_BY_LOGIN_CACHE, configuration);
+        cacheManager.createCache(UserIdentityCache.USER_IDS_BY_EMAIL_CACHE, configuration);
+        UserIdentityCache userIdentityCache = new UserIdentityCache(
+            cacheManager,
+            userRepository,
+            userIdentityFilter,
+            cacheInvalidationBus,
+            meterRegistry
+        );
+        domainUserDetailsService = new DomainUserDetailsService(userIdentityCache);
+    }
+
+    @TearDown
+    public void tearDown() {
+        cacheManager.close();
+    }
+
+    @Benchmark
+    public UserDetails loadUserByLogin() {
+        return domainUserDetailsService.loadUserByUsername("User");
+    }
+
+    @Benchmark
+    public UserDetails loadUserByEmail() {
+        return domainUserDetailsService.loadUserByUsername("user@localhost");
+    }
+
+    @Benchmark
+    public Object loadUnknownUser() {
+        try {
+            return domainUserDetailsService.loadUserByUsername("unknown");
+        } catch (UsernameNotFoundException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.jmdev.crazypic.security;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+/**
+ * Measures the cost of a login, that is of matching a password, for the supported hash formats and strengths.
+ * <p>
+ * Use it to choose the {@code application.security.password-hashing} settings of a deployment: the BCrypt strength
+ * picked by the startup calibration is the highest one whose time stays within {@code cpu-budget-millis}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    @Param({ "bcrypt-10", "bcrypt-12", "pbkdf2-185000" })
+    private String encoding;
+
+    private PasswordEncoder passwordEncoder;
+
+    private String encodedPassword;
+
+    @Setup
+    public void setup() {
+        String[] parts = encoding.split("-");
+        int cost = Integer.parseInt(parts[1]);
+        passwordEncoder =
+            "bcrypt".equals(parts[0]) ? new TargetStrengthBCryptPasswordEncoder(cost) : new Pbkdf2PasswordEncoder("", cost, 256);
+        encodedPassword = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(PASSWORD, encodedPassword);
+    }
+}
@@ -0,0 +1,67 @@
+package com.jmdev.crazypic.security.jwt;
+
+import com.jmdev.crazypic.security.AuthoritiesConstants;
+import com.jmdev.crazypic.security.GrantedAuthorities;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Benchmarks the whole {@link JWTFilter} on a mocked authenticated request, with and without the cache of verified
+ * tokens.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JWTFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {};
+
+    @Param({ "true", "false" })
+    private boolean tokenCache;
+
+    private JWTFilter jwtFilter;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() {
+        TokenProvider tokenProvider = TokenProviderBenchmark.createTokenProvider(tokenCache, 86400);
+        String jwt = tokenProvider.createToken(
+            new UsernamePasswordAuthenticationToken(
+                "user",
+                "user",
+                Collections.singletonList(GrantedAuthorities.of(AuthoritiesConstants.USER))
+            ),
+            false
+        );
+        jwtFilter = new JWTFilter(tokenProvider);
+        request = new MockHttpServletRequest("GET", "/api/account");
+        request.addHeader(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object doFilter() throws IOException, ServletException {
+        jwtFilter.doFilter(request, response, NO_OP_CHAIN);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
@@ -0,0 +1,92 @@
+package com.jmdev.crazypic.security.jwt;
+
+import com.jmdev.crazypic.config.ApplicationProperties;
+import com.jmdev.crazypic.management.SecurityMetersService;
+import com.jmdev.crazypic.security.AuthoritiesConstants;
+import com.jmdev.crazypic.security.GrantedAuthorities;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Benchmarks the creation and the verification of JWTs by the {@link TokenProvider}, with and without the cache of
+ * verified tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenProviderBenchmark {
+
+    static final String BASE64_SECRET =
+        "ZjAwYzAzOTFjZGQzMzU4NWM4NTE3MTUxZDU0OTIwNDY4ZGU1ODc1YzI1NjE4OTA2ZWUyYjhkOTg4ODY4ZTllYTUwZGY3OGRjMjUxMzFlNDhmNzY4MDZk" +
+        "OWZhMTY3ZjZhYTNhYWExM2QyYjIxYjk4ZDhkYzJiODE3MjFhOGI5MWE=";
+
+    @Param({ "true", "false" })
+    private boolean tokenCache;
+
+    private TokenProvider tokenProvider;
+
+    private Authentication authentication;
+
+    private String token;
+
+    private String expiredToken;
+
+    @Setup
+    public void setup() {
+        tokenProvider = createTokenProvider(tokenCache, 86400);
+        authentication =
+            new UsernamePasswordAuthenticationToken(
+                "user",
+                "user",
+                Arrays.asList(GrantedAuthorities.of(AuthoritiesConstants.ADMIN), GrantedAuthorities.of(AuthoritiesConstants.USER))
+            );
+        token = tokenProvider.createToken(authentication, false);
+        expiredToken = createTokenProvider(tokenCache, -60).createToken(authentication, false);
+    }
+
+    static TokenProvider createTokenProvider(boolean tokenCache, long tokenValidityInSeconds) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(BASE64_SECRET);
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setTokenValidityInSeconds(tokenValidityInSeconds);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().getTokenCache().setEnabled(tokenCache);
+        return new TokenProvider(jHipsterProperties, applicationProperties, new SecurityMetersService(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public String createToken() {
+        return tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return tokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication() {
+        return tokenProvider.getAuthentication(token);
+    }
+
+    @Benchmark
+    public TokenVerification verifyToken() {
+        return tokenProvider.verifyToken(token);
+    }
+
+    @Benchmark
+    public TokenVerification verifyExpiredToken() {
+        return tokenProvider.verifyToken(expiredToken);
+    }
+}
@@ -0,0 +1,101 @@
+package com.jmdev.crazypic.service;
+
+import com.jmdev.crazypic.domain.User;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Compares the rendering of a user mail, its content and its subject, by processing its template for every mail with
+ * the rendering of its template precompiled by the {@link MailTemplateRenderer}.
+ * <p>
+ * The scores are in emails rendered per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MailTemplateBenchmark {
+
+    @Param({ "mail/activationEmail", "mail/creationEmail", "mail/passwordResetEmail" })
+    private String templateName;
+
+    @Param({ "fr", "en", "es" })
+    private String langKey;
+
+    private SpringTemplateEngine templateEngine;
+
+    private ResourceBundleMessageSource messageSource;
+
+    private MailTemplateRenderer mailTemplateRenderer;
+
+    private String baseUrl;
+
+    private Locale locale;
+
+    private User user;
+
+    @Setup
+    public void setup() {
+        // as configured by the ThymeleafAutoConfiguration and the MessageSourceAutoConfiguration
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("i18n/messages");
+        messageSource.setDefaultEncoding(StandardCharsets.UTF_8.name());
+        messageSource.setFallbackToSystemLocale(false);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getMail().setBaseUrl("http://127.0.0.1:8080");
+        baseUrl = jHipsterProperties.getMail().getBaseUrl();
+        mailTemplateRenderer = new MailTemplateRenderer(templateEngine, messageSource, jHipsterProperties, new ThymeleafProperties());
+
+        locale = Locale.forLanguageTag(langKey);
+        user = new User();
+        user.setLogin("john.doe");
+        user.setEmail("john.doe@example.com");
+        user.setLangKey(langKey);
+        user.setActivationKey("12345678901234567890");
+        user.setResetKey("09876543210987654321");
+    }
+
+    @Benchmark
+    public void processed(Blackhole blackhole) {
+        Context context = new Context(locale);
+        context.setVariable("user", user);
+        context.setVariable("baseUrl", baseUrl);
+        blackhole.consume(templateEngine.process(templateName, context));
+        blackhole.consume(messageSource.getMessage(titleKey(), null, locale));
+    }
+
+    @Benchmark
+    public void precompiled(Blackhole blackhole) {
+        blackhole.consume(mailTemplateRenderer.render(templateName, user, locale));
+        blackhole.consume(mailTemplateRenderer.getSubject(titleKey(), locale));
+    }
+
+    private String titleKey() {
+        return templateName.equals("mail/passwordResetEmail") ? "email.reset.title" : "email.activation.title";
+    }
+}
@@ -1,30 +1,67 @@
 package com.jmdev.crazypic.aop.logging;
 
+import com.jmdev.crazypic.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
 import java.util.Arrays;
-import org.aspectj.lang.JoinPoint;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import org.aspectj.lang.ProceedingJoinPoint;
-import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
 import tech.jhipster.config.JHipsterConstants;
 
 /**
- * Aspect for logging execution of service and repository Spring components.
- *
- * By default, it only runs with the "dev" profile.
+ * Aspect tracing the execution of service, repository and Web REST Spring components.
+ * <p>
+ * Only a sample of the calls, the {@code application.method-tracing.sample-rate} fraction of them, is traced: the
+ * other calls are only forwarded. A traced call is timed in the {@code method.traced} timer of its class and method,
+ * tagged with the exception it threw if any, and logged at debug level in the logger of its class, or at error level for
+ * the exceptions in development. The counts of the timers are those of the traced calls, which are the counts of all the
+ * calls multiplied by the sample rate.
+ * <p>
+ * The class of a call is that of the bean called, not the one declaring the method, so that the beans inheriting a
+ * method are told apart. The Spring Data repositories share their implementation, so theirs is their interface.
+ * <p>
+ * The logger and the timer of a method are looked up on its first traced call only. Its arguments and its result are
+ * only logged with {@code application.method-tracing.log-arguments}.
  */
 @Aspect
 public class LoggingAspect {
 
-    private final Environment env;
+    public static final String METHOD_METER_NAME = "method.traced";
+    public static final String METHOD_METER_DESCRIPTION =
+        "Times a sample of the calls of the repositories, services and Web REST endpoints: the counts are those of the sampled calls only.";
 
-    public LoggingAspect(Environment env) {
-        this.env = env;
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    private final double sampleRate;
+
+    private final boolean logArguments;
+
+    private final boolean development;
+
+    private final Map<Class<?>, Map<Method, MethodTrace>> traces = new ConcurrentHashMap<>();
+
+    public LoggingAspect(Environment env, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = applicationProperties.getMethodTracing().getSampleRate();
+        this.logArguments = applicationProperties.getMethodTracing().isLogArguments();
+        this.development = env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT));
     }
 
     /**
@@ -41,9 +78,11 @@ public class LoggingAspect {
 
     /**
      * Pointcut that matches all Spring beans in the application's main packages.
+     * <p>
+     * The repositories are matched by their methods, as their beans are proxies of classes outside of these packages.
      */
     @Pointcut(
-        "within(com.jmdev.crazypic.repository..*)" +
+        "execution(* com.jmdev.crazypic.repository..*.*(..))" +
         " || within(com.jmdev.crazypic.service..*)" +
         " || within(com.jmdev.crazypic.web.rest..*)"
     )
@@ -52,64 +91,129 @@ public class LoggingAspect {
     }
 
     /**
-     * Retrieves the {@link Logger} associated to the given {@link JoinPoint}.
-     *
-     * @param joinPoint join point we want the logger for.
-     * @return {@link Logger} associated to the given {@link JoinPoint}.
-     */
-    private Logger logger(JoinPoint joinPoint) {
-        return LoggerFactory.getLogger(joinPoint.getSignature().getDeclaringTypeName());
-    }
-
-    /**
-     * Advice that logs methods throwing exceptions.
-     *
-     * @param joinPoint join point for advice.
-     * @param e exception.
-     */
-    @AfterThrowing(pointcut = "applicationPackagePointcut() && springBeanPointcut()", throwing = "e")
-    public void logAfterThrowing(JoinPoint joinPoint, Throwable e) {
-        if (env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT))) {
-            logger(joinPoint)
-                .error(
-                    "Exception in {}() with cause = '{}' and exception = '{}'",
-                    joinPoint.getSignature().getName(),
-                    e.getCause() != null ? e.getCause() : "NULL",
-                    e.getMessage(),
-                    e
-                );
-        } else {
-            logger(joinPoint)
-                .error(
-                    "Exception in {}() with cause = {}",
-                    joinPoint.getSignature().getName(),
-                    e.getCause() != null ? e.getCause() : "NULL"
-                );
-        }
-    }
-
-    /**
-     * Advice that logs when a method is entered and exited.
+     * Advice that times and logs a sample of the calls, when a method is entered and exited or throws an exception.
      *
      * @param joinPoint join point for advice.
      * @return result.
-     * @throws Throwable throws {@link IllegalArgumentException}.
+     * @throws Throwable the exception thrown by the method.
      */
     @Around("applicationPackagePointcut() && springBeanPointcut()")
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-        Logger log = logger(joinPoint);
+        if (!isSampled()) {
+            return joinPoint.proceed();
+        }
+        MethodTrace trace = trace(joinPoint);
+        Logger log = trace.logger;
         if (log.isDebugEnabled()) {
-            log.debug("Enter: {}() with argument[s] = {}", joinPoint.getSignature().getName(), Arrays.toString(joinPoint.getArgs()));
+            if (logArguments) {
+                log.debug("Enter: {}() with argument[s] = {}", trace.methodName, Arrays.toString(joinPoint.getArgs()));
+            } else {
+                log.debug("Enter: {}()", trace.methodName);
+            }
         }
+        long start = System.nanoTime();
         try {
             Object result = joinPoint.proceed();
+            long duration = System.nanoTime() - start;
+            trace.timer.record(duration, TimeUnit.NANOSECONDS);
             if (log.isDebugEnabled()) {
-                log.debug("Exit: {}() with result = {}", joinPoint.getSignature().getName(), result);
+                if (logArguments) {
+                    log.debug("Exit: {}() with result = {}", trace.methodName, result);
+                } else {
+                    log.debug("Exit: {}() in {} ms", trace.methodName, TimeUnit.NANOSECONDS.toMillis(duration));
+                }
             }
             return result;
-        } catch (IllegalArgumentException e) {
-            log.error("Illegal argument: {} in {}()", Arrays.toString(joinPoint.getArgs()), joinPoint.getSignature().getName());
+        } catch (Throwable e) {
+            trace.failureTimer(e, meterRegistry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            logException(trace, joinPoint, e);
             throw e;
         }
     }
+
+    private boolean isSampled() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private MethodTrace trace(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object target = joinPoint.getTarget();
+        Class<?> targetType = target != null ? target.getClass() : method.getDeclaringClass();
+        Map<Method, MethodTrace> methodTraces = traces.get(targetType);
+        if (methodTraces == null) {
+            methodTraces = traces.computeIfAbsent(targetType, key -> new ConcurrentHashMap<>());
+        }
+        MethodTrace trace = methodTraces.get(method);
+        if (trace == null) {
+            trace = methodTraces.computeIfAbsent(method, key -> new MethodTrace(tracedClass(target, key), key, meterRegistry));
+        }
+        return trace;
+    }
+
+    private static Class<?> tracedClass(Object target, Method method) {
+        if (target == null) {
+            return method.getDeclaringClass();
+        }
+        if (target instanceof Repository) {
+            for (Class<?> type : ClassUtils.getAllInterfaces(target)) {
+                if (Repository.class.isAssignableFrom(type) && !type.getName().startsWith("org.springframework.")) {
+                    return type;
+                }
+            }
+        }
+        return ClassUtils.getUserClass(AopUtils.getTargetClass(target));
+    }
+
+    private void logException(MethodTrace trace, ProceedingJoinPoint joinPoint, Throwable e) {
+        if (e instanceof IllegalArgumentException && logArguments) {
+            trace.logger.error("Illegal argument: {} in {}()", Arrays.toString(joinPoint.getArgs()), trace.methodName);
+        }
+        if (development) {
+            trace.logger.error(
+                "Exception in {}() with cause = '{}' and exception = '{}'",
+                trace.methodName,
+                e.getCause() != null ? e.getCause() : "NULL",
+                e.getMessage(),
+                e
+            );
+        } else if (trace.logger.isDebugEnabled()) {
+            // outside of development, the exceptions are counted by the timers and reported by the ExceptionTranslator
+            trace.logger.debug("Exception in {}() with cause = {}", trace.methodName, e.getCause() != null ? e.getCause() : "NULL");
+        }
+    }
+
+    /**
+     * The logger and the timers of a traced method.
+     */
+    private static final class MethodTrace {
+
+        private final Logger logger;
+
+        private final String className;
+
+        private final String methodName;
+
+        private final Timer timer;
+
+        private MethodTrace(Class<?> tracedClass, Method method, MeterRegistry meterRegistry) {
+            this.logger = LoggerFactory.getLogger(tracedClass);
+            this.className = tracedClass.getSimpleName();
+            this.methodName = method.getName();
+            this.timer = timer(NO_EXCEPTION, meterRegistry);
+        }
+
+        private Timer failureTimer(Throwable e, MeterRegistry meterRegistry) {
+            return timer(e.getClass().getSimpleName(), meterRegistry);
+        }
+
+        private Timer timer(String exception, MeterRegistry meterRegistry) {
+            return Timer
+                .builder(METHOD_METER_NAME)
+                .description(METHOD_METER_DESCRIPTION)
+                .tag("class", className)
+                .tag("method", methodName)
+                .tag("exception", exception)
+                .register(meterRegistry);
+        }
+    }
 }
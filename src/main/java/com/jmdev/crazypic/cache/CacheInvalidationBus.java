@@ -0,0 +1,324 @@
+package com.jmdev.crazypic.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bus of the cache invalidations between the instances of the application.
+ * <p>
+ * An instance evicting an entry of a cache region from its own caches publishes its invalidation, which is sent to the
+ * other instances once the current transaction, if any, is committed. The invalidations are batched every
+ * {@code batch-interval}, deduplicated, and sent as messages of the {@link CacheInvalidationTransport} in use. The
+ * other instances evict the entries through the {@link CacheInvalidationHandler} of their region, and clear all the
+ * regions when the transport reports that messages may have been lost.
+ * <p>
+ * The messages which could not be sent are retried before the new ones, in 2, 4, 8 then 16 batch intervals. Once
+ * {@value #SEND_ATTEMPTS} attempts failed, they are given up, and the other instances are told to clear all the
+ * regions, as when messages were lost, by the next message sent.
+ * <p>
+ * Without transport, as for a single instance, publishing an invalidation does nothing.
+ * <p>
+ * A message is made of the id of the sending instance on its first line, then of a line per region, made of the region
+ * name, {@code =}, and the comma-separated entity ids. A line made of {@code *} tells to clear all the regions.
+ */
+@Component
+public class CacheInvalidationBus {
+
+    public static final String MESSAGES_METER_NAME = "cache.invalidation.messages";
+    public static final String MESSAGES_METER_DESCRIPTION = "Indicates count of the cache invalidation messages, by direction.";
+    public static final String MESSAGES_METER_BASE_UNIT = "messages";
+    public static final String LOSSES_METER_NAME = "cache.invalidation.losses";
+    public static final String LOSSES_METER_DESCRIPTION =
+        "Indicates count of the possible losses of cache invalidation messages, each clearing the invalidated caches.";
+
+    private static final char REGION_SEPARATOR = '\n';
+    private static final char IDS_START = '=';
+    private static final char ID_SEPARATOR = ',';
+    private static final String CLEAR_ALL = "*";
+
+    private static final int SEND_ATTEMPTS = 5;
+
+    private final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final String origin = UUID.randomUUID().toString();
+
+    private final CacheInvalidationTransport transport;
+
+    private final Map<String, CacheInvalidationHandler> handlers = new ConcurrentHashMap<>();
+
+    private final Queue<Invalidation> pending = new ConcurrentLinkedQueue<>();
+
+    // guarded by the flush: the messages not sent yet, the failed attempts to send them, and the flushes to skip until
+    // the next attempt
+    private final Deque<String> unsent = new ArrayDeque<>();
+
+    private int failedAttempts;
+
+    private int skippedFlushes;
+
+    // whether the other instances must clear all the regions, as some invalidations were given up
+    private boolean clearAllUnsent;
+
+    private final Counter sentMessages;
+
+    private final Counter receivedMessages;
+
+    private final Counter losses;
+
+    public CacheInvalidationBus(ObjectProvider<CacheInvalidationTransport> transport, MeterRegistry registry) {
+        this.transport = transport.getIfAvailable();
+        this.sentMessages = messagesCounter("sent", registry);
+        this.receivedMessages = messagesCounter("received", registry);
+        this.losses = Counter.builder(LOSSES_METER_NAME).description(LOSSES_METER_DESCRIPTION).register(registry);
+        if (this.transport != null) {
+            this.transport.subscribe(
+                    new CacheInvalidationTransport.Receiver() {
+                        @Override
+                        public void onMessage(String message) {
+                            receive(message);
+                        }
+
+                        @Override
+                        public void onMessagesLost() {
+                            clearAll();
+                        }
+                    }
+                );
+        }
+    }
+
+    /**
+     * Register the local eviction of the entries of a region, invalidated by the other instances.
+     *
+     * @param region the region name.
+     * @param handler the local eviction.
+     */
+    public void register(String region, CacheInvalidationHandler handler) {
+        handlers.put(region, handler);
+    }
+
+    /**
+     * Checks if the invalidations are sent to the other instances, through a transport.
+     *
+     * @return true if they are, false otherwise.
+     */
+    public boolean hasTransport() {
+        return transport != null;
+    }
+
+    /**
+     * Invalidate the entries of an entity in a region on the other instances, once the current transaction if any is
+     * committed.
+     *
+     * @param region the region name.
+     * @param id the entity id.
+     */
+    public void publish(String region, Long id) {
+        if (transport == null || id == null) {
+            return;
+        }
+        Invalidation invalidation = new Invalidation(region, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        pending.add(invalidation);
+                    }
+                }
+            );
+        } else {
+            pending.add(invalidation);
+        }
+    }
+
+    /**
+     * Invalidate the entries of entities in a region on the other instances, once the current transaction if any is
+     * committed.
+     *
+     * @param region the region name.
+     * @param ids the entity ids.
+     */
+    public void publishAll(String region, Collection<Long> ids) {
+        if (transport == null || ids.isEmpty()) {
+            return;
+        }
+        List<Invalidation> invalidations = ids.stream().map(id -> new Invalidation(region, id)).collect(Collectors.toList());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        pending.addAll(invalidations);
+                    }
+                }
+            );
+        } else {
+            pending.addAll(invalidations);
+        }
+    }
+
+    /**
+     * Send the pending invalidations.
+     * <p>
+     * This is scheduled to get fired every {@code batch-interval}.
+     */
+    @Scheduled(fixedDelayString = "${application.cache.invalidation.batch-interval:PT0.2S}")
+    @PreDestroy
+    public synchronized void flush() {
+        if (transport == null || (pending.isEmpty() && unsent.isEmpty() && !clearAllUnsent)) {
+            return;
+        }
+        if (skippedFlushes > 0) {
+            skippedFlushes--;
+            return;
+        }
+        Map<String, Set<Long>> batch = new LinkedHashMap<>();
+        Invalidation invalidation;
+        while ((invalidation = pending.poll()) != null) {
+            batch.computeIfAbsent(invalidation.region, region -> new LinkedHashSet<>()).add(invalidation.id);
+        }
+        encode(batch, transport.getMaxMessageLength(), unsent::add);
+        try {
+            if (clearAllUnsent) {
+                send(origin + REGION_SEPARATOR + CLEAR_ALL);
+                clearAllUnsent = false;
+            }
+            while (!unsent.isEmpty()) {
+                send(unsent.peek());
+                unsent.poll();
+            }
+            failedAttempts = 0;
+        } catch (RuntimeException e) {
+            failedAttempts++;
+            if (failedAttempts < SEND_ATTEMPTS) {
+                skippedFlushes = (1 << failedAttempts) - 1;
+                log.warn(
+                    "Could not send {} cache invalidation messages, retrying in {} batch intervals",
+                    unsent.size(),
+                    skippedFlushes + 1,
+                    e
+                );
+            } else {
+                losses.increment();
+                log.error("Gave up sending {} cache invalidation messages, the other instances will clear their caches", unsent.size(), e);
+                unsent.clear();
+                failedAttempts = 0;
+                clearAllUnsent = true;
+            }
+        }
+    }
+
+    private void send(String message) {
+        transport.send(message);
+        sentMessages.increment();
+    }
+
+    void receive(String message) {
+        int originEnd = message.indexOf(REGION_SEPARATOR);
+        if (originEnd < 0 || message.substring(0, originEnd).equals(origin)) {
+            return;
+        }
+        receivedMessages.increment();
+        for (String line : message.substring(originEnd + 1).split(String.valueOf(REGION_SEPARATOR))) {
+            if (line.equals(CLEAR_ALL)) {
+                clearAll();
+                continue;
+            }
+            int idsStart = line.indexOf(IDS_START);
+            CacheInvalidationHandler handler = idsStart > 0 ? handlers.get(line.substring(0, idsStart)) : null;
+            if (handler == null) {
+                continue;
+            }
+            for (String id : line.substring(idsStart + 1).split(String.valueOf(ID_SEPARATOR))) {
+                try {
+                    handler.evict(Long.valueOf(id));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring the invalid cache invalidation {} of region {}", id, line.substring(0, idsStart));
+                }
+            }
+        }
+    }
+
+    void clearAll() {
+        losses.increment();
+        // not a warning: the transport warns about the lost connections
+        log.info("Some cache invalidations may have been missed, clearing the regions {}", handlers.keySet());
+        handlers.values().forEach(CacheInvalidationHandler::clear);
+    }
+
+    String getOrigin() {
+        return origin;
+    }
+
+    private void encode(Map<String, Set<Long>> batch, int maxLength, Consumer<String> sender) {
+        StringBuilder message = new StringBuilder(origin);
+        for (Map.Entry<String, Set<Long>> entry : batch.entrySet()) {
+            String regionStart = REGION_SEPARATOR + entry.getKey() + IDS_START;
+            boolean regionStarted = false;
+            for (Long id : entry.getValue()) {
+                String encodedId = id.toString();
+                int needed = regionStarted ? 1 + encodedId.length() : regionStart.length() + encodedId.length();
+                if (message.length() + needed > maxLength && message.length() > origin.length()) {
+                    sender.accept(message.toString());
+                    message.setLength(0);
+                    message.append(origin);
+                    regionStarted = false;
+                }
+                if (regionStarted) {
+                    message.append(ID_SEPARATOR);
+                } else {
+                    message.append(regionStart);
+                    regionStarted = true;
+                }
+                message.append(encodedId);
+            }
+        }
+        if (message.length() > origin.length()) {
+            sender.accept(message.toString());
+        }
+    }
+
+    private static Counter messagesCounter(String direction, MeterRegistry registry) {
+        return Counter
+            .builder(MESSAGES_METER_NAME)
+            .baseUnit(MESSAGES_METER_BASE_UNIT)
+            .description(MESSAGES_METER_DESCRIPTION)
+            .tag("direction", direction)
+            .register(registry);
+    }
+
+    private static final class Invalidation {
+
+        private final String region;
+
+        private final Long id;
+
+        private Invalidation(String region, Long id) {
+            this.region = region;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.jmdev.crazypic.cache;
+
+/**
+ * Local eviction of the entries of a cache region, invalidated by another instance.
+ */
+public interface CacheInvalidationHandler {
+    /**
+     * Evict the entries of an entity.
+     *
+     * @param id the entity id.
+     */
+    void evict(Long id);
+
+    /**
+     * Evict all the entries, as some invalidations may have been missed.
+     */
+    void clear();
+}
@@ -0,0 +1,42 @@
+package com.jmdev.crazypic.cache;
+
+/**
+ * Broadcast of the cache invalidation messages to all the instances of the application, including the sending one.
+ */
+public interface CacheInvalidationTransport {
+    /**
+     * @return the maximum length of a message.
+     */
+    int getMaxMessageLength();
+
+    /**
+     * Send a message to all the instances.
+     *
+     * @param message the message, at most {@link #getMaxMessageLength()} characters long.
+     */
+    void send(String message);
+
+    /**
+     * Set the receiver of the messages, before the transport is started.
+     *
+     * @param receiver the receiver.
+     */
+    void subscribe(Receiver receiver);
+
+    /**
+     * Receiver of the messages.
+     */
+    interface Receiver {
+        /**
+         * Receive a message.
+         *
+         * @param message the message.
+         */
+        void onMessage(String message);
+
+        /**
+         * Be notified that messages may have been lost, for instance while the transport was reconnecting.
+         */
+        void onMessagesLost();
+    }
+}
@@ -0,0 +1,190 @@
+package com.jmdev.crazypic.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.cache.CacheManager;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.PluralAttribute;
+import org.hibernate.Cache;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers the Hibernate second level cache regions of the entities, and of their collections, in the
+ * {@link CacheInvalidationBus}, under their default region names: the entity class name, and the collection role.
+ * <p>
+ * The entries restored from the persistent cache tiers, if any, are checked against the database once the application
+ * is started, before the caches are warmed up: the ones of the entities changed or deleted while the application was
+ * down are dropped, with their cached collections.
+ */
+@Component
+public class HibernateCacheInvalidation {
+
+    private static final int REVALIDATION_BATCH_SIZE = 500;
+
+    private final Logger log = LoggerFactory.getLogger(HibernateCacheInvalidation.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    private final CacheManager cacheManager;
+
+    private final Cache cache;
+
+    public HibernateCacheInvalidation(
+        CacheInvalidationBus cacheInvalidationBus,
+        EntityManagerFactory entityManagerFactory,
+        CacheManager cacheManager
+    ) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.cacheManager = cacheManager;
+        this.cache = sessionFactory.getCache();
+        for (EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> entityClass = entityType.getJavaType();
+            cacheInvalidationBus.register(
+                entityClass.getName(),
+                new CacheInvalidationHandler() {
+                    @Override
+                    public void evict(Long id) {
+                        cache.evictEntityData(entityClass, id);
+                    }
+
+                    @Override
+                    public void clear() {
+                        cache.evictEntityData(entityClass);
+                    }
+                }
+            );
+            for (PluralAttribute<?, ?, ?> collection : entityType.getDeclaredPluralAttributes()) {
+                String role = entityClass.getName() + "." + collection.getName();
+                cacheInvalidationBus.register(
+                    role,
+                    new CacheInvalidationHandler() {
+                        @Override
+                        public void evict(Long id) {
+                            cache.evictCollectionData(role, id);
+                        }
+
+                        @Override
+                        public void clear() {
+                            cache.evictCollectionData(role);
+                        }
+                    }
+                );
+            }
+        }
+    }
+
+    /**
+     * Drop the cached entities which are not at the current version of their row, as the ones restored from the
+     * persistent cache tiers after the entities changed, and the cached collections of the dropped entities. The
+     * entities without version cannot be checked, so they are all dropped.
+     * <p>
+     * This is fired once the application is started, before it is ready.
+     *
+     * @return the number of dropped entities.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public int revalidate() {
+        int dropped = 0;
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            // the subclasses share the region of their root entity
+            if (!persister.hasCache() || !persister.getEntityName().equals(persister.getRootEntityName())) {
+                continue;
+            }
+            javax.cache.Cache<Object, Object> region = region(persister.getCacheAccessStrategy().getRegion().getName());
+            if (region == null) {
+                continue;
+            }
+            Map<Object, Object> cachedVersions = new HashMap<>();
+            for (javax.cache.Cache.Entry<Object, Object> entry : region) {
+                Object id = persister.getCacheAccessStrategy().getCacheKeyId(entry.getKey());
+                // a lock of an entity being updated has no version
+                Object version = entry.getValue() instanceof CacheEntry ? ((CacheEntry) entry.getValue()).getVersion() : null;
+                cachedVersions.put(id, version);
+            }
+            if (cachedVersions.isEmpty()) {
+                continue;
+            }
+            Set<Object> current = persister.isVersioned() ? currentIds(persister, cachedVersions) : Set.of();
+            int regionDropped = 0;
+            for (Object id : cachedVersions.keySet()) {
+                if (!current.contains(id)) {
+                    // only local, as the entity is stale on this instance only
+                    cache.evictEntityData(persister.getEntityName(), (Serializable) id);
+                    regionDropped++;
+                }
+            }
+            for (CollectionPersister collectionPersister : sessionFactory.getMetamodel().collectionPersisters().values()) {
+                String ownerName = collectionPersister.getOwnerEntityPersister().getRootEntityName();
+                if (collectionPersister.hasCache() && ownerName.equals(persister.getEntityName())) {
+                    evictCollections(collectionPersister, current);
+                }
+            }
+            log.info("Dropped {} stale {} out of the {} cached ones", regionDropped, persister.getEntityName(), cachedVersions.size());
+            dropped += regionDropped;
+        }
+        return dropped;
+    }
+
+    private Set<Object> currentIds(EntityPersister persister, Map<Object, Object> cachedVersions) {
+        String idName = persister.getIdentifierPropertyName();
+        String versionName = persister.getPropertyNames()[persister.getVersionProperty()];
+        String query =
+            "select entity." + idName + ", entity." + versionName + " from " + persister.getEntityName() + " entity " +
+            "where entity." + idName + " in :ids";
+        Set<Object> current = new HashSet<>();
+        List<Object> ids = new ArrayList<>(cachedVersions.keySet());
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            for (int start = 0; start < ids.size(); start += REVALIDATION_BATCH_SIZE) {
+                List<Object> batch = ids.subList(start, Math.min(start + REVALIDATION_BATCH_SIZE, ids.size()));
+                for (Object[] row : entityManager.createQuery(query, Object[].class).setParameter("ids", batch).getResultList()) {
+                    if (Objects.equals(cachedVersions.get(row[0]), row[1])) {
+                        current.add(row[0]);
+                    }
+                }
+            }
+        } finally {
+            entityManager.close();
+        }
+        return current;
+    }
+
+    private void evictCollections(CollectionPersister persister, Set<Object> currentOwners) {
+        javax.cache.Cache<Object, Object> region = region(persister.getCacheAccessStrategy().getRegion().getName());
+        if (region == null) {
+            return;
+        }
+        List<Object> staleOwners = new ArrayList<>();
+        for (javax.cache.Cache.Entry<Object, Object> entry : region) {
+            Object ownerId = persister.getCacheAccessStrategy().getCacheKeyId(entry.getKey());
+            // the collection of an owner which is not cached, or not at its current version, may be stale
+            if (!currentOwners.contains(ownerId)) {
+                staleOwners.add(ownerId);
+            }
+        }
+        staleOwners.forEach(ownerId -> cache.evictCollectionData(persister.getRole(), (Serializable) ownerId));
+    }
+
+    private javax.cache.Cache<Object, Object> region(String name) {
+        return cacheManager.getCache(name);
+    }
+}
@@ -0,0 +1,182 @@
+package com.jmdev.crazypic.cache;
+
+import com.jmdev.crazypic.config.ApplicationProperties;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * {@link CacheInvalidationTransport} through PostgreSQL {@code LISTEN} and {@code NOTIFY}.
+ * <p>
+ * The messages are sent with {@code pg_notify} through the connection pool. They are received on a dedicated
+ * connection, outside of the pool, listening to the channel until the application is stopped. When this connection is
+ * lost, it is opened again every {@code reconnect-delay}.
+ * <p>
+ * The receiver is told that messages may have been lost each time the channel is listened to again, after the
+ * connection was lost. Not the first time: the entries restored from the persistent cache tiers on startup are checked
+ * against the database instead, by the {@link HibernateCacheInvalidation} and the {@code UserIdentityCache}. Starting
+ * waits for this first time, up to {@value #START_TIMEOUT_SECONDS} seconds, so that no invalidation sent once the
+ * application is started is missed.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.cache.invalidation", name = "transport", havingValue = "postgres")
+public class PostgresCacheInvalidationTransport implements CacheInvalidationTransport, SmartLifecycle {
+
+    private static final String THREAD_NAME = "crazy-pic-cache-invalidation";
+
+    // the NOTIFY payload is limited to 8000 bytes, and the messages are made of ASCII characters
+    private static final int MAX_MESSAGE_LENGTH = 7900;
+
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+
+    private static final long START_TIMEOUT_SECONDS = 10;
+
+    private final Logger log = LoggerFactory.getLogger(PostgresCacheInvalidationTransport.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final String channel;
+
+    private final Duration reconnectDelay;
+
+    private volatile Receiver receiver;
+
+    private volatile boolean running;
+
+    private Thread listener;
+
+    private CountDownLatch listening;
+
+    public PostgresCacheInvalidationTransport(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        DataSourceProperties dataSourceProperties,
+        ApplicationProperties applicationProperties
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dataSourceProperties = dataSourceProperties;
+        this.channel = applicationProperties.getCache().getInvalidation().getChannel();
+        this.reconnectDelay = applicationProperties.getCache().getInvalidation().getReconnectDelay();
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid cache invalidation channel " + channel + ", expected a lower case identifier");
+        }
+    }
+
+    @Override
+    public int getMaxMessageLength() {
+        return MAX_MESSAGE_LENGTH;
+    }
+
+    @Override
+    public void send(String message) {
+        // the notification is only delivered once the transaction is committed, the pool not being in auto-commit
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, channel, message));
+    }
+
+    @Override
+    public void subscribe(Receiver receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        listening = new CountDownLatch(1);
+        CountDownLatch started = listening;
+        listener = new Thread(() -> listen(started), THREAD_NAME);
+        listener.setDaemon(true);
+        listener.start();
+        try {
+            if (!started.await(START_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Not yet listening to the cache invalidations of channel {}, starting anyway", channel);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen(CountDownLatch started) {
+        boolean listened = false;
+        while (running) {
+            try (
+                Connection connection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword()
+                )
+            ) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                log.debug("Listening to the cache invalidations of channel {}", channel);
+                if (listened && receiver != null) {
+                    // the invalidations sent while reconnecting were missed
+                    receiver.onMessagesLost();
+                }
+                listened = true;
+                started.countDown();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null && receiver != null) {
+                        for (PGNotification notification : notifications) {
+                            receiver.onMessage(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Lost the cache invalidations connection, reconnecting in {}: {}", reconnectDelay, e.getMessage());
+                    sleep();
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not handle the cache invalidations", e);
+                sleep();
+            }
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
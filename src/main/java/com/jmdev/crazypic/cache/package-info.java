@@ -0,0 +1,4 @@
+/**
+ * Cache invalidation across the instances of the application.
+ */
+package com.jmdev.crazypic.cache;
@@ -1,6 +1,10 @@
 package com.jmdev.crazypic.config;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Properties specific to Crazy Pic.
@@ -9,4 +13,776 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * See {@link tech.jhipster.config.JHipsterProperties} for a good example.
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
-public class ApplicationProperties {}
+public class ApplicationProperties {
+
+    private final Security security = new Security();
+
+    private final UserIdentityFilter userIdentityFilter = new UserIdentityFilter();
+
+    private final Cache cache = new Cache();
+
+    private final Mail mail = new Mail();
+
+    private final TaskExecution taskExecution = new TaskExecution();
+
+    private final MethodTracing methodTracing = new MethodTracing();
+
+    public Security getSecurity() {
+        return security;
+    }
+
+    public UserIdentityFilter getUserIdentityFilter() {
+        return userIdentityFilter;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Mail getMail() {
+        return mail;
+    }
+
+    public TaskExecution getTaskExecution() {
+        return taskExecution;
+    }
+
+    public MethodTracing getMethodTracing() {
+        return methodTracing;
+    }
+
+    public static class Security {
+
+        private final TokenCache tokenCache = new TokenCache();
+
+        private final PasswordHashing passwordHashing = new PasswordHashing();
+
+        public TokenCache getTokenCache() {
+            return tokenCache;
+        }
+
+        public PasswordHashing getPasswordHashing() {
+            return passwordHashing;
+        }
+
+        public static class TokenCache {
+
+            private boolean enabled = true;
+
+            private int maxEntries = 10000;
+
+            private int rejectedMaxEntries = 1000;
+
+            private long rejectedTimeToLiveSeconds = 60;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(int maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public int getRejectedMaxEntries() {
+                return rejectedMaxEntries;
+            }
+
+            public void setRejectedMaxEntries(int rejectedMaxEntries) {
+                this.rejectedMaxEntries = rejectedMaxEntries;
+            }
+
+            public long getRejectedTimeToLiveSeconds() {
+                return rejectedTimeToLiveSeconds;
+            }
+
+            public void setRejectedTimeToLiveSeconds(long rejectedTimeToLiveSeconds) {
+                this.rejectedTimeToLiveSeconds = rejectedTimeToLiveSeconds;
+            }
+        }
+
+        public static class PasswordHashing {
+
+            private int poolSize = Runtime.getRuntime().availableProcessors();
+
+            private int queueCapacity = 50;
+
+            private long timeoutSeconds = 10;
+
+            private String algorithm = "bcrypt";
+
+            private Integer strength;
+
+            private int minStrength = 10;
+
+            private int maxStrength = 14;
+
+            private long cpuBudgetMillis = 250;
+
+            private int pbkdf2Iterations = 185000;
+
+            public int getPoolSize() {
+                return poolSize;
+            }
+
+            public void setPoolSize(int poolSize) {
+                this.poolSize = poolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public long getTimeoutSeconds() {
+                return timeoutSeconds;
+            }
+
+            public void setTimeoutSeconds(long timeoutSeconds) {
+                this.timeoutSeconds = timeoutSeconds;
+            }
+
+            public String getAlgorithm() {
+                return algorithm;
+            }
+
+            public void setAlgorithm(String algorithm) {
+                this.algorithm = algorithm;
+            }
+
+            public Integer getStrength() {
+                return strength;
+            }
+
+            public void setStrength(Integer strength) {
+                this.strength = strength;
+            }
+
+            public int getMinStrength() {
+                return minStrength;
+            }
+
+            public void setMinStrength(int minStrength) {
+                this.minStrength = minStrength;
+            }
+
+            public int getMaxStrength() {
+                return maxStrength;
+            }
+
+            public void setMaxStrength(int maxStrength) {
+                this.maxStrength = maxStrength;
+            }
+
+            public long getCpuBudgetMillis() {
+                return cpuBudgetMillis;
+            }
+
+            public void setCpuBudgetMillis(long cpuBudgetMillis) {
+                this.cpuBudgetMillis = cpuBudgetMillis;
+            }
+
+            public int getPbkdf2Iterations() {
+                return pbkdf2Iterations;
+            }
+
+            public void setPbkdf2Iterations(int pbkdf2Iterations) {
+                this.pbkdf2Iterations = pbkdf2Iterations;
+            }
+        }
+    }
+
+    public static class UserIdentityFilter {
+
+        private boolean enabled = true;
+
+        private long expectedUsers = 100000;
+
+        private double falsePositiveProbability = 0.01;
+
+        private Duration rebuildInterval = Duration.ofMinutes(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getExpectedUsers() {
+            return expectedUsers;
+        }
+
+        public void setExpectedUsers(long expectedUsers) {
+            this.expectedUsers = expectedUsers;
+        }
+
+        public double getFalsePositiveProbability() {
+            return falsePositiveProbability;
+        }
+
+        public void setFalsePositiveProbability(double falsePositiveProbability) {
+            this.falsePositiveProbability = falsePositiveProbability;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+    }
+
+    public static class Cache {
+
+        private final Persistence persistence = new Persistence();
+
+        private final WarmUp warmUp = new WarmUp();
+
+        private final Invalidation invalidation = new Invalidation();
+
+        private final Map<String, Region> regions = new LinkedHashMap<>();
+
+        public Persistence getPersistence() {
+            return persistence;
+        }
+
+        public WarmUp getWarmUp() {
+            return warmUp;
+        }
+
+        public Invalidation getInvalidation() {
+            return invalidation;
+        }
+
+        /**
+         * @return the settings of the caches which do not use the {@code jhipster.cache.ehcache} defaults, by cache name.
+         */
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public static class Persistence {
+
+            private String directory;
+
+            /**
+             * @return the directory of the disk tiers, which survive the restarts, {@code null} if there are no disk tiers.
+             */
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+        }
+
+        public static class WarmUp {
+
+            private boolean enabled = true;
+
+            private Duration activeWithin = Duration.ofDays(30);
+
+            private int maxUsers = 10000;
+
+            private int pageSize = 500;
+
+            private int concurrency = 2;
+
+            private Duration timeBudget = Duration.ofSeconds(30);
+
+            private Duration refreshInterval = Duration.ofHours(1);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public Duration getActiveWithin() {
+                return activeWithin;
+            }
+
+            public void setActiveWithin(Duration activeWithin) {
+                this.activeWithin = activeWithin;
+            }
+
+            public int getMaxUsers() {
+                return maxUsers;
+            }
+
+            public void setMaxUsers(int maxUsers) {
+                this.maxUsers = maxUsers;
+            }
+
+            public int getPageSize() {
+                return pageSize;
+            }
+
+            public void setPageSize(int pageSize) {
+                this.pageSize = pageSize;
+            }
+
+            public int getConcurrency() {
+                return concurrency;
+            }
+
+            public void setConcurrency(int concurrency) {
+                this.concurrency = concurrency;
+            }
+
+            public Duration getTimeBudget() {
+                return timeBudget;
+            }
+
+            public void setTimeBudget(Duration timeBudget) {
+                this.timeBudget = timeBudget;
+            }
+
+            public Duration getRefreshInterval() {
+                return refreshInterval;
+            }
+
+            public void setRefreshInterval(Duration refreshInterval) {
+                this.refreshInterval = refreshInterval;
+            }
+        }
+
+        public static class Invalidation {
+
+            /**
+             * Transport of the invalidations between the instances.
+             */
+            public enum Transport {
+                /**
+                 * The invalidations are not sent, for a single instance.
+                 */
+                NONE,
+                /**
+                 * The invalidations are sent through PostgreSQL {@code LISTEN} and {@code NOTIFY}.
+                 */
+                POSTGRES,
+            }
+
+            private Transport transport = Transport.NONE;
+
+            private String channel = "crazy_pic_cache_invalidation";
+
+            private Duration batchInterval = Duration.ofMillis(200);
+
+            private Duration reconnectDelay = Duration.ofSeconds(5);
+
+            public Transport getTransport() {
+                return transport;
+            }
+
+            public void setTransport(Transport transport) {
+                this.transport = transport;
+            }
+
+            public String getChannel() {
+                return channel;
+            }
+
+            public void setChannel(String channel) {
+                this.channel = channel;
+            }
+
+            public Duration getBatchInterval() {
+                return batchInterval;
+            }
+
+            public void setBatchInterval(Duration batchInterval) {
+                this.batchInterval = batchInterval;
+            }
+
+            public Duration getReconnectDelay() {
+                return reconnectDelay;
+            }
+
+            public void setReconnectDelay(Duration reconnectDelay) {
+                this.reconnectDelay = reconnectDelay;
+            }
+        }
+
+        public static class Region {
+
+            /**
+             * Expiry policy of the entries of a cache.
+             */
+            public enum ExpiryPolicy {
+                /**
+                 * Entries expire {@code time-to-live} after they were created or updated.
+                 */
+                TIME_TO_LIVE,
+                /**
+                 * Entries expire {@code time-to-idle} after they were last created, updated or read.
+                 */
+                TIME_TO_IDLE,
+                /**
+                 * Entries never expire, and are only evicted when a tier is full.
+                 */
+                NONE,
+            }
+
+            private Long heapEntries;
+
+            private DataSize heap;
+
+            private DataSize offHeap;
+
+            private DataSize disk;
+
+            private ExpiryPolicy expiryPolicy = ExpiryPolicy.TIME_TO_LIVE;
+
+            private Duration timeToLive;
+
+            private Duration timeToIdle;
+
+            public Long getHeapEntries() {
+                return heapEntries;
+            }
+
+            public void setHeapEntries(Long heapEntries) {
+                this.heapEntries = heapEntries;
+            }
+
+            public DataSize getHeap() {
+                return heap;
+            }
+
+            public void setHeap(DataSize heap) {
+                this.heap = heap;
+            }
+
+            public DataSize getOffHeap() {
+                return offHeap;
+            }
+
+            public void setOffHeap(DataSize offHeap) {
+                this.offHeap = offHeap;
+            }
+
+            public DataSize getDisk() {
+                return disk;
+            }
+
+            public void setDisk(DataSize disk) {
+                this.disk = disk;
+            }
+
+            public ExpiryPolicy getExpiryPolicy() {
+                return expiryPolicy;
+            }
+
+            public void setExpiryPolicy(ExpiryPolicy expiryPolicy) {
+                this.expiryPolicy = expiryPolicy;
+            }
+
+            public Duration getTimeToLive() {
+                return timeToLive;
+            }
+
+            public void setTimeToLive(Duration timeToLive) {
+                this.timeToLive = timeToLive;
+            }
+
+            public Duration getTimeToIdle() {
+                return timeToIdle;
+            }
+
+            public void setTimeToIdle(Duration timeToIdle) {
+                this.timeToIdle = timeToIdle;
+            }
+        }
+    }
+
+    public static class Mail {
+
+        private final Outbox outbox = new Outbox();
+
+        public Outbox getOutbox() {
+            return outbox;
+        }
+
+        public static class Outbox {
+
+            private boolean enabled = true;
+
+            private Duration pollInterval = Duration.ofSeconds(1);
+
+            private int batchSize = 50;
+
+            private double maxRate = 10;
+
+            private int maxAttempts = 8;
+
+            private Duration initialBackoff = Duration.ofSeconds(30);
+
+            private Duration maxBackoff = Duration.ofHours(1);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public Duration getPollInterval() {
+                return pollInterval;
+            }
+
+            public void setPollInterval(Duration pollInterval) {
+                this.pollInterval = pollInterval;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public double getMaxRate() {
+                return maxRate;
+            }
+
+            public void setMaxRate(double maxRate) {
+                this.maxRate = maxRate;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public Duration getInitialBackoff() {
+                return initialBackoff;
+            }
+
+            public void setInitialBackoff(Duration initialBackoff) {
+                this.initialBackoff = initialBackoff;
+            }
+
+            public Duration getMaxBackoff() {
+                return maxBackoff;
+            }
+
+            public void setMaxBackoff(Duration maxBackoff) {
+                this.maxBackoff = maxBackoff;
+            }
+        }
+    }
+
+    public static class TaskExecution {
+
+        private final Map<String, Executor> executors = new LinkedHashMap<>();
+
+        private final VirtualThreads virtualThreads = new VirtualThreads();
+
+        /**
+         * @return the settings of the isolated executors, by name. They are registered by the
+         * {@link NamedExecutorsRegistrar}, which binds them before this class is.
+         */
+        public Map<String, Executor> getExecutors() {
+            return executors;
+        }
+
+        public VirtualThreads getVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public static class VirtualThreads {
+
+            /**
+             * How the virtual threads blocking while pinned to their carrier thread are reported.
+             */
+            public enum PinnedThreadsTrace {
+                /**
+                 * They are not reported.
+                 */
+                NONE,
+                /**
+                 * The frames of the application which pin the thread are printed.
+                 */
+                SHORT,
+                /**
+                 * The full stack trace of the thread is printed.
+                 */
+                FULL,
+            }
+
+            private boolean enabled = false;
+
+            private PinnedThreadsTrace tracePinnedThreads = PinnedThreadsTrace.NONE;
+
+            private Duration pinnedThreshold = Duration.ofMillis(20);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public PinnedThreadsTrace getTracePinnedThreads() {
+                return tracePinnedThreads;
+            }
+
+            public void setTracePinnedThreads(PinnedThreadsTrace tracePinnedThreads) {
+                this.tracePinnedThreads = tracePinnedThreads;
+            }
+
+            /**
+             * @return the time a virtual thread blocks while pinned to its carrier from which it is recorded by the
+             * {@link VirtualThreadPinningMonitor}.
+             */
+            public Duration getPinnedThreshold() {
+                return pinnedThreshold;
+            }
+
+            public void setPinnedThreshold(Duration pinnedThreshold) {
+                this.pinnedThreshold = pinnedThreshold;
+            }
+        }
+
+        public static class Executor {
+
+            /**
+             * What to do with a task submitted while all the threads are busy and the queue is full.
+             */
+            public enum RejectionPolicy {
+                /**
+                 * The task is rejected with a {@link java.util.concurrent.RejectedExecutionException}.
+                 */
+                ABORT,
+                /**
+                 * The task is run by the thread which submitted it.
+                 */
+                CALLER_RUNS,
+                /**
+                 * The task is silently discarded.
+                 */
+                DISCARD,
+                /**
+                 * The oldest task of the queue is discarded, and the task is queued.
+                 */
+                DISCARD_OLDEST,
+            }
+
+            private int coreSize = 2;
+
+            private int maxSize = 2;
+
+            private int queueCapacity = 100;
+
+            private Duration keepAlive = Duration.ofSeconds(60);
+
+            private boolean allowCoreThreadTimeout = true;
+
+            private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+            public int getCoreSize() {
+                return coreSize;
+            }
+
+            public void setCoreSize(int coreSize) {
+                this.coreSize = coreSize;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public Duration getKeepAlive() {
+                return keepAlive;
+            }
+
+            public void setKeepAlive(Duration keepAlive) {
+                this.keepAlive = keepAlive;
+            }
+
+            public boolean isAllowCoreThreadTimeout() {
+                return allowCoreThreadTimeout;
+            }
+
+            public void setAllowCoreThreadTimeout(boolean allowCoreThreadTimeout) {
+                this.allowCoreThreadTimeout = allowCoreThreadTimeout;
+            }
+
+            public RejectionPolicy getRejectionPolicy() {
+                return rejectionPolicy;
+            }
+
+            public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+                this.rejectionPolicy = rejectionPolicy;
+            }
+        }
+    }
+
+    public static class MethodTracing {
+
+        private boolean enabled = false;
+
+        private double sampleRate = 0.01;
+
+        private boolean logArguments = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public boolean isLogArguments() {
+            return logArguments;
+        }
+
+        public void setLogArguments(boolean logArguments) {
+            this.logArguments = logArguments;
+        }
+    }
+}
@@ -1,16 +1,31 @@
 package com.jmdev.crazypic.config;
 
+import com.jmdev.crazypic.security.BoundedPasswordEncoder;
+import com.jmdev.crazypic.service.MailDispatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.task.TaskExecutionProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import tech.jhipster.async.ExceptionHandlingAsyncTaskExecutor;
 
@@ -23,13 +38,52 @@ public class AsyncConfiguration implements AsyncConfigurer {
 
     private final TaskExecutionProperties taskExecutionProperties;
 
-    public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    public AsyncConfiguration(
+        TaskExecutionProperties taskExecutionProperties,
+        ApplicationProperties applicationProperties,
+        ObjectProvider<MeterRegistry> meterRegistryProvider
+    ) {
         this.taskExecutionProperties = taskExecutionProperties;
+        this.applicationProperties = applicationProperties;
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    /**
+     * Registers the isolated executors of the {@code application.task-execution.executors}, selected by name.
+     */
+    @Bean
+    public static NamedExecutorsRegistrar namedExecutorsRegistrar() {
+        return new NamedExecutorsRegistrar();
     }
 
+    /**
+     * Executor shared by the {@code @Async} methods which do not name theirs.
+     * <p>
+     * With {@code application.task-execution.virtual-threads.enabled}, each task runs on a virtual thread of its own,
+     * when the runtime supports them, instead of queuing for the threads of the pool. The executor is then monitored
+     * under the {@code task} name.
+     */
     @Override
     @Bean(name = "taskExecutor")
     public Executor getAsyncExecutor() {
+        ApplicationProperties.TaskExecution.VirtualThreads virtualThreads = applicationProperties.getTaskExecution().getVirtualThreads();
+        if (virtualThreads.isEnabled()) {
+            Optional<ExecutorService> executor = VirtualThreads.newThreadPerTaskExecutor(
+                taskExecutionProperties.getThreadNamePrefix(),
+                virtualThreads.getTracePinnedThreads()
+            );
+            if (executor.isPresent()) {
+                log.debug("Creating Async Task Executor with virtual threads");
+                MeterRegistry meterRegistry = meterRegistryProvider.getObject();
+                ExecutorService monitored = ExecutorServiceMetrics.monitor(meterRegistry, executor.get(), "task", Collections.emptyList());
+                return new ExceptionHandlingAsyncTaskExecutor(new ConcurrentTaskExecutor(monitored));
+            }
+            log.warn("Virtual threads are not supported by Java {}, the Async Task Executor uses a pool of threads", Runtime.version());
+        }
         log.debug("Creating Async Task Executor");
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(taskExecutionProperties.getPool().getCoreSize());
@@ -39,6 +93,44 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * Executor running the BCrypt computations, so that a login storm cannot use more than its pool size of CPUs.
+     * <p>
+     * Tasks submitted while all the threads are busy and the queue is full are rejected straight away. The executor is
+     * monitored under the {@code password-hashing} name: {@code executor.idle} times the wait in the queue and
+     * {@code executor} the tasks, such as whole logins. The {@link BoundedPasswordEncoder} times the hashings on their
+     * own, and the wait of its tasks and of the logins by operation.
+     */
+    @Bean(name = "passwordHashingExecutor")
+    public ExecutorService passwordHashingExecutor(MeterRegistry meterRegistry) {
+        ApplicationProperties.Security.PasswordHashing passwordHashing = applicationProperties.getSecurity().getPasswordHashing();
+        log.debug("Creating Password Hashing Executor with {} threads", passwordHashing.getPoolSize());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            passwordHashing.getPoolSize(),
+            passwordHashing.getPoolSize(),
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, passwordHashing.getQueueCapacity())),
+            BoundedPasswordEncoder.newThreadFactory(),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "password-hashing", Collections.emptyList());
+    }
+
+    /**
+     * Executor running the {@link MailDispatcher}, on a thread of its own so that the sends, spaced out by its rate
+     * limit, do not hold the threads of the scheduled tasks. The executor is monitored under the
+     * {@code mail-dispatcher} name.
+     */
+    @Bean(name = "mailDispatcherExecutor")
+    public ScheduledExecutorService mailDispatcherExecutor(MeterRegistry meterRegistry) {
+        log.debug("Creating Mail Dispatcher Executor");
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new CustomizableThreadFactory(MailDispatcher.THREAD_NAME_PREFIX)
+        );
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "mail-dispatcher", Collections.emptyList());
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
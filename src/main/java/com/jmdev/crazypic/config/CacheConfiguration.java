@@ -1,11 +1,23 @@
 package com.jmdev.crazypic.config;
 
+import java.io.File;
 import java.time.Duration;
+import java.util.Map;
+import javax.cache.Caching;
 import org.ehcache.config.builders.*;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.impl.config.persistence.DefaultPersistenceConfiguration;
 import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
 import org.hibernate.cache.jcache.ConfigSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.boot.info.BuildProperties;
 import org.springframework.boot.info.GitProperties;
@@ -15,6 +27,7 @@ import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.serviceregistry.Registration;
 import org.springframework.context.annotation.*;
+import org.springframework.util.unit.DataSize;
 import tech.jhipster.config.JHipsterProperties;
 import tech.jhipster.config.cache.PrefixedKeyGenerator;
 
@@ -22,12 +35,38 @@ import tech.jhipster.config.cache.PrefixedKeyGenerator;
 @EnableCaching
 public class CacheConfiguration {
 
+    private static final long ONE_MEGABYTE = DataSize.ofMegabytes(1).toBytes();
+
+    // the packages of the JDK classes held by the cached entries, which Ehcache walks to measure them
+    private static final String[] SIZE_OF_PACKAGES = { "java.lang", "java.util" };
+
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
+
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
     private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final JHipsterProperties.Cache.Ehcache ehcache;
+    private final Map<String, ApplicationProperties.Cache.Region> regions;
+    private final ApplicationProperties.Cache.Persistence persistence;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Ehcache ehcache = jHipsterProperties.getCache().getEhcache();
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        ehcache = jHipsterProperties.getCache().getEhcache();
+        regions = applicationProperties.getCache().getRegions();
+        persistence = applicationProperties.getCache().getPersistence();
+        regions.forEach((cacheName, region) -> {
+            if (region.getDisk() != null && persistence.getDirectory() == null) {
+                throw new IllegalArgumentException(
+                    "Cache " + cacheName + " has a disk tier, but application.cache.persistence.directory is not set"
+                );
+            }
+        });
+        if (regions.values().stream().anyMatch(region -> region.getHeap() != null) && !isSizeOfAllowed()) {
+            log.warn(
+                "The heap tiers sized in bytes are underestimated, as Ehcache cannot measure the JDK classes of their entries: " +
+                "start the JVM with --add-opens java.base/java.lang=ALL-UNNAMED --add-opens java.base/java.util=ALL-UNNAMED, " +
+                "as the Gradle build, the executable jar and the Docker image do"
+            );
+        }
 
         jcacheConfiguration =
             Eh107Configuration.fromEhcacheCacheConfiguration(
@@ -38,6 +77,113 @@ public class CacheConfiguration {
             );
     }
 
+    /**
+     * Build the configuration of a cache with specific settings, the unset ones falling back to the
+     * {@code jhipster.cache.ehcache} defaults.
+     *
+     * @param cacheName the cache name, only used in the error messages.
+     * @param region the settings of the cache.
+     * @param ehcache the default settings.
+     * @return the cache configuration.
+     * @throws IllegalArgumentException if the settings are inconsistent.
+     */
+    static org.ehcache.config.CacheConfiguration<Object, Object> ehcacheConfiguration(
+        String cacheName,
+        ApplicationProperties.Cache.Region region,
+        JHipsterProperties.Cache.Ehcache ehcache
+    ) {
+        ResourcePoolsBuilder resourcePools;
+        if (region.getHeap() != null) {
+            if (region.getHeapEntries() != null) {
+                throw new IllegalArgumentException("Cache " + cacheName + " cannot have both a heap size and a number of heap entries");
+            }
+            resourcePools = ResourcePoolsBuilder.newResourcePoolsBuilder().heap(region.getHeap().toBytes(), MemoryUnit.B);
+        } else {
+            resourcePools = ResourcePoolsBuilder.heap(region.getHeapEntries() != null ? region.getHeapEntries() : ehcache.getMaxEntries());
+        }
+        if (region.getOffHeap() != null) {
+            // Ehcache rejects an off-heap tier which is not larger than a byte-sized heap tier
+            resourcePools = resourcePools.offheap(megabytes(cacheName, "off-heap", region.getOffHeap()), MemoryUnit.MB);
+        }
+        if (region.getDisk() != null) {
+            // a persistent disk tier holds every entry of the cache, and is reloaded by the next cache manager using its directory
+            resourcePools = resourcePools.disk(megabytes(cacheName, "disk", region.getDisk()), MemoryUnit.MB, true);
+        }
+        return CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Object.class, Object.class, resourcePools)
+            .withExpiry(expiryPolicy(cacheName, region, ehcache))
+            .build();
+    }
+
+    private static long megabytes(String cacheName, String tier, DataSize size) {
+        // Ehcache sizes these tiers in whole megabytes, so a smaller one would be empty and the others are rounded up
+        if (size.toBytes() < ONE_MEGABYTE) {
+            throw new IllegalArgumentException("Cache " + cacheName + " has a " + tier + " tier of " + size + ", under the minimum of 1MB");
+        }
+        return (size.toBytes() + ONE_MEGABYTE - 1) / ONE_MEGABYTE;
+    }
+
+    /**
+     * Checks if Ehcache can walk the JDK classes of the entries to measure the heap tiers sized in bytes.
+     *
+     * @return true if it can, false otherwise.
+     */
+    static boolean isSizeOfAllowed() {
+        Module jdk = Object.class.getModule();
+        Module ehcache = org.ehcache.Cache.class.getModule();
+        for (String jdkPackage : SIZE_OF_PACKAGES) {
+            if (!jdk.isOpen(jdkPackage, ehcache)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ExpiryPolicy<Object, Object> expiryPolicy(
+        String cacheName,
+        ApplicationProperties.Cache.Region region,
+        JHipsterProperties.Cache.Ehcache ehcache
+    ) {
+        switch (region.getExpiryPolicy()) {
+            case TIME_TO_IDLE:
+                if (region.getTimeToIdle() == null) {
+                    throw new IllegalArgumentException("Cache " + cacheName + " has a time-to-idle expiry policy without time-to-idle");
+                }
+                return ExpiryPolicyBuilder.timeToIdleExpiration(region.getTimeToIdle());
+            case NONE:
+                return ExpiryPolicyBuilder.noExpiration();
+            default:
+                return ExpiryPolicyBuilder.timeToLiveExpiration(
+                    region.getTimeToLive() != null ? region.getTimeToLive() : Duration.ofSeconds(ehcache.getTimeToLiveSeconds())
+                );
+        }
+    }
+
+    /**
+     * JCache cache manager able to create disk tiers, replacing the one of Spring Boot when a persistence directory is
+     * set.
+     * <p>
+     * The disk tiers are written to on every update, and the cache manager is closed with the application context: on
+     * a clean shutdown, the next instance using the same directory starts with the entries of the previous one, which
+     * keep their expiration. After a crash, the disk tiers are discarded.
+     *
+     * @param customizers the customizers of the cache manager, which create the caches.
+     * @return the cache manager.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "application.cache.persistence", name = "directory")
+    public javax.cache.CacheManager jCacheCacheManager(ObjectProvider<JCacheManagerCustomizer> customizers) {
+        File directory = new File(persistence.getDirectory());
+        log.info("Persisting the cache disk tiers to {}", directory.getAbsolutePath());
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        javax.cache.CacheManager cacheManager = provider.getCacheManager(
+            provider.getDefaultURI(),
+            new DefaultConfiguration(provider.getDefaultClassLoader(), new DefaultPersistenceConfiguration(directory))
+        );
+        customizers.orderedStream().forEach(customizer -> customizer.customize(cacheManager));
+        return cacheManager;
+    }
+
     @Bean
     public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(javax.cache.CacheManager cacheManager) {
         return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
@@ -46,12 +192,18 @@ public class CacheConfiguration {
     @Bean
     public JCacheManagerCustomizer cacheManagerCustomizer() {
         return cm -> {
-            createCache(cm, com.jmdev.crazypic.repository.UserRepository.USERS_BY_LOGIN_CACHE);
-            createCache(cm, com.jmdev.crazypic.repository.UserRepository.USERS_BY_EMAIL_CACHE);
+            createCache(cm, com.jmdev.crazypic.security.UserIdentityCache.USER_IDENTITIES_CACHE);
+            createCache(cm, com.jmdev.crazypic.security.UserIdentityCache.USER_IDS_BY_LOGIN_CACHE);
+            createCache(cm, com.jmdev.crazypic.security.UserIdentityCache.USER_IDS_BY_EMAIL_CACHE);
             createCache(cm, com.jmdev.crazypic.domain.User.class.getName());
             createCache(cm, com.jmdev.crazypic.domain.Authority.class.getName());
             createCache(cm, com.jmdev.crazypic.domain.User.class.getName() + ".authorities");
             // jhipster-needle-ehcache-add-entry
+            for (String cacheName : regions.keySet()) {
+                if (cm.getCache(cacheName) == null) {
+                    throw new IllegalStateException("Unknown cache " + cacheName + " in application.cache.regions");
+                }
+            }
         };
     }
 
@@ -60,8 +212,16 @@ public class CacheConfiguration {
         if (cache != null) {
             cache.clear();
         } else {
-            cm.createCache(cacheName, jcacheConfiguration);
+            ApplicationProperties.Cache.Region region = regions.get(cacheName);
+            cm.createCache(
+                cacheName,
+                region == null
+                    ? jcacheConfiguration
+                    : Eh107Configuration.fromEhcacheCacheConfiguration(ehcacheConfiguration(cacheName, region, ehcache))
+            );
         }
+        // the statistics are bound to Micrometer by Spring Boot, and described by the CacheRegionsEndpoint
+        cm.enableStatistics(cacheName, true);
     }
 
     @Autowired(required = false)
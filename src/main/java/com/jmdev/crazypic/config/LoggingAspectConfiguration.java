@@ -1,17 +1,18 @@
 package com.jmdev.crazypic.config;
 
 import com.jmdev.crazypic.aop.logging.LoggingAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
-import tech.jhipster.config.JHipsterConstants;
 
 @Configuration
 @EnableAspectJAutoProxy
 public class LoggingAspectConfiguration {
 
     @Bean
-    @Profile(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT)
-    public LoggingAspect loggingAspect(Environment env) {
-        return new LoggingAspect(env);
+    @ConditionalOnProperty(prefix = "application.method-tracing", name = "enabled", havingValue = "true")
+    public LoggingAspect loggingAspect(Environment env, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        return new LoggingAspect(env, applicationProperties, meterRegistry);
     }
 }
@@ -0,0 +1,119 @@
+package com.jmdev.crazypic.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Registers an isolated executor for each of the {@code application.task-execution.executors}, so that a burst of one
+ * workload does not delay the others, as it does on the shared {@code taskExecutor}.
+ * <p>
+ * The executor named {@code <name>} is the {@code <name>Executor} bean: {@code @Async("<name>Executor")} runs a method
+ * on it. It has its own threads, named {@code crazy-pic-<name>-}, its own queue and its own rejection policy, and is
+ * monitored under its name: {@code executor.queued} is the depth of its queue, {@code executor.active} the count of its
+ * busy threads, {@code executor.idle} times the wait of the tasks in the queue, {@code executor} their run, and
+ * {@code executor.rejected} counts the tasks it rejected.
+ */
+public class NamedExecutorsRegistrar implements BeanDefinitionRegistryPostProcessor, EnvironmentAware {
+
+    public static final String BEAN_NAME_SUFFIX = "Executor";
+
+    public static final String REJECTED_METER_NAME = "executor.rejected";
+    public static final String REJECTED_METER_DESCRIPTION = "Indicates count of the tasks rejected by the executor.";
+    public static final String REJECTED_METER_BASE_UNIT = "tasks";
+
+    private static final String PROPERTIES_PREFIX = "application.task-execution.executors";
+
+    private final Logger log = LoggerFactory.getLogger(NamedExecutorsRegistrar.class);
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+        // bound here, as the ApplicationProperties are not bound yet
+        Map<String, ApplicationProperties.TaskExecution.Executor> executors = Binder
+            .get(environment)
+            .bind(PROPERTIES_PREFIX, Bindable.mapOf(String.class, ApplicationProperties.TaskExecution.Executor.class))
+            .orElse(Collections.emptyMap());
+        BeanFactory beanFactory = (BeanFactory) registry;
+        executors.forEach((name, properties) -> {
+            log.debug("Registering the {} Executor", name);
+            AbstractBeanDefinition beanDefinition = BeanDefinitionBuilder
+                .genericBeanDefinition(
+                    ExecutorService.class,
+                    () -> createExecutor(name, properties, beanFactory.getBean(MeterRegistry.class))
+                )
+                .setDestroyMethodName(AbstractBeanDefinition.INFER_METHOD)
+                .getBeanDefinition();
+            registry.registerBeanDefinition(name + BEAN_NAME_SUFFIX, beanDefinition);
+        });
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        // the executors are only registered
+    }
+
+    static ExecutorService createExecutor(String name, ApplicationProperties.TaskExecution.Executor properties, MeterRegistry registry) {
+        Counter rejectedTasks = Counter
+            .builder(REJECTED_METER_NAME)
+            .description(REJECTED_METER_DESCRIPTION)
+            .baseUnit(REJECTED_METER_BASE_UNIT)
+            .tag("name", name)
+            .register(registry);
+        RejectedExecutionHandler rejectionPolicy = rejectionPolicy(properties.getRejectionPolicy());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            properties.getCoreSize(),
+            Math.max(properties.getCoreSize(), properties.getMaxSize()),
+            properties.getKeepAlive().toMillis(),
+            TimeUnit.MILLISECONDS,
+            properties.getQueueCapacity() > 0 ? new LinkedBlockingQueue<>(properties.getQueueCapacity()) : new SynchronousQueue<>(),
+            new CustomizableThreadFactory("crazy-pic-" + name + "-"),
+            (task, pool) -> {
+                rejectedTasks.increment();
+                rejectionPolicy.rejectedExecution(task, pool);
+            }
+        );
+        executor.allowCoreThreadTimeOut(properties.isAllowCoreThreadTimeout() && properties.getKeepAlive().toMillis() > 0);
+        return ExecutorServiceMetrics.monitor(registry, executor, name, Collections.emptyList());
+    }
+
+    private static RejectedExecutionHandler rejectionPolicy(ApplicationProperties.TaskExecution.Executor.RejectionPolicy policy) {
+        switch (policy) {
+            case CALLER_RUNS:
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            case DISCARD:
+                return new ThreadPoolExecutor.DiscardPolicy();
+            case DISCARD_OLDEST:
+                return new ThreadPoolExecutor.DiscardOldestPolicy();
+            default:
+                return new ThreadPoolExecutor.AbortPolicy();
+        }
+    }
+}
@@ -2,6 +2,12 @@ package com.jmdev.crazypic.config;
 
 import com.jmdev.crazypic.security.*;
 import com.jmdev.crazypic.security.jwt.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpMethod;
@@ -11,8 +17,9 @@ import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.header.writers.ReferrerPolicyHeaderWriter;
 import org.springframework.web.filter.CorsFilter;
@@ -24,6 +31,12 @@ import tech.jhipster.config.JHipsterProperties;
 @Import(SecurityProblemSupport.class)
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
+    private static final String BCRYPT_ID = "bcrypt";
+
+    private static final String PBKDF2_ID = "pbkdf2";
+
+    private static final int PBKDF2_HASH_WIDTH = 256;
+
     private final JHipsterProperties jHipsterProperties;
 
     private final TokenProvider tokenProvider;
@@ -31,21 +44,58 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     private final CorsFilter corsFilter;
     private final SecurityProblemSupport problemSupport;
 
+    private final ApplicationProperties applicationProperties;
+
     public SecurityConfiguration(
         TokenProvider tokenProvider,
         CorsFilter corsFilter,
         JHipsterProperties jHipsterProperties,
-        SecurityProblemSupport problemSupport
+        SecurityProblemSupport problemSupport,
+        ApplicationProperties applicationProperties
     ) {
         this.tokenProvider = tokenProvider;
         this.corsFilter = corsFilter;
         this.problemSupport = problemSupport;
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
     }
 
+    /**
+     * Password encoder producing hashes prefixed with the id of their format, in the configured format and strength.
+     * <p>
+     * Hashes of the other formats, or of another BCrypt strength, are still matched, and re-encoded on the next
+     * successful login of their user by the {@link DomainUserDetailsPasswordService}. Hashes without prefix are BCrypt. The
+     * users without password have the hash of the {@link UnusablePasswordEncoder}, which no password matches.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+        @Qualifier("passwordHashingExecutor") ExecutorService passwordHashingExecutor,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.Security.PasswordHashing passwordHashing = applicationProperties.getSecurity().getPasswordHashing();
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT_ID, new TargetStrengthBCryptPasswordEncoder(bcryptStrength(passwordHashing)));
+        encoders.put(PBKDF2_ID, new Pbkdf2PasswordEncoder("", passwordHashing.getPbkdf2Iterations(), PBKDF2_HASH_WIDTH));
+        encoders.put(UnusablePasswordEncoder.ID, new UnusablePasswordEncoder());
+        DelegatingPasswordEncoder delegatingPasswordEncoder = new DelegatingPasswordEncoder(passwordHashing.getAlgorithm(), encoders);
+        delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(encoders.get(BCRYPT_ID));
+        long timeout = TimeUnit.SECONDS.toMillis(passwordHashing.getTimeoutSeconds());
+        return new BoundedPasswordEncoder(delegatingPasswordEncoder, passwordHashingExecutor, timeout, meterRegistry);
+    }
+
+    private int bcryptStrength(ApplicationProperties.Security.PasswordHashing passwordHashing) {
+        if (passwordHashing.getStrength() != null) {
+            return passwordHashing.getStrength();
+        }
+        if (!BCRYPT_ID.equals(passwordHashing.getAlgorithm())) {
+            // BCrypt is only used to match the existing hashes, which are re-encoded whatever their strength
+            return passwordHashing.getMinStrength();
+        }
+        return BCryptStrengthCalibrator.calibrate(
+            passwordHashing.getCpuBudgetMillis(),
+            passwordHashing.getMinStrength(),
+            passwordHashing.getMaxStrength()
+        );
     }
 
     @Override
@@ -0,0 +1,118 @@
+package com.jmdev.crazypic.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import jdk.jfr.EventSettings;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times the virtual threads which block while pinned to their carrier thread, from the {@code jdk.VirtualThreadPinned}
+ * events of a JFR recording streamed in the application.
+ * <p>
+ * Only the threads pinned longer than {@code application.task-execution.virtual-threads.pinned-threshold} are recorded,
+ * and logged in debug with the frame of the application which pinned them. The {@code jdk.tracePinnedThreads} trace
+ * only prints them to the standard output.
+ * <p>
+ * The application is compiled for Java 11, so the {@code RecordingStream} of Java 14 is reached by reflection, as the
+ * {@link VirtualThreads}: nothing is recorded on a runtime without virtual threads.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.task-execution.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    public static final String PINNED_METER_NAME = "jvm.threads.virtual.pinned";
+    public static final String PINNED_METER_DESCRIPTION = "Times the virtual threads which blocked while pinned to their carrier thread.";
+
+    private static final String PINNED_EVENT_NAME = "jdk.VirtualThreadPinned";
+
+    private static final String RECORDING_STREAM_CLASS_NAME = "jdk.jfr.consumer.RecordingStream";
+
+    private static final String APPLICATION_PACKAGE = "com.jmdev.crazypic.";
+
+    private final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private final Duration threshold;
+
+    private final Timer pinned;
+
+    private AutoCloseable recordingStream;
+
+    public VirtualThreadPinningMonitor(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.threshold = applicationProperties.getTaskExecution().getVirtualThreads().getPinnedThreshold();
+        this.pinned = Timer.builder(PINNED_METER_NAME).description(PINNED_METER_DESCRIPTION).register(meterRegistry);
+    }
+
+    /**
+     * Start streaming the {@code jdk.VirtualThreadPinned} events, when the runtime supports virtual threads.
+     *
+     * @return whether the events are streamed.
+     */
+    @PostConstruct
+    public synchronized boolean start() {
+        if (recordingStream != null) {
+            return true;
+        }
+        if (!VirtualThreads.isSupported()) {
+            log.debug("Virtual threads are not supported by Java {}, their pinning is not recorded", Runtime.version());
+            return false;
+        }
+        try {
+            Class<?> recordingStreamClass = Class.forName(RECORDING_STREAM_CLASS_NAME);
+            AutoCloseable stream = (AutoCloseable) recordingStreamClass.getConstructor().newInstance();
+            EventSettings settings = (EventSettings) recordingStreamClass
+                .getMethod("enable", String.class)
+                .invoke(stream, PINNED_EVENT_NAME);
+            settings.withThreshold(threshold).withStackTrace();
+            Consumer<RecordedEvent> handler = this::record;
+            recordingStreamClass.getMethod("onEvent", String.class, Consumer.class).invoke(stream, PINNED_EVENT_NAME, handler);
+            recordingStreamClass.getMethod("startAsync").invoke(stream);
+            recordingStream = stream;
+            log.info("Recording the virtual threads pinned longer than {}", threshold);
+            return true;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not record the " + PINNED_EVENT_NAME + " events", e);
+        }
+    }
+
+    /**
+     * Stop streaming the events.
+     */
+    @PreDestroy
+    public synchronized void stop() throws Exception {
+        if (recordingStream != null) {
+            recordingStream.close();
+            recordingStream = null;
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        if (log.isDebugEnabled()) {
+            log.debug("Virtual thread pinned for {} at {}", event.getDuration(), pinningFrame(event.getStackTrace()));
+        }
+    }
+
+    private static String pinningFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "an unknown frame";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        RecordedFrame frame = frames
+            .stream()
+            .filter(candidate -> candidate.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE))
+            .findFirst()
+            .orElse(frames.get(0));
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,81 @@
+package com.jmdev.crazypic.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the executors starting a virtual thread per task, when the runtime supports them.
+ * <p>
+ * The application is compiled for Java 11, so the virtual threads of Java 21 are reached by reflection: on an older
+ * runtime, or on a runtime where they are a preview feature which is not enabled, no executor is created and the
+ * callers keep their platform threads.
+ */
+public final class VirtualThreads {
+
+    /**
+     * System property of the JDK printing the stack trace of a virtual thread which blocks while pinned to its carrier.
+     */
+    public static final String TRACE_PINNED_THREADS_PROPERTY = "jdk.tracePinnedThreads";
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private VirtualThreads() {}
+
+    /**
+     * @return whether the runtime starts virtual threads.
+     */
+    public static boolean isSupported() {
+        return virtualThreadFactory("crazy-pic-virtual-probe-").isPresent();
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread for each task.
+     *
+     * @param threadNamePrefix the prefix of the names of the threads, followed by their number.
+     * @param tracePinnedThreads how to report the virtual threads blocking while pinned to their carrier. It is only
+     * read by the JDK before its first virtual thread is started.
+     * @return the executor, or an empty optional when the runtime does not support virtual threads.
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(
+        String threadNamePrefix,
+        ApplicationProperties.TaskExecution.VirtualThreads.PinnedThreadsTrace tracePinnedThreads
+    ) {
+        if (tracePinnedThreads != ApplicationProperties.TaskExecution.VirtualThreads.PinnedThreadsTrace.NONE) {
+            System.setProperty(TRACE_PINNED_THREADS_PROPERTY, tracePinnedThreads.name().toLowerCase());
+        }
+        return virtualThreadFactory(threadNamePrefix).map(VirtualThreads::newThreadPerTaskExecutor);
+    }
+
+    private static Optional<ThreadFactory> virtualThreadFactory(String threadNamePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 1L);
+            return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            log.debug("Virtual threads are not available in Java {}", Runtime.version());
+            return Optional.empty();
+        } catch (InvocationTargetException e) {
+            // the preview virtual threads of Java 19 and 20 throw an UnsupportedOperationException when not enabled
+            log.debug("Virtual threads are not enabled in Java {}: {}", Runtime.version(), e.getCause().toString());
+            return Optional.empty();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not create the virtual thread factory", e);
+        }
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+}
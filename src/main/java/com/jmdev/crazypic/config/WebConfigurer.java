@@ -5,9 +5,14 @@ import static java.net.URLDecoder.decode;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
 import javax.servlet.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
 import org.springframework.boot.web.server.*;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
@@ -28,15 +33,24 @@ import tech.jhipster.config.JHipsterProperties;
 @Configuration
 public class WebConfigurer implements ServletContextInitializer, WebServerFactoryCustomizer<WebServerFactory> {
 
+    public static final String REQUEST_THREAD_NAME_PREFIX = "crazy-pic-request-";
+
+    private static final long REQUEST_EXECUTOR_TERMINATION_SECONDS = 10;
+
     private final Logger log = LoggerFactory.getLogger(WebConfigurer.class);
 
     private final Environment env;
 
     private final JHipsterProperties jHipsterProperties;
 
-    public WebConfigurer(Environment env, JHipsterProperties jHipsterProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    private ExecutorService requestExecutor;
+
+    public WebConfigurer(Environment env, JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         this.env = env;
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -49,12 +63,53 @@ public class WebConfigurer implements ServletContextInitializer, WebServerFactor
     }
 
     /**
-     * Customize the Servlet engine: Mime types, the document root, the cache.
+     * Customize the Servlet engine: Mime types, the document root, the cache, the threads handling the requests.
      */
     @Override
     public void customize(WebServerFactory server) {
         // When running in an IDE or with ./gradlew bootRun, set location of the static web assets.
         setLocationForStaticAssets(server);
+        setExecutorForRequests(server);
+    }
+
+    /**
+     * With {@code application.task-execution.virtual-threads.enabled}, Undertow dispatches each request to a virtual
+     * thread of its own, when the runtime supports them, instead of one of its worker threads. Its IO threads are kept.
+     */
+    private void setExecutorForRequests(WebServerFactory server) {
+        ApplicationProperties.TaskExecution.VirtualThreads virtualThreads = applicationProperties.getTaskExecution().getVirtualThreads();
+        if (server instanceof UndertowServletWebServerFactory && virtualThreads.isEnabled()) {
+            Optional<ExecutorService> executor = VirtualThreads.newThreadPerTaskExecutor(
+                REQUEST_THREAD_NAME_PREFIX,
+                virtualThreads.getTracePinnedThreads()
+            );
+            if (executor.isPresent()) {
+                log.info("Dispatching the requests to virtual threads");
+                requestExecutor = executor.get();
+                UndertowServletWebServerFactory undertow = (UndertowServletWebServerFactory) server;
+                undertow.addDeploymentInfoCustomizers(deploymentInfo -> deploymentInfo.setExecutor(requestExecutor));
+            } else {
+                log.warn("Virtual threads are not supported by Java {}, the requests are handled by the worker threads", Runtime.version());
+            }
+        }
+    }
+
+    /**
+     * Shut down the executor of the virtual threads handling the requests, which Undertow does not manage.
+     * <p>
+     * The web server is stopped before the beans are destroyed, so the requests left are those still running after the
+     * graceful shutdown: they are given {@value #REQUEST_EXECUTOR_TERMINATION_SECONDS} seconds, then interrupted.
+     */
+    @PreDestroy
+    public void shutdownRequestExecutor() throws InterruptedException {
+        if (requestExecutor == null) {
+            return;
+        }
+        requestExecutor.shutdown();
+        if (!requestExecutor.awaitTermination(REQUEST_EXECUTOR_TERMINATION_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Interrupting the requests still running after {} seconds", REQUEST_EXECUTOR_TERMINATION_SECONDS);
+            requestExecutor.shutdownNow();
+        }
     }
 
     private void setLocationForStaticAssets(WebServerFactory server) {
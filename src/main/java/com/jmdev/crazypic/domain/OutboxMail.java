@@ -0,0 +1,165 @@
+package com.jmdev.crazypic.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import org.hibernate.annotations.Type;
+
+/**
+ * A rendered mail waiting in the outbox to be sent.
+ * <p>
+ * A mail is written in the transaction of the change it notifies, and deleted once sent. A mail which could not be
+ * sent is retried at its {@code nextAttemptDate}, which is cleared once it is given up.
+ */
+@Entity
+@Table(name = "mail_outbox")
+public class OutboxMail implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Size(max = 254)
+    @Column(length = 254, nullable = false)
+    private String recipient;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(length = 255, nullable = false)
+    private String subject;
+
+    @NotNull
+    @Lob
+    @Type(type = "org.hibernate.type.TextType")
+    @Column(nullable = false)
+    private String content;
+
+    @Column(nullable = false)
+    private boolean multipart;
+
+    @Column(nullable = false)
+    private boolean html;
+
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate = Instant.now();
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_date")
+    private Instant nextAttemptDate = createdDate;
+
+    @Size(max = 512)
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public boolean isMultipart() {
+        return multipart;
+    }
+
+    public void setMultipart(boolean multipart) {
+        this.multipart = multipart;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    public void setHtml(boolean html) {
+        this.html = html;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * @return the date of the next attempt to send the mail, {@code null} if it was given up.
+     */
+    public Instant getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(Instant nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OutboxMail)) {
+            return false;
+        }
+        return id != null && id.equals(((OutboxMail) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "OutboxMail{" +
+            "id=" + id +
+            ", recipient='" + recipient + '\'' +
+            ", subject='" + subject + '\'' +
+            ", attempts=" + attempts +
+            ", nextAttemptDate=" + nextAttemptDate +
+            "}";
+    }
+}
@@ -2,6 +2,7 @@ package com.jmdev.crazypic.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.jmdev.crazypic.config.Constants;
+import com.jmdev.crazypic.repository.UserIdentityListener;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.HashSet;
@@ -22,6 +23,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
  */
 @Entity
 @Table(name = "jhi_user")
+@EntityListeners(UserIdentityListener.class)
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class User extends AbstractAuditingEntity implements Serializable {
 
@@ -40,8 +42,9 @@ public class User extends AbstractAuditingEntity implements Serializable {
 
     @JsonIgnore
     @NotNull
-    @Size(min = 60, max = 60)
-    @Column(name = "password_hash", length = 60, nullable = false)
+    // the unusable hash of the users without password is shorter than those of the encoders
+    @Size(max = 128)
+    @Column(name = "password_hash", length = 128, nullable = false)
     private String password;
 
     @Size(max = 50)
@@ -93,6 +96,16 @@ public class User extends AbstractAuditingEntity implements Serializable {
     @BatchSize(size = 20)
     private Set<Authority> authorities = new HashSet<>();
 
+    /**
+     * Incremented on every update, including the updates of the authorities only.
+     * <p>
+     * Hibernate also checks it to detect the concurrent updates: the {@code UserService} retries its writes on them.
+     */
+    @JsonIgnore
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     public Long getId() {
         return id;
     }
@@ -198,6 +211,10 @@ public class User extends AbstractAuditingEntity implements Serializable {
         this.authorities = authorities;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,302 @@
+package com.jmdev.crazypic.management;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.ehcache.config.ResourcePool;
+import org.ehcache.config.ResourcePools;
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.SizedResourcePool;
+import org.ehcache.core.internal.statistics.DefaultTierStatistics;
+import org.ehcache.core.internal.statistics.StatsUtils;
+import org.ehcache.core.statistics.TierStatistics;
+import org.ehcache.sizeof.SizeOf;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint describing the Ehcache regions: their tiers, and their statistics, as bound to Micrometer by Spring
+ * Boot since {@link com.jmdev.crazypic.config.CacheConfiguration} enables them.
+ * <p>
+ * The usage of each tier, its mappings and the bytes they occupy, is read from the tier statistics registered by the
+ * {@code StatisticsService} of Ehcache. The JCache cache manager does not expose that service, so the endpoint reads
+ * them as its {@code CacheStatistics} do, through a {@link DefaultTierStatistics} of each tier of the region.
+ * <p>
+ * The details of a single region also sample its first {@value #SAMPLE_SIZE} entries, without iterating over the rest
+ * of the region, to estimate their average deep size and list the largest of them. Ehcache counts every entry iterated
+ * over as a hit, so the statistics are read beforehand, and the regions are only sampled when asked one by one: each
+ * such request counts at most {@value #SAMPLE_SIZE} hits. The keys of the sampled entries, such as logins and emails,
+ * are only listed as hashes keyed by a secret of this instance.
+ */
+@Component
+@Endpoint(id = "cacheregions")
+public class CacheRegionsEndpoint {
+
+    static final int SAMPLE_SIZE = 100;
+
+    private static final int TOP_KEYS = 10;
+
+    // the names of the tiers in the statistics, by those of their resource types
+    private static final Map<String, String> TIER_NAMES = Map.of("OnHeap", "heap", "OffHeap", "offheap", "Disk", "disk");
+
+    private static final String KEY_HASH_ALGORITHM = "HmacSHA256";
+
+    // characters of the Base64 encoded key hashes, enough to tell the sampled keys apart
+    private static final int KEY_HASH_LENGTH = 16;
+
+    private final CacheManager cacheManager;
+
+    private final MeterRegistry meterRegistry;
+
+    private final SizeOf sizeOf = SizeOf.newInstance();
+
+    private final SecretKeySpec keyHashSecret;
+
+    public CacheRegionsEndpoint(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.keyHashSecret = new SecretKeySpec(secret, KEY_HASH_ALGORITHM);
+    }
+
+    @ReadOperation
+    public Map<String, CacheRegion> regions() {
+        Map<String, CacheRegion> regions = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            regions.put(name, describe(name, false));
+        }
+        return regions;
+    }
+
+    @ReadOperation
+    public CacheRegion region(@Selector String name) {
+        return StreamSupport.stream(cacheManager.getCacheNames().spliterator(), false).anyMatch(name::equals) ? describe(name, true) : null;
+    }
+
+    private CacheRegion describe(String name, boolean sampled) {
+        Cache<Object, Object> cache = cacheManager.getCache(name);
+        CacheRegion region = new CacheRegion();
+        org.ehcache.Cache<?, ?> ehcache = cache.unwrap(org.ehcache.Cache.class);
+        ResourcePools pools = ehcache.getRuntimeConfiguration().getResourcePools();
+        for (ResourceType<?> type : pools.getResourceTypeSet()) {
+            ResourcePool pool = pools.getPoolForResource(type);
+            if (pool instanceof SizedResourcePool) {
+                SizedResourcePool sizedPool = (SizedResourcePool) pool;
+                region.tiers.put(type.toString().toLowerCase(Locale.ROOT), sizedPool.getSize() + " " + sizedPool.getUnit());
+            }
+        }
+        for (String tier : StatsUtils.findTiers(ehcache)) {
+            TierStatistics statistics = new DefaultTierStatistics(ehcache, tier);
+            region.tierUsage.put(
+                TIER_NAMES.getOrDefault(tier, tier.toLowerCase(Locale.ROOT)),
+                new TierUsage(statistics.getMappings(), statistics.getOccupiedByteSize())
+            );
+        }
+        region.hits = count("cache.gets", name, "hit");
+        region.misses = count("cache.gets", name, "miss");
+        region.puts = count("cache.puts", name, null);
+        region.removals = count("cache.removals", name, null);
+        region.evictions = count("cache.evictions", name, null);
+        double gets = region.hits + region.misses;
+        region.hitRatio = gets > 0 ? region.hits / gets : Double.NaN;
+        if (!sampled) {
+            return region;
+        }
+
+        Mac keyHash = keyHash();
+        List<SampledEntry> sample = new ArrayList<>();
+        for (org.ehcache.Cache.Entry<?, ?> entry : ehcache) {
+            byte[] hash = keyHash.doFinal(String.valueOf(entry.getKey()).getBytes(StandardCharsets.UTF_8));
+            String encodedHash = Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, KEY_HASH_LENGTH);
+            sample.add(new SampledEntry(encodedHash, sizeOf.deepSizeOf(entry.getKey(), entry.getValue())));
+            if (sample.size() == SAMPLE_SIZE) {
+                break;
+            }
+        }
+        region.sampledEntries = sample.size();
+        long sampledBytes = sample.stream().mapToLong(SampledEntry::getEstimatedBytes).sum();
+        region.estimatedBytesPerEntry = sample.isEmpty() ? 0 : sampledBytes / sample.size();
+        region.topKeys =
+            sample
+                .stream()
+                .sorted(Comparator.comparingLong(SampledEntry::getEstimatedBytes).reversed())
+                .limit(TOP_KEYS)
+                .collect(Collectors.toList());
+        return region;
+    }
+
+    private Mac keyHash() {
+        try {
+            Mac mac = Mac.getInstance(KEY_HASH_ALGORITHM);
+            mac.init(keyHashSecret);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not hash the cache keys", e);
+        }
+    }
+
+    private double count(String meterName, String cacheName, String result) {
+        FunctionCounter counter = meterRegistry
+            .find(meterName)
+            .tag("cache", cacheName)
+            .tags(result != null ? new String[] { "result", result } : new String[0])
+            .functionCounter();
+        return counter != null ? counter.count() : Double.NaN;
+    }
+
+    /**
+     * Description of a cache region.
+     */
+    public static class CacheRegion {
+
+        private final Map<String, String> tiers = new LinkedHashMap<>();
+
+        private final Map<String, TierUsage> tierUsage = new LinkedHashMap<>();
+
+        private Integer sampledEntries;
+
+        private Long estimatedBytesPerEntry;
+
+        private double hits;
+
+        private double misses;
+
+        private double hitRatio;
+
+        private double puts;
+
+        private double removals;
+
+        private double evictions;
+
+        private List<SampledEntry> topKeys;
+
+        public Map<String, String> getTiers() {
+            return tiers;
+        }
+
+        /**
+         * @return the usage of each tier, by the name of its resource type, as in the {@link #getTiers()}.
+         */
+        public Map<String, TierUsage> getTierUsage() {
+            return tierUsage;
+        }
+
+        /**
+         * @return the number of sampled entries, at most {@value #SAMPLE_SIZE}, {@code null} unless the region alone is
+         * described.
+         */
+        public Integer getSampledEntries() {
+            return sampledEntries;
+        }
+
+        /**
+         * @return the average deep size of the sampled entries, {@code null} unless the region alone is described.
+         */
+        public Long getEstimatedBytesPerEntry() {
+            return estimatedBytesPerEntry;
+        }
+
+        public double getHits() {
+            return hits;
+        }
+
+        public double getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            return hitRatio;
+        }
+
+        public double getPuts() {
+            return puts;
+        }
+
+        public double getRemovals() {
+            return removals;
+        }
+
+        public double getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * @return the largest of the sampled entries, {@code null} unless the region alone is described.
+         */
+        public List<SampledEntry> getTopKeys() {
+            return topKeys;
+        }
+    }
+
+    /**
+     * Usage of a tier of a cache region, from its statistics.
+     */
+    public static class TierUsage {
+
+        private final long mappings;
+
+        private final long occupiedBytes;
+
+        TierUsage(long mappings, long occupiedBytes) {
+            this.mappings = mappings;
+            this.occupiedBytes = occupiedBytes;
+        }
+
+        public long getMappings() {
+            return mappings;
+        }
+
+        /**
+         * @return the bytes occupied by the mappings, {@code -1} if the tier does not measure them, as a heap tier sized
+         * in entries.
+         */
+        public long getOccupiedBytes() {
+            return occupiedBytes;
+        }
+    }
+
+    /**
+     * Sampled entry of a cache region.
+     */
+    public static class SampledEntry {
+
+        private final String keyHash;
+
+        private final long estimatedBytes;
+
+        SampledEntry(String keyHash, long estimatedBytes) {
+            this.keyHash = keyHash;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        /**
+         * @return the hash of the key, which is the same for the same key until this instance is restarted.
+         */
+        public String getKeyHash() {
+            return keyHash;
+        }
+
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+    }
+}
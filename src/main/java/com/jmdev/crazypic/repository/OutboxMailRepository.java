@@ -0,0 +1,30 @@
+package com.jmdev.crazypic.repository;
+
+import com.jmdev.crazypic.domain.OutboxMail;
+import java.time.Instant;
+import java.util.List;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import org.hibernate.LockOptions;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link OutboxMail} entity.
+ */
+@Repository
+public interface OutboxMailRepository extends JpaRepository<OutboxMail, Long> {
+    /**
+     * Lock the mails due at a date, in the order of their next attempt.
+     * <p>
+     * The mails locked by another transaction are skipped, so that the instances dispatch distinct mails. H2 does not
+     * skip them, and waits for the other transaction instead.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JPA_LOCK_TIMEOUT, value = "" + LockOptions.SKIP_LOCKED))
+    List<OutboxMail> findByNextAttemptDateLessThanEqualOrderByNextAttemptDate(Instant dateTime, Pageable pageable);
+}
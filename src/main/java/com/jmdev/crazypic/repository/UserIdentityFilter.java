@@ -0,0 +1,295 @@
+package com.jmdev.crazypic.repository;
+
+import com.jmdev.crazypic.cache.CacheInvalidationBus;
+import com.jmdev.crazypic.cache.CacheInvalidationHandler;
+import com.jmdev.crazypic.config.ApplicationProperties;
+import com.jmdev.crazypic.domain.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Bloom filter over the logins and emails of the users, short-circuiting the lookups of unknown ones.
+ * <p>
+ * The filter is built from the {@code jhi_user} table once the application is ready, then rebuilt periodically to
+ * forget the deleted users. Every user saved by this instance is added as soon as it is saved by the
+ * {@link UserIdentityListener}, and published once committed in the {@value #IDENTITIES_REGION} region of the
+ * {@link CacheInvalidationBus}, so that the other instances add it too. The users added since the start of the previous
+ * build are also added to the next filter before it replaces the current one: those saved while it is read from the
+ * table, or saved before but committed after, are not missed.
+ * <p>
+ * The filter only proves an identity unknown while it is in sync with the other instances: until its first build, and
+ * from a possible loss of the bus messages until the next build, every lookup goes to the database. Without transport
+ * of the bus, the users saved by the other instances would never be added, so the filter is not used at all.
+ * <p>
+ * Lookups are counted in the {@value #LOOKUPS_METER_NAME} meter, by identity and by result: {@code rejected} when the
+ * filter proves the identity unknown, {@code found} when the database finds it, {@code false-positive} when the
+ * filter lets through an identity the database does not know, and {@code bypassed} when the filter is not in sync. The
+ * false positive rate is the ratio of {@code false-positive} to {@code false-positive} plus {@code rejected}.
+ */
+@Component
+public class UserIdentityFilter {
+
+    public static final String LOOKUPS_METER_NAME = "user.identity-filter.lookups";
+    public static final String LOOKUPS_METER_DESCRIPTION = "Indicates count of the user lookups, by result of the identity filter.";
+    public static final String LOOKUPS_METER_BASE_UNIT = "lookups";
+    public static final String EXPECTED_FPP_METER_NAME = "user.identity-filter.expected-false-positive-probability";
+    public static final String IDENTITIES_REGION = "user-identity-filter";
+
+    private static final String LOGIN_PREFIX = "login:";
+    private static final String EMAIL_PREFIX = "email:";
+
+    private final Logger log = LoggerFactory.getLogger(UserIdentityFilter.class);
+
+    private final UserRepository userRepository;
+
+    private final ApplicationProperties.UserIdentityFilter properties;
+
+    private final Lookups loginLookups;
+
+    private final Lookups emailLookups;
+
+    private final boolean active;
+
+    private volatile StringBloomFilter filter;
+
+    // guards the recording of the added identities, and the replacement of the filter by the next build
+    private final Object addLock = new Object();
+
+    // the identities added since the start of the last build, and during the build before, all added to the next filter
+    private Set<String> added = new HashSet<>();
+
+    private Set<String> addedBefore = new HashSet<>();
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final AtomicLong losses = new AtomicLong();
+
+    // the losses counted when the last build started, the filter being in sync as long as there is no other
+    private volatile long lossesAtBuild = -1;
+
+    public UserIdentityFilter(
+        UserRepository userRepository,
+        ApplicationProperties applicationProperties,
+        CacheInvalidationBus cacheInvalidationBus,
+        MeterRegistry registry
+    ) {
+        this.userRepository = userRepository;
+        this.properties = applicationProperties.getUserIdentityFilter();
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.active = properties.isEnabled() && cacheInvalidationBus.hasTransport();
+        if (properties.isEnabled() && !active) {
+            log.info("The user identity filter is not used, as no cache invalidation transport shares the users saved elsewhere");
+        }
+        this.loginLookups = new Lookups("login", registry);
+        this.emailLookups = new Lookups("email", registry);
+        Gauge
+            .builder(EXPECTED_FPP_METER_NAME, this, UserIdentityFilter::expectedFalsePositiveProbability)
+            .description("Indicates the false positive probability of the identity filter, estimated from its fill ratio.")
+            .register(registry);
+        cacheInvalidationBus.register(
+            IDENTITIES_REGION,
+            new CacheInvalidationHandler() {
+                @Override
+                public void evict(Long id) {
+                    addSavedElsewhere(id);
+                }
+
+                @Override
+                public void clear() {
+                    onMessagesLost();
+                }
+            }
+        );
+    }
+
+    /**
+     * Look a user up by login, unless the filter proves the login unknown.
+     *
+     * @param login the login.
+     * @param finder the database lookup.
+     * @param <T> the type of the result.
+     * @return the result of the database lookup, or empty if the login is unknown.
+     */
+    public <T> Optional<T> findByLogin(String login, Function<String, Optional<T>> finder) {
+        return find(LOGIN_PREFIX, login, finder, loginLookups);
+    }
+
+    /**
+     * Look a user up by email, unless the filter proves the email unknown.
+     *
+     * @param email the email, in any case.
+     * @param finder the database lookup.
+     * @param <T> the type of the result.
+     * @return the result of the database lookup, or empty if the email is unknown.
+     */
+    public <T> Optional<T> findByEmail(String email, Function<String, Optional<T>> finder) {
+        return find(EMAIL_PREFIX, email, finder, emailLookups);
+    }
+
+    /**
+     * Add the login and the email of a user to the filter.
+     *
+     * @param user the saved user.
+     */
+    public void add(User user) {
+        if (!active) {
+            return;
+        }
+        List<String> identities = identities(user.getLogin(), user.getEmail());
+        synchronized (addLock) {
+            added.addAll(identities);
+            StringBloomFilter current = filter;
+            if (current != null) {
+                identities.forEach(current::put);
+            }
+        }
+    }
+
+    /**
+     * Publish a user saved by this instance to the other instances, once the current transaction if any is committed.
+     *
+     * @param user the saved user.
+     */
+    public void publish(User user) {
+        cacheInvalidationBus.publish(IDENTITIES_REGION, user.getId());
+    }
+
+    /**
+     * Checks if the filter can prove identities unknown, being built and in sync with the other instances.
+     *
+     * @return true if it can, false otherwise.
+     */
+    public boolean isSynced() {
+        return filter != null && lossesAtBuild == losses.get();
+    }
+
+    void addSavedElsewhere(Long id) {
+        // a user saved by another instance, which is no longer unknown here
+        userRepository.findById(id).ifPresent(this::add);
+    }
+
+    void onMessagesLost() {
+        // users saved elsewhere may be missing until the next build
+        losses.incrementAndGet();
+    }
+
+    /**
+     * Rebuild the filter from the database.
+     * <p>
+     * This is scheduled to get fired once the application is ready, then every {@code rebuild-interval}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+        fixedDelayString = "${application.user-identity-filter.rebuild-interval:PT10M}",
+        initialDelayString = "${application.user-identity-filter.rebuild-interval:PT10M}"
+    )
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!active) {
+            return;
+        }
+        long lossesAtStart = losses.get();
+        synchronized (addLock) {
+            addedBefore = added;
+            added = new HashSet<>();
+        }
+        long userCount = userRepository.count();
+        // logins and emails share the filter, which keeps room for the users created until the next build
+        long expectedInsertions = 2 * Math.max(properties.getExpectedUsers(), userCount * 2);
+        StringBloomFilter next = new StringBloomFilter(expectedInsertions, properties.getFalsePositiveProbability());
+        try (Stream<String> logins = userRepository.streamAllLogins()) {
+            logins.forEach(login -> identities(login, null).forEach(next::put));
+        }
+        try (Stream<String> emails = userRepository.streamAllEmails()) {
+            emails.forEach(email -> identities(null, email).forEach(next::put));
+        }
+        synchronized (addLock) {
+            // the users saved during the build, or before and committed during it, may be missing from the table read
+            addedBefore.forEach(next::put);
+            added.forEach(next::put);
+            filter = next;
+        }
+        // the users saved elsewhere during the build are added by their messages, unless some were lost meanwhile
+        lossesAtBuild = lossesAtStart;
+        log.debug("Rebuilt the user identity filter for {} users", userCount);
+    }
+
+    private <T> Optional<T> find(String prefix, String identity, Function<String, Optional<T>> finder, Lookups lookups) {
+        StringBloomFilter current = filter;
+        if (current == null || identity == null) {
+            return finder.apply(identity);
+        }
+        if (lossesAtBuild != losses.get()) {
+            lookups.bypassed.increment();
+            return finder.apply(identity);
+        }
+        if (!current.mightContain(prefix + identity.toLowerCase(Locale.ENGLISH))) {
+            lookups.rejected.increment();
+            return Optional.empty();
+        }
+        Optional<T> result = finder.apply(identity);
+        (result.isPresent() ? lookups.found : lookups.falsePositive).increment();
+        return result;
+    }
+
+    private static List<String> identities(String login, String email) {
+        List<String> identities = new ArrayList<>(2);
+        if (login != null) {
+            identities.add(LOGIN_PREFIX + login.toLowerCase(Locale.ENGLISH));
+        }
+        if (email != null) {
+            identities.add(EMAIL_PREFIX + email.toLowerCase(Locale.ENGLISH));
+        }
+        return identities;
+    }
+
+    private double expectedFalsePositiveProbability() {
+        StringBloomFilter current = filter;
+        return current != null ? current.expectedFalsePositiveProbability() : Double.NaN;
+    }
+
+    private static final class Lookups {
+
+        private final Counter rejected;
+
+        private final Counter found;
+
+        private final Counter falsePositive;
+
+        private final Counter bypassed;
+
+        private Lookups(String identity, MeterRegistry registry) {
+            this.rejected = counter(identity, "rejected", registry);
+            this.found = counter(identity, "found", registry);
+            this.falsePositive = counter(identity, "false-positive", registry);
+            this.bypassed = counter(identity, "bypassed", registry);
+        }
+
+        private static Counter counter(String identity, String result, MeterRegistry registry) {
+            return Counter
+                .builder(LOOKUPS_METER_NAME)
+                .baseUnit(LOOKUPS_METER_BASE_UNIT)
+                .description(LOOKUPS_METER_DESCRIPTION)
+                .tag("identity", identity)
+                .tag("result", result)
+                .register(registry);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.jmdev.crazypic.repository;
+
+import com.jmdev.crazypic.domain.User;
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Entity listener adding every saved {@link User} to the {@link UserIdentityFilter}.
+ * <p>
+ * Users are added before being written, so that a lookup following a save in the same transaction finds them, and
+ * published to the other instances once written, when they have an id. It is created by Spring, and gets the filter
+ * lazily as the entity manager factory is built before it.
+ */
+public class UserIdentityListener {
+
+    private final ObjectProvider<UserIdentityFilter> userIdentityFilter;
+
+    public UserIdentityListener(ObjectProvider<UserIdentityFilter> userIdentityFilter) {
+        this.userIdentityFilter = userIdentityFilter;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void onSave(User user) {
+        userIdentityFilter.ifAvailable(filter -> filter.add(user));
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(User user) {
+        userIdentityFilter.ifAvailable(filter -> filter.publish(user));
+    }
+}
@@ -0,0 +1,23 @@
+package com.jmdev.crazypic.repository;
+
+import com.jmdev.crazypic.domain.User;
+import java.util.List;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Keyset pagination of the {@link User} entity: each page is sought from the sort key of the last user of the previous
+ * page, instead of skipping the users of all the previous pages.
+ */
+public interface UserKeysetRepository {
+    /**
+     * Get the users following a sort key.
+     *
+     * @param activatedOnly whether only the activated users are returned.
+     * @param sort the sort, by properties which cannot be {@code null}, ending with a unique property.
+     * @param after the values of the sort properties of the last user of the previous page, {@code null} for the first page.
+     * @param limit the maximum number of users.
+     * @return the users.
+     * @throws IllegalArgumentException if the sort is by an optional property.
+     */
+    List<User> findAllAfter(boolean activatedOnly, Sort sort, List<Object> after, int limit);
+}
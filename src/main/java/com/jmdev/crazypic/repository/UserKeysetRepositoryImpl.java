@@ -0,0 +1,99 @@
+package com.jmdev.crazypic.repository;
+
+import com.jmdev.crazypic.domain.User;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Criteria API implementation of the {@link UserKeysetRepository}.
+ * <p>
+ * The sort properties are compared as they are, without expression, so that the seek predicate can use an index on the
+ * first of them. That predicate is nested, {@code k1 >= v1 and (k1 > v1 or (k1 = v1 and (k2 > v2 or ...)))}, its
+ * redundant leading bound being the range of the index scan.
+ */
+public class UserKeysetRepositoryImpl implements UserKeysetRepository {
+
+    private final EntityManager entityManager;
+
+    public UserKeysetRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<User> findAllAfter(boolean activatedOnly, Sort sort, List<Object> after, int limit) {
+        List<Sort.Order> orders = sort.toList();
+        if (after != null && after.size() != orders.size()) {
+            throw new IllegalArgumentException("Expected " + orders.size() + " sort key values, got " + after.size());
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> user = query.from(User.class);
+
+        List<Predicate> restrictions = new ArrayList<>();
+        if (activatedOnly) {
+            restrictions.add(cb.isTrue(user.get("activated")));
+        }
+        List<Order> orderBy = new ArrayList<>();
+        List<Expression<Comparable<Object>>> keys = new ArrayList<>();
+        for (Sort.Order order : orders) {
+            SingularAttribute<? super User, ?> attribute = entityManager
+                .getMetamodel()
+                .entity(User.class)
+                .getSingularAttribute(order.getProperty());
+            if (attribute.isOptional()) {
+                throw new IllegalArgumentException("Cannot sort by the optional property " + attribute.getName());
+            }
+            Expression<Comparable<Object>> key = key(user.get(attribute.getName()));
+            keys.add(key);
+            orderBy.add(order.isAscending() ? cb.asc(key) : cb.desc(key));
+        }
+        if (after != null) {
+            Comparable<Object> first = comparable(after.get(0));
+            restrictions.add(
+                orders.get(0).isAscending() ? cb.greaterThanOrEqualTo(keys.get(0), first) : cb.lessThanOrEqualTo(keys.get(0), first)
+            );
+            restrictions.add(seek(cb, orders, keys, after, 0));
+        }
+        query.select(user).where(restrictions.toArray(new Predicate[0])).orderBy(orderBy);
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static Predicate seek(
+        CriteriaBuilder cb,
+        List<Sort.Order> orders,
+        List<Expression<Comparable<Object>>> keys,
+        List<Object> after,
+        int i
+    ) {
+        Expression<Comparable<Object>> key = keys.get(i);
+        Comparable<Object> value = comparable(after.get(i));
+        Predicate beyond = orders.get(i).isAscending() ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+        if (i == orders.size() - 1) {
+            return beyond;
+        }
+        return cb.or(beyond, cb.and(cb.equal(key, value), seek(cb, orders, keys, after, i + 1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<Comparable<Object>> key(Path<Object> property) {
+        return (Expression<Comparable<Object>>) (Expression<?>) property;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        if (!(value instanceof Comparable)) {
+            throw new IllegalArgumentException("Not a sort key value: " + value);
+        }
+        return (Comparable<Object>) value;
+    }
+}
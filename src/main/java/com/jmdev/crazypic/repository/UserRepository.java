@@ -1,29 +1,71 @@
 package com.jmdev.crazypic.repository;
 
 import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.service.dto.UserDTO;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import org.springframework.cache.annotation.Cacheable;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * Spring Data JPA repository for the {@link User} entity.
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    String USERS_BY_LOGIN_CACHE = "usersByLogin";
-
-    String USERS_BY_EMAIL_CACHE = "usersByEmail";
+public interface UserRepository extends JpaRepository<User, Long>, UserKeysetRepository {
+    int STREAM_FETCH_SIZE = 500;
 
     Optional<User> findOneByActivationKey(String activationKey);
 
     List<User> findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant dateTime);
 
+    /**
+     * Get and lock the ids of a chunk of the not activated users created before a date, until they are deleted.
+     *
+     * @param dateTime the creation date the users were created before.
+     * @param pageable the chunk size, without sort as the ids are sorted.
+     * @return the ids.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(
+        "select user.id from User user where user.activated = false and user.activationKey is not null" +
+        " and user.createdDate < :dateTime order by user.id"
+    )
+    List<Long> findNotActivatedUserIdsCreatedBefore(@Param("dateTime") Instant dateTime, Pageable pageable);
+
+    /**
+     * Delete the authorities of users, invalidating the second level cache region of the authorities only.
+     *
+     * @param ids the user ids.
+     * @return the number of deleted rows.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES, value = "jhi_user_authority"))
+    @Query(value = "delete from jhi_user_authority where user_id in (:ids)", nativeQuery = true)
+    int deleteAuthoritiesByUserIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Delete users, whose authorities must have been deleted first.
+     *
+     * @param ids the user ids.
+     * @return the number of deleted rows.
+     */
+    @Modifying
+    @Query("delete from User user where user.id in :ids")
+    int deleteUsersByIdIn(@Param("ids") Collection<Long> ids);
+
     Optional<User> findOneByResetKey(String resetKey);
 
     Optional<User> findOneByEmailIgnoreCase(String email);
@@ -31,12 +73,111 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findOneByLogin(String login);
 
     @EntityGraph(attributePaths = "authorities")
-    @Cacheable(cacheNames = USERS_BY_LOGIN_CACHE)
     Optional<User> findOneWithAuthoritiesByLogin(String login);
 
     @EntityGraph(attributePaths = "authorities")
-    @Cacheable(cacheNames = USERS_BY_EMAIL_CACHE)
     Optional<User> findOneWithAuthoritiesByEmailIgnoreCase(String email);
 
     Page<User> findAllByIdNotNullAndActivatedIsTrue(Pageable pageable);
+
+    /**
+     * Get a page of the activated users, with only their public attributes.
+     * <p>
+     * Only the selected columns are read, into DTOs rather than entities: they are neither added to the persistence
+     * context, so not dirty checked, nor put in the second level cache.
+     *
+     * @param pageable the pagination information.
+     * @return the page of the users.
+     */
+    @Query(
+        value = "select new com.jmdev.crazypic.service.dto.UserDTO(user.id, user.login) from User user" +
+        " where user.id is not null and user.activated = true",
+        countQuery = "select count(user) from User user where user.id is not null and user.activated = true"
+    )
+    Page<UserDTO> findAllPublicUsers(Pageable pageable);
+
+    @EntityGraph(attributePaths = "authorities")
+    List<User> findAllWithAuthoritiesByIdIn(Collection<Long> ids);
+
+    /**
+     * Get the id and the version of a user, without loading it.
+     *
+     * @param login the login of the user.
+     * @return the id and the version of the user, or empty if there is no such user.
+     */
+    @Query("select user.id as id, user.version as version from User user where user.login = :login")
+    Optional<IdAndVersion> findIdAndVersionByLogin(@Param("login") String login);
+
+    /**
+     * Get the current versions of users, to check copies of them which may be stale.
+     *
+     * @param ids the user ids.
+     * @return the ids and versions of the users which still exist.
+     */
+    @Query("select user.id as id, user.version as version from User user where user.id in :ids")
+    List<IdAndVersion> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "authorities")
+    List<User> findAllWithAuthoritiesByLoginIn(Collection<String> logins);
+
+    /**
+     * Get the users with some emails, in any case, as {@link #findOneByEmailIgnoreCase(String)} does.
+     *
+     * @param emails the emails, in upper case.
+     * @return the users.
+     */
+    @Query("select user from User user where upper(user.email) in :emails")
+    List<User> findAllByUppercaseEmailIn(@Param("emails") Collection<String> emails);
+
+    /**
+     * Get a page of the activated users modified since a date, from the most recently modified one, after a given user.
+     *
+     * @param since the oldest modification date.
+     * @param afterDate the modification date of the last user of the previous page.
+     * @param afterId the id of the last user of the previous page.
+     * @param pageable the page size, without sort as the users are sorted by modification date then id.
+     * @return the users.
+     */
+    @Query(
+        "select user from User user where user.activated = true and user.lastModifiedDate >= :since" +
+        " and (user.lastModifiedDate < :afterDate or (user.lastModifiedDate = :afterDate and user.id < :afterId))" +
+        " order by user.lastModifiedDate desc, user.id desc"
+    )
+    List<User> findRecentlyModifiedActivatedUsers(
+        @Param("since") Instant since,
+        @Param("afterDate") Instant afterDate,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
+
+    /**
+     * Stream all the users, in the order of their ids, fetched {@value #STREAM_FETCH_SIZE} at a time, as read-only
+     * entities which are not put in the second level cache.
+     *
+     * @return the users, to be consumed in a transaction and closed.
+     */
+    @QueryHints(
+        {
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_MODE, value = "GET"),
+        }
+    )
+    @Query("select user from User user order by user.id")
+    Stream<User> streamAllByOrderById();
+
+    @Query("select user.login from User user")
+    Stream<String> streamAllLogins();
+
+    @Query("select user.email from User user where user.email is not null")
+    Stream<String> streamAllEmails();
+
+    /**
+     * Id and version of a user.
+     */
+    interface IdAndVersion {
+        Long getId();
+
+        long getVersion();
+    }
 }
@@ -0,0 +1,57 @@
+package com.jmdev.crazypic.security;
+
+import java.util.function.IntToLongFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks the BCrypt strength fitting a CPU budget per hash on the current hardware.
+ * <p>
+ * Each additional strength doubles the cost of a hash, so the strengths are measured from the lowest one, and the
+ * calibration stops at the first one exceeding the budget.
+ */
+public final class BCryptStrengthCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private BCryptStrengthCalibrator() {}
+
+    /**
+     * Get the highest strength whose hash takes at most the given budget, measured on the current hardware.
+     *
+     * @param budgetMillis the maximum duration of a hash.
+     * @param minStrength the strength returned if even it exceeds the budget.
+     * @param maxStrength the highest strength measured.
+     * @return the calibrated strength.
+     */
+    public static int calibrate(long budgetMillis, int minStrength, int maxStrength) {
+        // warm up the JIT compiler, so that the lowest strength is not measured too slow
+        new BCryptPasswordEncoder(4).encode(CALIBRATION_PASSWORD);
+        int strength = calibrate(budgetMillis, minStrength, maxStrength, BCryptStrengthCalibrator::measure);
+        log.info("Calibrated BCrypt strength to {} for a budget of {} ms per hash", strength, budgetMillis);
+        return strength;
+    }
+
+    static int calibrate(long budgetMillis, int minStrength, int maxStrength, IntToLongFunction durationInMillis) {
+        int strength = minStrength;
+        while (strength < maxStrength) {
+            long duration = durationInMillis.applyAsLong(strength + 1);
+            log.debug("BCrypt strength {} takes {} ms", strength + 1, duration);
+            if (duration > budgetMillis) {
+                break;
+            }
+            strength++;
+        }
+        return strength;
+    }
+
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
+        encoder.encode(CALIBRATION_PASSWORD);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,183 @@
+package com.jmdev.crazypic.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * {@link PasswordEncoder} running the encoding and the matching of its delegate on a bounded executor.
+ * <p>
+ * Callers running outside of the executor wait for the result, and get a {@link PasswordHashingRejectedException}
+ * straight away if the executor is saturated, or once the timeout is elapsed. Callers already running on the
+ * executor, like the asynchronous login of {@link com.jmdev.crazypic.web.rest.UserJWTController}, use the delegate
+ * directly: the threads of the executor are marked as such by the {@link ThreadFactory} of {@link #newThreadFactory()}.
+ * <p>
+ * The wait of the submitted tasks for a thread of the executor is timed in the {@value #QUEUE_WAIT_METER_NAME} meter,
+ * and the encodings and matchings themselves in the {@value #HASHING_METER_NAME} meter, both by operation.
+ * <p>
+ * BCrypt does not check the interruption of its thread, so the task of a caller which timed out keeps its thread until
+ * the hash is computed: the timeout bounds the wait of the caller, not the use of the executor. The hashing meter still
+ * times those tasks to their end.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    public static final String THREAD_NAME_PREFIX = "crazy-pic-password-";
+
+    public static final String QUEUE_WAIT_METER_NAME = "password.hashing.queue.wait";
+    public static final String QUEUE_WAIT_METER_DESCRIPTION =
+        "Times the wait of the password hashing tasks for a thread of their executor.";
+    public static final String HASHING_METER_NAME = "password.hashing";
+    public static final String HASHING_METER_DESCRIPTION = "Times the encodings and the matchings of passwords.";
+
+    private static final ThreadLocal<Boolean> PASSWORD_HASHING_THREAD = new ThreadLocal<>();
+
+    private final PasswordEncoder delegate;
+
+    private final ExecutorService executor;
+
+    private final long timeoutInMilliseconds;
+
+    private final Timer encodeQueueWait;
+
+    private final Timer matchesQueueWait;
+
+    private final Timer encodeHashing;
+
+    private final Timer matchesHashing;
+
+    public BoundedPasswordEncoder(
+        PasswordEncoder delegate,
+        ExecutorService executor,
+        long timeoutInMilliseconds,
+        MeterRegistry meterRegistry
+    ) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeoutInMilliseconds = timeoutInMilliseconds;
+        this.encodeQueueWait = queueWaitTimer(meterRegistry, "encode");
+        this.matchesQueueWait = queueWaitTimer(meterRegistry, "matches");
+        this.encodeHashing = hashingTimer(meterRegistry, "encode");
+        this.matchesHashing = hashingTimer(meterRegistry, "matches");
+    }
+
+    /**
+     * Gets the timer of the wait of the tasks of an operation for a thread of the password hashing executor, for the
+     * callers which submit their tasks themselves.
+     *
+     * @param meterRegistry the registry of the timer.
+     * @param operation the operation of the tasks.
+     * @return the timer.
+     */
+    public static Timer queueWaitTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer
+            .builder(QUEUE_WAIT_METER_NAME)
+            .description(QUEUE_WAIT_METER_DESCRIPTION)
+            .tag("operation", operation)
+            .register(meterRegistry);
+    }
+
+    private static Timer hashingTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder(HASHING_METER_NAME).description(HASHING_METER_DESCRIPTION).tag("operation", operation).register(meterRegistry);
+    }
+
+    /**
+     * Creates the {@link ThreadFactory} of the password hashing executor, which marks its threads so that the
+     * encodings and matchings they run are not submitted to the executor again.
+     *
+     * @return the thread factory.
+     */
+    public static ThreadFactory newThreadFactory() {
+        return new PasswordHashingThreadFactory();
+    }
+
+    /**
+     * Checks if the current thread belongs to the password hashing executor.
+     *
+     * @return true if it does, false otherwise.
+     */
+    public static boolean isPasswordHashingThread() {
+        return Boolean.TRUE.equals(PASSWORD_HASHING_THREAD.get());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> encodeHashing.record(() -> delegate.encode(rawPassword)), encodeQueueWait);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> matchesHashing.record(() -> delegate.matches(rawPassword, encodedPassword)), matchesQueueWait);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T execute(Callable<T> task, Timer queueWait) {
+        if (isPasswordHashingThread()) {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        Future<T> future;
+        long submitted = System.nanoTime();
+        try {
+            future =
+                executor.submit(() -> {
+                    queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                    return task.call();
+                });
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingRejectedException("Password hashing capacity exceeded", e);
+        }
+        try {
+            return future.get(timeoutInMilliseconds, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // a task still in the queue is skipped once dequeued, but a running hash is not interrupted and keeps its thread
+            future.cancel(true);
+            throw new PasswordHashingRejectedException("Password hashing timed out", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class PasswordHashingThreadFactory extends CustomizableThreadFactory {
+
+        private static final long serialVersionUID = 1L;
+
+        private PasswordHashingThreadFactory() {
+            super(THREAD_NAME_PREFIX);
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return super.newThread(
+                () -> {
+                    PASSWORD_HASHING_THREAD.set(Boolean.TRUE);
+                    runnable.run();
+                }
+            );
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.jmdev.crazypic.security;
+
+import com.jmdev.crazypic.service.UserService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Store the upgraded password hash of a user after a successful login.
+ * <p>
+ * Spring Security calls it when the {@link org.springframework.security.crypto.password.PasswordEncoder} reports that
+ * the stored hash does not match the configured format or strength, see
+ * {@link org.springframework.security.crypto.password.PasswordEncoder#upgradeEncoding(String)}.
+ */
+@Component
+public class DomainUserDetailsPasswordService implements UserDetailsPasswordService {
+
+    private final UserService userService;
+
+    public DomainUserDetailsPasswordService(UserService userService) {
+        this.userService = userService;
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userService.upgradePassword(user.getUsername(), newPassword);
+        return User.withUserDetails(user).password(newPassword).build();
+    }
+}
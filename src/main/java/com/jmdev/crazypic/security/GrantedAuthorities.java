@@ -0,0 +1,151 @@
+package com.jmdev.crazypic.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Registry of canonical {@link GrantedAuthority} instances.
+ * <p>
+ * The authorities of {@link AuthoritiesConstants}, and the immutable lists of every ordering of them as found in the
+ * {@code auth} claim of a JWT, are built once at class loading, so resolving them on the request path does not
+ * allocate anything. Unknown authorities and claims are still resolved, the latter being remembered up to a bounded
+ * number of distinct values.
+ * <p>
+ * The known authorities can also be stored as a bitmask, each of them being mapped to a fixed bit.
+ */
+public final class GrantedAuthorities {
+
+    private static final String SEPARATOR = ",";
+
+    private static final int MAX_CLAIMS = 256;
+
+    private static final Map<String, GrantedAuthority> AUTHORITIES;
+
+    private static final Map<String, List<GrantedAuthority>> CLAIMS = new ConcurrentHashMap<>();
+
+    // the bit of a known authority in a mask is its index in this list, so authorities may only be appended to it
+    private static final List<String> MASK_NAMES = List.of(
+        AuthoritiesConstants.ADMIN,
+        AuthoritiesConstants.USER,
+        AuthoritiesConstants.ANONYMOUS
+    );
+
+    private static final Map<Long, List<GrantedAuthority>> MASKS = new ConcurrentHashMap<>();
+
+    static {
+        AUTHORITIES = MASK_NAMES.stream().collect(Collectors.toUnmodifiableMap(name -> name, SimpleGrantedAuthority::new));
+        preloadClaims(new ArrayList<>(), MASK_NAMES);
+        for (long mask = 0; mask < 1L << MASK_NAMES.size(); mask++) {
+            MASKS.put(mask, parseMask(mask));
+        }
+    }
+
+    private GrantedAuthorities() {}
+
+    /**
+     * Get the canonical instance of an authority.
+     *
+     * @param name the authority name.
+     * @return the shared instance for a known authority, a new one otherwise.
+     */
+    public static GrantedAuthority of(String name) {
+        GrantedAuthority authority = AUTHORITIES.get(name);
+        return authority != null ? authority : new SimpleGrantedAuthority(name);
+    }
+
+    /**
+     * Get the authorities of a comma-separated {@code auth} claim, blank names being ignored.
+     *
+     * @param claim the claim value.
+     * @return the immutable list of authorities, shared between all the calls with the same claim.
+     */
+    public static List<GrantedAuthority> fromClaim(String claim) {
+        if (claim == null) {
+            return List.of();
+        }
+        List<GrantedAuthority> authorities = CLAIMS.get(claim);
+        if (authorities == null) {
+            authorities = parseClaim(claim);
+            if (CLAIMS.size() < MAX_CLAIMS) {
+                CLAIMS.putIfAbsent(claim, authorities);
+            }
+        }
+        return authorities;
+    }
+
+    /**
+     * Get the bitmask of the known authorities among the given names.
+     *
+     * @param names the authority names.
+     * @return the bitmask, ignoring the names of unknown authorities.
+     */
+    public static long toMask(Collection<String> names) {
+        long mask = 0;
+        for (String name : names) {
+            int index = MASK_NAMES.indexOf(name);
+            if (index >= 0) {
+                mask |= 1L << index;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Check whether an authority is known, and thus part of the bitmasks.
+     *
+     * @param name the authority name.
+     * @return true if the authority is known, false otherwise.
+     */
+    public static boolean isKnown(String name) {
+        return AUTHORITIES.containsKey(name);
+    }
+
+    /**
+     * Get the authorities of a bitmask built by {@link #toMask(Collection)}.
+     *
+     * @param mask the bitmask.
+     * @return the immutable list of authorities, shared between all the calls with the same mask.
+     */
+    public static List<GrantedAuthority> fromMask(long mask) {
+        List<GrantedAuthority> authorities = MASKS.get(mask);
+        return authorities != null ? authorities : parseMask(mask);
+    }
+
+    private static List<GrantedAuthority> parseMask(long mask) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (int index = 0; index < MASK_NAMES.size(); index++) {
+            if ((mask & (1L << index)) != 0) {
+                authorities.add(AUTHORITIES.get(MASK_NAMES.get(index)));
+            }
+        }
+        return Collections.unmodifiableList(authorities);
+    }
+
+    private static List<GrantedAuthority> parseClaim(String claim) {
+        return Arrays
+            .stream(claim.split(SEPARATOR))
+            .filter(name -> !name.trim().isEmpty())
+            .map(GrantedAuthorities::of)
+            .collect(Collectors.toUnmodifiableList());
+    }
+
+    private static void preloadClaims(List<String> prefix, List<String> remaining) {
+        String claim = String.join(SEPARATOR, prefix);
+        CLAIMS.put(claim, parseClaim(claim));
+        for (String name : remaining) {
+            List<String> nextPrefix = new ArrayList<>(prefix);
+            nextPrefix.add(name);
+            List<String> nextRemaining = new ArrayList<>(remaining);
+            nextRemaining.remove(name);
+            preloadClaims(nextPrefix, nextRemaining);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.jmdev.crazypic.security;
+
+/**
+ * This exception is thrown when a password cannot be hashed or verified because the password hashing executor is
+ * saturated.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingRejectedException(String message, Throwable t) {
+        super(message, t);
+    }
+}
@@ -0,0 +1,29 @@
+package com.jmdev.crazypic.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * {@link PasswordEncoder} of the hash no password matches, stored for the users who have not chosen their password yet.
+ * <p>
+ * The users created by an administrator choose theirs with their reset key: hashing a random password for them would
+ * only spend a BCrypt round on a password nobody knows.
+ */
+public class UnusablePasswordEncoder implements PasswordEncoder {
+
+    public static final String ID = "unusable";
+
+    /**
+     * The hash of the users without password, prefixed with the {@link #ID} of this encoder.
+     */
+    public static final String PASSWORD_HASH = "{" + ID + "}";
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        throw new UnsupportedOperationException("Passwords are not encoded as unusable, " + PASSWORD_HASH + " is stored instead");
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return false;
+    }
+}
@@ -0,0 +1,163 @@
+package com.jmdev.crazypic.security;
+
+import com.jmdev.crazypic.domain.Authority;
+import com.jmdev.crazypic.domain.User;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Immutable projection of a {@link User}, holding what is needed to authenticate it.
+ * <p>
+ * The known authorities are stored as a bitmask, see {@link GrantedAuthorities#toMask(java.util.Collection)}, and
+ * the unknown ones, if any, by name.
+ */
+public final class UserIdentity implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final long id;
+
+    private final long version;
+
+    private final String login;
+
+    private final String email;
+
+    private final String passwordHash;
+
+    private final boolean activated;
+
+    private final long authorityMask;
+
+    private final String[] otherAuthorities;
+
+    private UserIdentity(
+        long id,
+        long version,
+        String login,
+        String email,
+        String passwordHash,
+        boolean activated,
+        long authorityMask,
+        String[] otherAuthorities
+    ) {
+        this.id = id;
+        this.version = version;
+        this.login = login;
+        this.email = email;
+        this.passwordHash = passwordHash;
+        this.activated = activated;
+        this.authorityMask = authorityMask;
+        this.otherAuthorities = otherAuthorities;
+    }
+
+    /**
+     * Project a user, whose authorities must be loaded.
+     *
+     * @param user the user.
+     * @return the projection.
+     */
+    public static UserIdentity of(User user) {
+        List<String> names = user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toList());
+        String[] otherAuthorities = names.stream().filter(name -> !GrantedAuthorities.isKnown(name)).toArray(String[]::new);
+        return new UserIdentity(
+            user.getId(),
+            user.getVersion(),
+            user.getLogin(),
+            user.getEmail() != null ? user.getEmail().toLowerCase(Locale.ENGLISH) : null,
+            user.getPassword(),
+            user.isActivated(),
+            GrantedAuthorities.toMask(names),
+            otherAuthorities.length > 0 ? otherAuthorities : null
+        );
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the version of the user, as when the identity was projected.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    /**
+     * @return the email, in lower case.
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public boolean isActivated() {
+        return activated;
+    }
+
+    /**
+     * @return the immutable list of authorities.
+     */
+    public List<GrantedAuthority> getAuthorities() {
+        List<GrantedAuthority> authorities = GrantedAuthorities.fromMask(authorityMask);
+        if (otherAuthorities == null) {
+            return authorities;
+        }
+        List<GrantedAuthority> allAuthorities = new ArrayList<>(authorities);
+        for (String name : otherAuthorities) {
+            allAuthorities.add(GrantedAuthorities.of(name));
+        }
+        return Collections.unmodifiableList(allAuthorities);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UserIdentity)) {
+            return false;
+        }
+        UserIdentity that = (UserIdentity) o;
+        return (
+            id == that.id &&
+            version == that.version &&
+            activated == that.activated &&
+            authorityMask == that.authorityMask &&
+            login.equals(that.login) &&
+            Objects.equals(email, that.email) &&
+            Objects.equals(passwordHash, that.passwordHash) &&
+            Arrays.equals(otherAuthorities, that.otherAuthorities)
+        );
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "UserIdentity{" +
+            "id=" + id +
+            ", version=" + version +
+            ", login='" + login + '\'' +
+            ", activated=" + activated +
+            "}";
+    }
+}
@@ -0,0 +1,332 @@
+package com.jmdev.crazypic.security;
+
+import com.jmdev.crazypic.cache.CacheInvalidationBus;
+import com.jmdev.crazypic.cache.CacheInvalidationHandler;
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.UserIdentityFilter;
+import com.jmdev.crazypic.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Read-through cache of the {@link UserIdentity} of the users, keyed by id, with login and email indexes.
+ * <p>
+ * An index entry only maps a login or an email to an id: the identity found under that id is checked to still have
+ * this login or email before being returned, so a renamed user is never found under its previous login or email.
+ * Evicting a user also evicts it once its transaction is committed, and the identities loaded from the database while
+ * an eviction happened are not cached, so that an identity read before a change cannot be cached after it.
+ * <p>
+ * Evictions are also published to the other instances through the {@link CacheInvalidationBus}: as an index entry is
+ * only followed to an identity with the same login or email, evicting the identity by id is enough for them.
+ * <p>
+ * The identities restored from the persistent cache tiers, if any, are checked against the database once the
+ * application is started, before the caches are warmed up: the ones of the users changed or deleted while the
+ * application was down are dropped.
+ * <p>
+ * Lookups are counted in the {@value #LOOKUPS_METER_NAME} meter, by identity and by result: {@code hit} when the
+ * identity was cached, {@code miss} otherwise. Their ratio right after a restart shows whether the persistent cache
+ * tiers, if any, brought the previous working set back.
+ */
+@Component
+public class UserIdentityCache {
+
+    public static final String USER_IDENTITIES_CACHE = "userIdentities";
+
+    public static final String USER_IDS_BY_LOGIN_CACHE = "userIdsByLogin";
+
+    public static final String USER_IDS_BY_EMAIL_CACHE = "userIdsByEmail";
+
+    public static final String LOOKUPS_METER_NAME = "user.identity-cache.lookups";
+    public static final String LOOKUPS_METER_DESCRIPTION = "Indicates count of the user lookups, by result of the identity cache.";
+    public static final String LOOKUPS_METER_BASE_UNIT = "lookups";
+
+    private static final int REVALIDATION_BATCH_SIZE = 500;
+
+    private final Logger log = LoggerFactory.getLogger(UserIdentityCache.class);
+
+    private final Cache<Object, Object> identities;
+
+    private final Cache<Object, Object> idsByLogin;
+
+    private final Cache<Object, Object> idsByEmail;
+
+    private final UserRepository userRepository;
+
+    private final UserIdentityFilter userIdentityFilter;
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Lookups loginLookups;
+
+    private final Lookups emailLookups;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    public UserIdentityCache(
+        CacheManager cacheManager,
+        UserRepository userRepository,
+        UserIdentityFilter userIdentityFilter,
+        CacheInvalidationBus cacheInvalidationBus,
+        MeterRegistry registry
+    ) {
+        this.identities = Objects.requireNonNull(cacheManager.getCache(USER_IDENTITIES_CACHE));
+        this.idsByLogin = Objects.requireNonNull(cacheManager.getCache(USER_IDS_BY_LOGIN_CACHE));
+        this.idsByEmail = Objects.requireNonNull(cacheManager.getCache(USER_IDS_BY_EMAIL_CACHE));
+        this.userRepository = userRepository;
+        this.userIdentityFilter = userIdentityFilter;
+        this.loginLookups = new Lookups("login", registry);
+        this.emailLookups = new Lookups("email", registry);
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        cacheInvalidationBus.register(
+            USER_IDENTITIES_CACHE,
+            new CacheInvalidationHandler() {
+                @Override
+                public void evict(Long id) {
+                    UserIdentityCache.this.evict(id, null, null);
+                }
+
+                @Override
+                public void clear() {
+                    UserIdentityCache.this.clear();
+                }
+            }
+        );
+    }
+
+    /**
+     * Get the identity of a user by login, loading it from the database if it is not cached.
+     *
+     * @param login the login, in lower case.
+     * @return the identity, or empty if there is no such user.
+     */
+    public Optional<UserIdentity> findByLogin(String login) {
+        UserIdentity identity = getIndexed(idsByLogin, login, UserIdentity::getLogin);
+        if (identity != null) {
+            loginLookups.hit.increment();
+            return Optional.of(identity);
+        }
+        loginLookups.miss.increment();
+        long generation = evictions.get();
+        return userIdentityFilter
+            .findByLogin(login, userRepository::findOneWithAuthoritiesByLogin)
+            .map(user -> cache(user, generation));
+    }
+
+    /**
+     * Get the identity of a user by email, loading it from the database if it is not cached.
+     *
+     * @param email the email, in any case.
+     * @return the identity, or empty if there is no such user.
+     */
+    public Optional<UserIdentity> findByEmail(String email) {
+        String lowercaseEmail = email.toLowerCase(Locale.ENGLISH);
+        UserIdentity identity = getIndexed(idsByEmail, lowercaseEmail, UserIdentity::getEmail);
+        if (identity != null) {
+            emailLookups.hit.increment();
+            return Optional.of(identity);
+        }
+        emailLookups.miss.increment();
+        long generation = evictions.get();
+        return userIdentityFilter
+            .findByEmail(email, userRepository::findOneWithAuthoritiesByEmailIgnoreCase)
+            .map(user -> cache(user, generation));
+    }
+
+    /**
+     * Cache the identities of users loaded from the database, unless a user was evicted while they were loaded.
+     *
+     * @param loader the database lookup of the users, with their authorities.
+     * @return the number of loaded users.
+     */
+    public int preload(Supplier<List<User>> loader) {
+        long generation = evictions.get();
+        List<User> users = loader.get();
+        users.forEach(user -> cache(user, generation));
+        return users.size();
+    }
+
+    /**
+     * Drop the cached identities which are not those of the current version of their user, as the ones restored from
+     * the persistent cache tiers after the users changed.
+     * <p>
+     * This is fired once the application is started, before it is ready.
+     *
+     * @return the number of dropped identities.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public int revalidate() {
+        Map<Long, Long> cachedVersions = new HashMap<>();
+        for (Cache.Entry<Object, Object> entry : identities) {
+            if (entry.getValue() instanceof UserIdentity) {
+                UserIdentity identity = (UserIdentity) entry.getValue();
+                cachedVersions.put(identity.getId(), identity.getVersion());
+            }
+        }
+        if (cachedVersions.isEmpty()) {
+            return 0;
+        }
+        int dropped = 0;
+        List<Long> ids = new ArrayList<>(cachedVersions.keySet());
+        for (int start = 0; start < ids.size(); start += REVALIDATION_BATCH_SIZE) {
+            List<Long> batch = ids.subList(start, Math.min(start + REVALIDATION_BATCH_SIZE, ids.size()));
+            Map<Long, Long> currentVersions = new HashMap<>();
+            userRepository.findVersionsByIdIn(batch).forEach(user -> currentVersions.put(user.getId(), user.getVersion()));
+            for (Long id : batch) {
+                if (!cachedVersions.get(id).equals(currentVersions.get(id))) {
+                    // only local, as the identity is stale on this instance only
+                    evict(id, null, null);
+                    dropped++;
+                }
+            }
+        }
+        log.info("Dropped {} stale user identities out of the {} cached ones", dropped, cachedVersions.size());
+        return dropped;
+    }
+
+    /**
+     * Evict a user, under its current and its cached login and email, now and after the commit of the current
+     * transaction if any, on this instance and on the other ones.
+     *
+     * @param user the user, with its new login and email if they were changed.
+     */
+    public void evict(User user) {
+        Long id = user.getId();
+        String login = user.getLogin();
+        String email = user.getEmail() != null ? user.getEmail().toLowerCase(Locale.ENGLISH) : null;
+        evict(id, login, email);
+        cacheInvalidationBus.publish(USER_IDENTITIES_CACHE, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        evict(id, login, email);
+                    }
+                }
+            );
+        }
+    }
+
+    /**
+     * Evict users by id, now and after the commit of the current transaction if any, on this instance and on the other
+     * ones, as for the users deleted in bulk.
+     *
+     * @param ids the user ids.
+     */
+    public void evictAll(Collection<Long> ids) {
+        ids.forEach(id -> evict(id, null, null));
+        cacheInvalidationBus.publishAll(USER_IDENTITIES_CACHE, ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        ids.forEach(id -> evict(id, null, null));
+                    }
+                }
+            );
+        }
+    }
+
+    /**
+     * Evict all the users.
+     */
+    public void clear() {
+        evictions.incrementAndGet();
+        identities.clear();
+        idsByLogin.clear();
+        idsByEmail.clear();
+    }
+
+    private UserIdentity getIndexed(Cache<Object, Object> index, String key, Function<UserIdentity, String> indexedField) {
+        Object id = index.get(key);
+        if (id == null) {
+            return null;
+        }
+        UserIdentity identity = (UserIdentity) identities.get(id);
+        if (identity == null || !key.equals(indexedField.apply(identity))) {
+            index.remove(key, id);
+            return null;
+        }
+        return identity;
+    }
+
+    private UserIdentity cache(User user, long generation) {
+        UserIdentity identity = UserIdentity.of(user);
+        if (evictions.get() != generation) {
+            return identity;
+        }
+        identities.put(identity.getId(), identity);
+        idsByLogin.put(identity.getLogin(), identity.getId());
+        if (identity.getEmail() != null) {
+            idsByEmail.put(identity.getEmail(), identity.getId());
+        }
+        if (evictions.get() != generation) {
+            // an eviction raced with the caching, which may have happened after it
+            identities.remove(identity.getId(), identity);
+        }
+        return identity;
+    }
+
+    private void evict(Long id, String login, String email) {
+        evictions.incrementAndGet();
+        if (id != null) {
+            Object cached = identities.getAndRemove(id);
+            if (cached instanceof UserIdentity) {
+                UserIdentity identity = (UserIdentity) cached;
+                idsByLogin.remove(identity.getLogin(), id);
+                if (identity.getEmail() != null) {
+                    idsByEmail.remove(identity.getEmail(), id);
+                }
+            }
+        }
+        if (login != null) {
+            idsByLogin.remove(login);
+        }
+        if (email != null) {
+            idsByEmail.remove(email);
+        }
+    }
+
+    private static final class Lookups {
+
+        private final Counter hit;
+
+        private final Counter miss;
+
+        private Lookups(String identity, MeterRegistry registry) {
+            this.hit = counter(identity, "hit", registry);
+            this.miss = counter(identity, "miss", registry);
+        }
+
+        private static Counter counter(String identity, String result, MeterRegistry registry) {
+            return Counter
+                .builder(LOOKUPS_METER_NAME)
+                .baseUnit(LOOKUPS_METER_BASE_UNIT)
+                .description(LOOKUPS_METER_DESCRIPTION)
+                .tag("identity", identity)
+                .tag("result", result)
+                .register(registry);
+        }
+    }
+}
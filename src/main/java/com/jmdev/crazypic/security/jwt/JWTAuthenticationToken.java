@@ -0,0 +1,105 @@
+package com.jmdev.crazypic.security.jwt;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * {@link org.springframework.security.core.Authentication} built from a verified JWT.
+ * <p>
+ * The verified principal, token and authorities are shared between all the requests presenting the same token, while
+ * each request gets its own instance from {@link #copy()}, so that the authenticated flag and the details keep the
+ * contract of {@link AbstractAuthenticationToken} without leaking from one request to another.
+ */
+public final class JWTAuthenticationToken extends AbstractAuthenticationToken {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object principal;
+
+    private final String token;
+
+    private final List<GrantedAuthority> authorities;
+
+    /**
+     * @param principal the principal of the token.
+     * @param token the raw JWT, used as credentials.
+     * @param authorities the authorities of the token, not copied when they already are an immutable list.
+     */
+    public JWTAuthenticationToken(Object principal, String token, Collection<? extends GrantedAuthority> authorities) {
+        // the authorities are kept here instead of being copied by the parent
+        super(null);
+        this.principal = principal;
+        this.token = token;
+        this.authorities = List.copyOf(authorities);
+        super.setAuthenticated(true);
+    }
+
+    private JWTAuthenticationToken(JWTAuthenticationToken verified) {
+        super(null);
+        this.principal = verified.principal;
+        this.token = verified.token;
+        this.authorities = verified.authorities;
+        super.setAuthenticated(true);
+    }
+
+    /**
+     * @return a new authenticated instance for the same principal, token and authorities, without details.
+     */
+    public JWTAuthenticationToken copy() {
+        return new JWTAuthenticationToken(this);
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return token;
+    }
+
+    @Override
+    public Collection<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public void setAuthenticated(boolean isAuthenticated) {
+        if (isAuthenticated) {
+            throw new IllegalArgumentException("Cannot set this token to trusted, it is only trusted once built from a verified JWT");
+        }
+        super.setAuthenticated(false);
+    }
+
+    @Override
+    public void eraseCredentials() {
+        // the credentials are the token itself, which is shared with the client and must stay available
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JWTAuthenticationToken)) {
+            return false;
+        }
+        JWTAuthenticationToken other = (JWTAuthenticationToken) o;
+        return (
+            isAuthenticated() == other.isAuthenticated() &&
+            Objects.equals(principal, other.principal) &&
+            Objects.equals(token, other.token) &&
+            authorities.equals(other.authorities) &&
+            Objects.equals(getDetails(), other.getDetails())
+        );
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(principal, token, authorities, getDetails(), isAuthenticated());
+    }
+}
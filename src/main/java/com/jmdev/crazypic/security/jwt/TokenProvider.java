@@ -1,21 +1,22 @@
 package com.jmdev.crazypic.security.jwt;
 
+import com.jmdev.crazypic.config.ApplicationProperties;
 import com.jmdev.crazypic.management.SecurityMetersService;
+import com.jmdev.crazypic.security.GrantedAuthorities;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
 import tech.jhipster.config.JHipsterProperties;
@@ -27,6 +28,12 @@ public class TokenProvider {
 
     private static final String AUTHORITIES_KEY = "auth";
 
+    /**
+     * Length above which a token is rejected as malformed without being parsed nor cached. The tokens created here
+     * are a few hundred characters long.
+     */
+    static final int MAX_TOKEN_LENGTH = 4096;
+
     private final Key key;
 
     private final JwtParser jwtParser;
@@ -37,7 +44,17 @@ public class TokenProvider {
 
     private final SecurityMetersService securityMetersService;
 
-    public TokenProvider(JHipsterProperties jHipsterProperties, SecurityMetersService securityMetersService) {
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final VerifiedTokenCache rejectedTokenCache;
+
+    private final long rejectedTokenRetentionInMilliseconds;
+
+    public TokenProvider(
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
+        SecurityMetersService securityMetersService
+    ) {
         byte[] keyBytes;
         String secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getBase64Secret();
         if (!ObjectUtils.isEmpty(secret)) {
@@ -58,6 +75,11 @@ public class TokenProvider {
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
 
         this.securityMetersService = securityMetersService;
+
+        ApplicationProperties.Security.TokenCache tokenCache = applicationProperties.getSecurity().getTokenCache();
+        this.verifiedTokenCache = new VerifiedTokenCache(tokenCache.isEnabled() ? tokenCache.getMaxEntries() : 0);
+        this.rejectedTokenCache = new VerifiedTokenCache(tokenCache.isEnabled() ? tokenCache.getRejectedMaxEntries() : 0);
+        this.rejectedTokenRetentionInMilliseconds = 1000 * tokenCache.getRejectedTimeToLiveSeconds();
     }
 
     public String createToken(Authentication authentication, boolean rememberMe) {
@@ -81,44 +103,156 @@ public class TokenProvider {
     }
 
     public Authentication getAuthentication(String token) {
+        TokenVerification cached = verifiedTokenCache.get(token);
+        if (cached != null && cached.isValid()) {
+            return cached.getAuthentication();
+        }
         Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        TokenVerification verification = TokenVerification.valid(createAuthentication(token, claims));
+        cacheVerifiedToken(token, verification, claims);
+        return verification.getAuthentication();
+    }
 
-        Collection<? extends GrantedAuthority> authorities = Arrays
-            .stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-            .filter(auth -> !auth.trim().isEmpty())
-            .map(SimpleGrantedAuthority::new)
-            .collect(Collectors.toList());
-
-        User principal = new User(claims.getSubject(), "", authorities);
+    public boolean validateToken(String authToken) {
+        return verifyToken(authToken).isValid();
+    }
 
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    /**
+     * Verifies the token and builds its {@link Authentication} in a single pass.
+     * <p>
+     * Valid tokens are cached until they expire, and rejected tokens for a short retention period, so a token
+     * presented again is answered without being parsed. Tokens which are obviously not a JWS are rejected before
+     * reaching the parser, as it reports every failure with an exception. The rejected tokens are chosen by the
+     * clients, so they are cached by their SHA-256 digest, and those over {@link #MAX_TOKEN_LENGTH} are not cached.
+     *
+     * @param authToken the raw JWT.
+     * @return the verification result, holding either the authentication or the cause of the failure.
+     */
+    public TokenVerification verifyToken(String authToken) {
+        if (authToken != null && authToken.length() > MAX_TOKEN_LENGTH) {
+            this.securityMetersService.trackTokenCacheMiss();
+            trackFailure(TokenVerification.Failure.MALFORMED);
+            return TokenVerification.failed(TokenVerification.Failure.MALFORMED);
+        }
+        TokenVerification verification = verifiedTokenCache.get(authToken);
+        if (verification == null && !ObjectUtils.isEmpty(authToken)) {
+            verification = rejectedTokenCache.get(digest(authToken));
+        }
+        if (verification != null && verification.isValid()) {
+            this.securityMetersService.trackTokenCacheHit();
+        } else if (verification != null) {
+            // replayed invalid tokens are answered from the cache too, but must not look like healthy hits
+            this.securityMetersService.trackTokenCacheRejectedHit();
+        } else {
+            this.securityMetersService.trackTokenCacheMiss();
+            verification = parseToken(authToken);
+        }
+        if (!verification.isValid()) {
+            trackFailure(verification.getFailure());
+        }
+        return verification;
     }
 
-    public boolean validateToken(String authToken) {
+    private TokenVerification parseToken(String authToken) {
+        if (ObjectUtils.isEmpty(authToken)) {
+            return TokenVerification.failed(TokenVerification.Failure.INVALID);
+        }
+        if (!isCompactJws(authToken)) {
+            return reject(authToken, TokenVerification.Failure.MALFORMED);
+        }
         try {
-            jwtParser.parseClaimsJws(authToken);
-
-            return true;
+            Claims claims = jwtParser.parseClaimsJws(authToken).getBody();
+            TokenVerification verification = TokenVerification.valid(createAuthentication(authToken, claims));
+            cacheVerifiedToken(authToken, verification, claims);
+            return verification;
         } catch (ExpiredJwtException e) {
-            this.securityMetersService.trackTokenExpired();
-
             log.trace("Invalid JWT token.", e);
+            return reject(authToken, TokenVerification.Failure.EXPIRED);
         } catch (UnsupportedJwtException e) {
-            this.securityMetersService.trackTokenUnsupported();
-
             log.trace("Invalid JWT token.", e);
+            return reject(authToken, TokenVerification.Failure.UNSUPPORTED);
         } catch (MalformedJwtException e) {
-            this.securityMetersService.trackTokenMalformed();
-
             log.trace("Invalid JWT token.", e);
+            return reject(authToken, TokenVerification.Failure.MALFORMED);
         } catch (SignatureException e) {
-            this.securityMetersService.trackTokenInvalidSignature();
-
             log.trace("Invalid JWT token.", e);
-        } catch (IllegalArgumentException e) { // TODO: should we let it bubble (no catch), to avoid defensive programming and follow the fail-fast principle?
-            log.error("Token validation error {}", e.getMessage());
+            return reject(authToken, TokenVerification.Failure.INVALID_SIGNATURE);
+        } catch (IllegalArgumentException e) {
+            // the parser rejects a JWS without claims this way: it is the client's token which is invalid, not the server
+            log.trace("Invalid JWT token.", e);
+            return reject(authToken, TokenVerification.Failure.INVALID);
+        }
+    }
+
+    private void cacheVerifiedToken(String authToken, TokenVerification verification, Claims claims) {
+        if (claims.getExpiration() != null) {
+            verifiedTokenCache.put(authToken, verification, claims.getExpiration().getTime());
+        }
+    }
+
+    private TokenVerification reject(String authToken, TokenVerification.Failure failure) {
+        TokenVerification verification = TokenVerification.failed(failure);
+        rejectedTokenCache.put(digest(authToken), verification, System.currentTimeMillis() + rejectedTokenRetentionInMilliseconds);
+        return verification;
+    }
+
+    /**
+     * @return the Base64URL encoded SHA-256 digest of the token, which keys the rejected tokens in a fixed size.
+     */
+    private static String digest(String authToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(authToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private void trackFailure(TokenVerification.Failure failure) {
+        switch (failure) {
+            case EXPIRED:
+                this.securityMetersService.trackTokenExpired();
+                break;
+            case UNSUPPORTED:
+                this.securityMetersService.trackTokenUnsupported();
+                break;
+            case MALFORMED:
+                this.securityMetersService.trackTokenMalformed();
+                break;
+            case INVALID_SIGNATURE:
+                this.securityMetersService.trackTokenInvalidSignature();
+                break;
+            default:
+                break;
         }
+    }
+
+    /**
+     * Checks that the token is made of three dot-separated Base64URL segments, the signature one being possibly empty.
+     */
+    private static boolean isCompactJws(String authToken) {
+        int separators = 0;
+        for (int i = 0; i < authToken.length(); i++) {
+            char c = authToken.charAt(i);
+            if (c == '.') {
+                separators++;
+            } else if (
+                !((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '=')
+            ) {
+                return false;
+            }
+        }
+        return separators == 2;
+    }
+
+    /**
+     * Builds the authentication of a verified token. Its principal is the login of the user, and its authorities are
+     * the list shared by all the tokens with the same {@code auth} claim, so that nothing is copied.
+     */
+    static JWTAuthenticationToken createAuthentication(String token, Claims claims) {
+        Object authoritiesClaim = claims.get(AUTHORITIES_KEY);
+        List<GrantedAuthority> authorities = GrantedAuthorities.fromClaim(authoritiesClaim == null ? null : authoritiesClaim.toString());
 
-        return false;
+        return new JWTAuthenticationToken(claims.getSubject(), token, authorities);
     }
 }
@@ -0,0 +1,78 @@
+package com.jmdev.crazypic.security.jwt;
+
+import java.util.EnumMap;
+import java.util.Map;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Outcome of a JWT verification: either the {@link Authentication} built from the token claims, or the cause of the
+ * failure.
+ * <p>
+ * Failures are shared constants, so rejecting a token does not allocate anything.
+ */
+public final class TokenVerification {
+
+    /**
+     * Cause of a failed token verification.
+     */
+    public enum Failure {
+        EXPIRED,
+        UNSUPPORTED,
+        MALFORMED,
+        INVALID_SIGNATURE,
+        INVALID,
+    }
+
+    private static final Map<Failure, TokenVerification> FAILURES = new EnumMap<>(Failure.class);
+
+    static {
+        for (Failure failure : Failure.values()) {
+            FAILURES.put(failure, new TokenVerification(null, failure));
+        }
+    }
+
+    private final JWTAuthenticationToken authentication;
+
+    private final Failure failure;
+
+    private TokenVerification(JWTAuthenticationToken authentication, Failure failure) {
+        this.authentication = authentication;
+        this.failure = failure;
+    }
+
+    public static TokenVerification valid(JWTAuthenticationToken authentication) {
+        return new TokenVerification(authentication, null);
+    }
+
+    public static TokenVerification failed(Failure failure) {
+        return FAILURES.get(failure);
+    }
+
+    public boolean isValid() {
+        return failure == null;
+    }
+
+    /**
+     * @return a new authentication of a valid token for each call, as its holder may change its details or revoke it,
+     * {@code null} if the token is not valid.
+     */
+    public Authentication getAuthentication() {
+        return authentication != null ? authentication.copy() : null;
+    }
+
+    /**
+     * @return the cause of the failure, {@code null} if the token is valid.
+     */
+    public Failure getFailure() {
+        return failure;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TokenVerification{" +
+            "valid=" + isValid() +
+            ", failure=" + failure +
+            "}";
+    }
+}
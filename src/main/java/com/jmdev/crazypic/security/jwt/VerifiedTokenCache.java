@@ -0,0 +1,100 @@
+package com.jmdev.crazypic.security.jwt;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of JWT verification results, keyed by the raw token, or by its digest for the rejected tokens.
+ * <p>
+ * Each entry expires at a given instant: the token expiration for a valid token, or the end of a retention period for
+ * a rejected one. A valid token found after its expiration is reported as {@link TokenVerification.Failure#EXPIRED}
+ * without being parsed again. When the cache is full, expired entries are purged first and, if that is not enough,
+ * an arbitrary tenth of the entries is dropped.
+ */
+public class VerifiedTokenCache {
+
+    private static final TokenVerification EXPIRED = TokenVerification.failed(TokenVerification.Failure.EXPIRED);
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries;
+
+    public VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new ConcurrentHashMap<>(Math.max(16, maxEntries / 4));
+    }
+
+    /**
+     * Returns the cached verification result of the given token.
+     *
+     * @param token the raw JWT, or its digest.
+     * @return the verification result, or {@code null} if the token is unknown.
+     */
+    public TokenVerification get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(token, entry);
+            return entry.verification.isValid() ? EXPIRED : null;
+        }
+        return entry.verification;
+    }
+
+    /**
+     * Caches the verification result of a token until the given instant.
+     *
+     * @param token the raw JWT, or its digest.
+     * @param verification the verification result.
+     * @param expiresAt the end of validity of the entry, in epoch milliseconds.
+     */
+    public void put(String token, TokenVerification verification, long expiresAt) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(token, new Entry(verification, expiresAt));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        int toRemove = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (toRemove-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+
+        private final TokenVerification verification;
+
+        private final long expiresAt;
+
+        private Entry(TokenVerification verification, long expiresAt) {
+            this.verification = verification;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
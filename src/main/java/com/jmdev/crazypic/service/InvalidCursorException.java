@@ -0,0 +1,10 @@
+package com.jmdev.crazypic.service;
+
+public class InvalidCursorException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCursorException() {
+        super("Invalid pagination cursor");
+    }
+}
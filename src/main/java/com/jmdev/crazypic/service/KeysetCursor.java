@@ -0,0 +1,137 @@
+package com.jmdev.crazypic.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jmdev.crazypic.domain.User;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Opaque cursor of the keyset pagination of the users: the sort, and the values of the sort properties of the last
+ * user of a page, as Base64 encoded JSON.
+ * <p>
+ * The sort is kept in the cursor to reject the cursors of another sort, whose values would not be comparable. The
+ * values are those of properties which cannot be {@code null}, and the only sorts exposed to anyone are by {@code id}
+ * or {@code login}, which are public: the cursor does not need to be signed.
+ */
+final class KeysetCursor {
+
+    private static final String ID = "id";
+
+    private static final Set<String> UNIQUE_PROPERTIES = Set.of(ID, "login");
+
+    private static final String SORT = "sort";
+
+    private static final String AFTER = "after";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private KeysetCursor() {}
+
+    /**
+     * Make a sort usable by the keyset pagination: ending with a unique property.
+     *
+     * @param sort the requested sort.
+     * @return the requested sort, up to the {@code id} or the {@code login} if sorted by them, followed by the {@code id}
+     * otherwise.
+     */
+    static Sort keysetSort(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order);
+            if (UNIQUE_PROPERTIES.contains(order.getProperty())) {
+                return Sort.by(orders);
+            }
+        }
+        orders.add(Sort.Order.asc(ID));
+        return Sort.by(orders);
+    }
+
+    static String encode(Sort sort, User user) {
+        BeanWrapper properties = PropertyAccessorFactory.forBeanPropertyAccess(user);
+        Map<String, List<String>> cursor = new LinkedHashMap<>();
+        cursor.put(SORT, sort.stream().map(order -> order.getProperty() + "," + order.getDirection()).collect(Collectors.toList()));
+        cursor.put(
+            AFTER,
+            sort
+                .stream()
+                .map(order -> Objects.toString(properties.getPropertyValue(order.getProperty()), null))
+                .collect(Collectors.toList())
+        );
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(OBJECT_MAPPER.writeValueAsBytes(cursor));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode the cursor", e);
+        }
+    }
+
+    /**
+     * Decode a cursor.
+     *
+     * @param cursor the cursor, as returned by {@link #encode(Sort, User)}.
+     * @param sort the sort of the requested page.
+     * @return the values of the sort properties of the last user of the previous page.
+     * @throws InvalidCursorException if the cursor cannot be decoded, or was not encoded for this sort.
+     */
+    static List<Object> decode(String cursor, Sort sort) {
+        Map<String, List<String>> decoded;
+        try {
+            decoded =
+                OBJECT_MAPPER.readValue(
+                    new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8),
+                    new TypeReference<Map<String, List<String>>>() {}
+                );
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            throw new InvalidCursorException();
+        }
+        List<String> orders = sort.stream().map(order -> order.getProperty() + "," + order.getDirection()).collect(Collectors.toList());
+        if (decoded == null) {
+            // the JSON null
+            throw new InvalidCursorException();
+        }
+        List<String> after = decoded.get(AFTER);
+        if (!orders.equals(decoded.get(SORT)) || after == null || after.size() != orders.size() || after.contains(null)) {
+            throw new InvalidCursorException();
+        }
+        List<Object> values = new ArrayList<>();
+        int i = 0;
+        for (Sort.Order order : sort) {
+            values.add(parse(BeanUtils.getPropertyDescriptor(User.class, order.getProperty()).getPropertyType(), after.get(i++)));
+        }
+        return values;
+    }
+
+    private static Object parse(Class<?> type, String value) {
+        if (type == String.class) {
+            return value;
+        }
+        try {
+            if (type == Long.class || type == long.class) {
+                return Long.valueOf(value);
+            }
+            if (type == Instant.class) {
+                return Instant.parse(value);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new InvalidCursorException();
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.valueOf(value);
+        }
+        throw new IllegalArgumentException("Cannot paginate by a property of type " + type.getName());
+    }
+}
@@ -0,0 +1,222 @@
+package com.jmdev.crazypic.service;
+
+import com.jmdev.crazypic.config.ApplicationProperties;
+import com.jmdev.crazypic.domain.OutboxMail;
+import com.jmdev.crazypic.repository.OutboxMailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Service sending the mails of the outbox written by the {@link MailService}.
+ * <p>
+ * The due mails are locked by batches of {@code batch-size}, in a transaction per batch, and the mails of a batch are
+ * sent over a single SMTP connection. The batches are spaced out so that no more than {@code max-rate} mails are sent
+ * per second. A mail is deleted once sent: as the deletion is committed after the sending, a mail is sent at least
+ * once, and may be sent twice. A mail which could not be sent is retried after a backoff, doubled after every failed
+ * attempt up to {@code max-backoff}, and given up after {@code max-attempts}.
+ */
+@Service
+public class MailDispatcher {
+
+    public static final String THREAD_NAME_PREFIX = "crazy-pic-mail-dispatcher-";
+
+    public static final String MAILS_METER_NAME = "mail.outbox.mails";
+    public static final String MAILS_METER_DESCRIPTION = "Indicates count of the mails of the outbox which were sent, retried or given up.";
+    public static final String MAILS_METER_BASE_UNIT = "mails";
+
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private final Logger log = LoggerFactory.getLogger(MailDispatcher.class);
+
+    private final OutboxMailRepository outboxMailRepository;
+
+    private final JavaMailSender javaMailSender;
+
+    private final JHipsterProperties jHipsterProperties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.Mail.Outbox properties;
+
+    private final ScheduledExecutorService executor;
+
+    private final Counter sentMails;
+
+    private final Counter retriedMails;
+
+    private final Counter givenUpMails;
+
+    public MailDispatcher(
+        OutboxMailRepository outboxMailRepository,
+        JavaMailSender javaMailSender,
+        JHipsterProperties jHipsterProperties,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties,
+        @Qualifier("mailDispatcherExecutor") ScheduledExecutorService executor,
+        MeterRegistry registry
+    ) {
+        this.outboxMailRepository = outboxMailRepository;
+        this.javaMailSender = javaMailSender;
+        this.jHipsterProperties = jHipsterProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = applicationProperties.getMail().getOutbox();
+        this.executor = executor;
+        this.sentMails = mailsCounter("sent", registry);
+        this.retriedMails = mailsCounter("retried", registry);
+        this.givenUpMails = mailsCounter("given-up", registry);
+    }
+
+    private static Counter mailsCounter(String result, MeterRegistry registry) {
+        return Counter
+            .builder(MAILS_METER_NAME)
+            .description(MAILS_METER_DESCRIPTION)
+            .baseUnit(MAILS_METER_BASE_UNIT)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    /**
+     * Dispatch the outbox every {@code poll-interval}, on the {@code mailDispatcherExecutor}.
+     */
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled()) {
+            long pollInterval = properties.getPollInterval().toMillis();
+            executor.scheduleWithFixedDelay(this::dispatch, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Send the due mails, batch after batch, until there are none left.
+     *
+     * @return the number of mails dispatched, sent or not.
+     */
+    public int dispatch() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        int dispatched = 0;
+        try {
+            int batch;
+            do {
+                long start = System.nanoTime();
+                batch = transactionTemplate.execute(status -> dispatchBatch(batchSize));
+                dispatched += batch;
+                if (batch == batchSize && properties.getMaxRate() > 0) {
+                    long next = start + (long) (batch * TimeUnit.SECONDS.toNanos(1) / properties.getMaxRate());
+                    TimeUnit.NANOSECONDS.sleep(next - System.nanoTime());
+                }
+            } while (batch == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // not rethrown, as it would cancel the next dispatches
+            log.warn("Could not dispatch the mail outbox", e);
+        }
+        return dispatched;
+    }
+
+    private int dispatchBatch(int batchSize) {
+        List<OutboxMail> mails = outboxMailRepository.findByNextAttemptDateLessThanEqualOrderByNextAttemptDate(
+            Instant.now(),
+            PageRequest.of(0, batchSize)
+        );
+        if (mails.isEmpty()) {
+            return 0;
+        }
+        Map<MimeMessage, OutboxMail> messages = new LinkedHashMap<>();
+        Map<OutboxMail, Exception> failures = new HashMap<>();
+        for (OutboxMail mail : mails) {
+            try {
+                messages.put(toMimeMessage(mail), mail);
+            } catch (MessagingException e) {
+                failures.put(mail, e);
+            }
+        }
+        if (!messages.isEmpty()) {
+            try {
+                javaMailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                // holds the messages which were not sent, none if only the closing of the connection failed
+                e.getFailedMessages().forEach((message, exception) -> failures.put(messages.get(message), exception));
+            } catch (MailException e) {
+                messages.values().forEach(mail -> failures.put(mail, e));
+            }
+        }
+        List<OutboxMail> sent = new ArrayList<>();
+        for (OutboxMail mail : mails) {
+            Exception failure = failures.get(mail);
+            if (failure == null) {
+                sent.add(mail);
+            } else {
+                retryLater(mail, failure);
+            }
+        }
+        outboxMailRepository.deleteAll(sent);
+        sentMails.increment(sent.size());
+        log.debug("Sent {} of {} emails", sent.size(), mails.size());
+        return mails.size();
+    }
+
+    private MimeMessage toMimeMessage(OutboxMail mail) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, mail.isMultipart(), StandardCharsets.UTF_8.name());
+        message.setTo(mail.getRecipient());
+        message.setFrom(jHipsterProperties.getMail().getFrom());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getContent(), mail.isHtml());
+        return mimeMessage;
+    }
+
+    private void retryLater(OutboxMail mail, Exception failure) {
+        int attempts = mail.getAttempts() + 1;
+        mail.setAttempts(attempts);
+        mail.setLastError(StringUtils.abbreviate(String.valueOf(NestedExceptionUtils.getMostSpecificCause(failure)), MAX_ERROR_LENGTH));
+        if (attempts >= properties.getMaxAttempts()) {
+            mail.setNextAttemptDate(null);
+            givenUpMails.increment();
+            log.warn("Email could not be sent to user '{}' after {} attempts, giving up", mail.getRecipient(), attempts, failure);
+        } else {
+            Duration backoff = backoff(attempts);
+            mail.setNextAttemptDate(Instant.now().plus(backoff));
+            retriedMails.increment();
+            log.warn("Email could not be sent to user '{}', retrying in {}", mail.getRecipient(), backoff, failure);
+        }
+    }
+
+    /**
+     * @return the delay before the next attempt, after the given number of failed attempts.
+     */
+    private Duration backoff(int attempts) {
+        Duration backoff = properties.getInitialBackoff();
+        for (int i = 1; i < attempts && backoff.compareTo(properties.getMaxBackoff()) < 0; i++) {
+            backoff = backoff.multipliedBy(2);
+        }
+        return backoff.compareTo(properties.getMaxBackoff()) < 0 ? backoff : properties.getMaxBackoff();
+    }
+}
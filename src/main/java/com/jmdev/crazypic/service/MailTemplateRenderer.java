@@ -0,0 +1,191 @@
+package com.jmdev.crazypic.service;
+
+import com.jmdev.crazypic.domain.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.unbescape.html.HtmlEscape;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Service rendering the mail templates, and their subjects.
+ * <p>
+ * The templates of the user mails are precompiled once per locale: they are processed with a user whose fields are
+ * markers, and the output is split around the markers. A mail is then rendered by substituting the HTML-escaped fields
+ * of its user, as Thymeleaf escapes them, without processing the template again. The other templates, and all of them
+ * when the Thymeleaf cache is disabled, are processed for every mail. The subjects are cached per locale as well.
+ */
+@Service
+public class MailTemplateRenderer {
+
+    /**
+     * Templates which only depend on the locale, the base URL, and the {@link #USER_FIELDS} of the user.
+     */
+    static final Set<String> PRECOMPILED_TEMPLATES = Set.of("mail/activationEmail", "mail/creationEmail", "mail/passwordResetEmail");
+
+    /**
+     * Upper bound of the precompiled templates, and of the cached subjects, as the locales come from the users.
+     */
+    private static final int MAX_PRECOMPILED_TEMPLATES = 100;
+
+    private static final String USER = "user";
+
+    private static final String BASE_URL = "baseUrl";
+
+    private static final List<Function<User, String>> USER_FIELDS = List.of(
+        User::getLogin,
+        User::getFirstName,
+        User::getLastName,
+        User::getEmail,
+        User::getImageUrl,
+        User::getActivationKey,
+        User::getResetKey
+    );
+
+    private final SpringTemplateEngine templateEngine;
+
+    private final MessageSource messageSource;
+
+    private final String baseUrl;
+
+    private final boolean precompile;
+
+    /**
+     * Markers are lower case, as the login is, and alphanumeric, so that they are neither escaped nor encoded.
+     */
+    private final String markerPrefix = UUID.randomUUID().toString().replace("-", "");
+
+    private final Pattern markerPattern = Pattern.compile(markerPrefix + "(\\d+)x");
+
+    private final Map<String, PrecompiledTemplate> precompiledTemplates = new ConcurrentHashMap<>();
+
+    private final Map<String, String> subjects = new ConcurrentHashMap<>();
+
+    public MailTemplateRenderer(
+        SpringTemplateEngine templateEngine,
+        MessageSource messageSource,
+        JHipsterProperties jHipsterProperties,
+        ThymeleafProperties thymeleafProperties
+    ) {
+        this.templateEngine = templateEngine;
+        this.messageSource = messageSource;
+        this.baseUrl = jHipsterProperties.getMail().getBaseUrl();
+        this.precompile = thymeleafProperties.isCache();
+    }
+
+    /**
+     * Render a mail template for a user.
+     *
+     * @param templateName the name of the template.
+     * @param user the user the mail is sent to.
+     * @param locale the locale of the mail.
+     * @return the content of the mail.
+     */
+    public String render(String templateName, User user, Locale locale) {
+        if (!precompile || !PRECOMPILED_TEMPLATES.contains(templateName)) {
+            return process(templateName, user, locale);
+        }
+        String key = templateName + '_' + locale.toLanguageTag();
+        PrecompiledTemplate template = precompiledTemplates.get(key);
+        if (template == null) {
+            if (precompiledTemplates.size() >= MAX_PRECOMPILED_TEMPLATES) {
+                return process(templateName, user, locale);
+            }
+            template = precompiledTemplates.computeIfAbsent(key, k -> precompile(templateName, locale));
+        }
+        return template.render(user);
+    }
+
+    /**
+     * @param titleKey the message key of the subject.
+     * @param locale the locale of the mail.
+     * @return the subject of the mail.
+     */
+    public String getSubject(String titleKey, Locale locale) {
+        String key = titleKey + '_' + locale.toLanguageTag();
+        String subject = subjects.get(key);
+        if (subject == null) {
+            subject = messageSource.getMessage(titleKey, null, locale);
+            if (precompile && subjects.size() < MAX_PRECOMPILED_TEMPLATES) {
+                subjects.put(key, subject);
+            }
+        }
+        return subject;
+    }
+
+    private String process(String templateName, User user, Locale locale) {
+        Context context = new Context(locale);
+        context.setVariable(USER, user);
+        context.setVariable(BASE_URL, baseUrl);
+        return templateEngine.process(templateName, context);
+    }
+
+    private PrecompiledTemplate precompile(String templateName, Locale locale) {
+        User markers = new User();
+        markers.setLogin(marker(0));
+        markers.setFirstName(marker(1));
+        markers.setLastName(marker(2));
+        markers.setEmail(marker(3));
+        markers.setImageUrl(marker(4));
+        markers.setActivationKey(marker(5));
+        markers.setResetKey(marker(6));
+        String output = process(templateName, markers, locale);
+        List<String> literals = new ArrayList<>();
+        List<Function<User, String>> fields = new ArrayList<>();
+        Matcher matcher = markerPattern.matcher(output);
+        int start = 0;
+        while (matcher.find()) {
+            literals.add(output.substring(start, matcher.start()));
+            fields.add(USER_FIELDS.get(Integer.parseInt(matcher.group(1))));
+            start = matcher.end();
+        }
+        literals.add(output.substring(start));
+        return new PrecompiledTemplate(literals, fields);
+    }
+
+    private String marker(int field) {
+        return markerPrefix + field + 'x';
+    }
+
+    /**
+     * Output of a template split around the fields of its user: literal, field, literal, ..., field, literal.
+     */
+    private static final class PrecompiledTemplate {
+
+        private final String[] literals;
+
+        private final List<Function<User, String>> fields;
+
+        private final int length;
+
+        private PrecompiledTemplate(List<String> literals, List<Function<User, String>> fields) {
+            this.literals = literals.toArray(new String[0]);
+            this.fields = fields;
+            this.length = literals.stream().mapToInt(String::length).sum();
+        }
+
+        private String render(User user) {
+            StringBuilder content = new StringBuilder(length + 64 * fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                content.append(literals[i]);
+                String value = fields.get(i).apply(user);
+                if (value != null) {
+                    content.append(HtmlEscape.escapeHtml4Xml(value));
+                }
+            }
+            return content.append(literals[fields.size()]).toString();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.jmdev.crazypic.service;
+
+import com.jmdev.crazypic.config.ApplicationProperties;
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.security.UserIdentityCache;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service warming the user caches up: the {@link UserIdentityCache} used on the login and JWT paths, and the Hibernate
+ * second level cache regions of the {@link User} entity and of its authorities.
+ * <p>
+ * The recently active users, the activated ones modified within {@code active-within}, are read through a keyset
+ * pagination from the most recently modified one, and their pages are loaded by {@code concurrency} threads, until
+ * {@code max-users} users are loaded or the {@code time-budget} is spent.
+ * <p>
+ * The first warm-up runs on startup, before the application is ready: until it is over, the {@code readinessState}
+ * health indicator reports the application as refusing traffic, and so does the health check published to Eureka.
+ */
+@Service
+public class UserCacheWarmer implements ApplicationRunner {
+
+    private static final String THREAD_NAME_PREFIX = "crazy-pic-cache-warm-up-";
+
+    private final Logger log = LoggerFactory.getLogger(UserCacheWarmer.class);
+
+    private final UserRepository userRepository;
+
+    private final UserIdentityCache userIdentityCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.Cache.WarmUp properties;
+
+    public UserCacheWarmer(
+        UserRepository userRepository,
+        UserIdentityCache userIdentityCache,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
+        this.userRepository = userRepository;
+        this.userIdentityCache = userIdentityCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.properties = applicationProperties.getCache().getWarmUp();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.isEnabled()) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Warm the caches up again, for the users who became active or were evicted since the last warm-up.
+     * <p>
+     * This is scheduled to get fired every {@code refresh-interval}.
+     */
+    @Scheduled(
+        fixedDelayString = "${application.cache.warm-up.refresh-interval:PT1H}",
+        initialDelayString = "${application.cache.warm-up.refresh-interval:PT1H}"
+    )
+    public void refresh() {
+        if (properties.isEnabled()) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Load the recently active users in the caches, within the time budget.
+     *
+     * @return the number of loaded users.
+     */
+    public int warmUp() {
+        long start = System.nanoTime();
+        long deadline = start + properties.getTimeBudget().toNanos();
+        Instant since = Instant.now().minus(properties.getActiveWithin());
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, properties.getConcurrency()),
+            new CustomizableThreadFactory(THREAD_NAME_PREFIX)
+        );
+        List<Future<Integer>> pages = new ArrayList<>();
+        int loaded = 0;
+        try {
+            // the first page starts after any modification date, including the ones of a clock slightly ahead
+            Instant afterDate = Instant.now().plus(1, ChronoUnit.DAYS);
+            long afterId = Long.MAX_VALUE;
+            int remaining = properties.getMaxUsers();
+            while (remaining > 0 && System.nanoTime() < deadline) {
+                List<User> page = findPage(since, afterDate, afterId, Math.min(properties.getPageSize(), remaining));
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<Long> ids = page.stream().map(User::getId).collect(Collectors.toList());
+                pages.add(executor.submit(() -> userIdentityCache.preload(() -> findWithAuthorities(ids))));
+                User last = page.get(page.size() - 1);
+                afterDate = last.getLastModifiedDate();
+                afterId = last.getId();
+                remaining -= page.size();
+            }
+            for (Future<Integer> future : pages) {
+                loaded += future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            log.info("Warmed the user caches up with {} users in {} ms", loaded, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (TimeoutException e) {
+            log.warn("Stopped warming the user caches up after the {} time budget, with {} users", properties.getTimeBudget(), loaded);
+        } catch (DataAccessException e) {
+            log.warn("Could not warm the user caches up", e);
+        } catch (ExecutionException e) {
+            log.warn("Could not warm the user caches up", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return loaded;
+    }
+
+    private List<User> findPage(Instant since, Instant afterDate, long afterId, int size) {
+        return transactionTemplate.execute(status ->
+            userRepository.findRecentlyModifiedActivatedUsers(since, afterDate, afterId, PageRequest.of(0, size))
+        );
+    }
+
+    private List<User> findWithAuthorities(List<Long> ids) {
+        return transactionTemplate.execute(status -> userRepository.findAllWithAuthoritiesByIdIn(ids));
+    }
+}
@@ -0,0 +1,70 @@
+package com.jmdev.crazypic.service;
+
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.service.dto.AdminUserDTO;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service class for exporting all the users.
+ * <p>
+ * The users are streamed from the database and exported by chunks of {@value UserRepository#STREAM_FETCH_SIZE}: the
+ * authorities of a chunk are fetched at once, then the users of the chunk are exported and the persistence context is
+ * cleared, so that the memory used does not depend on the number of users. The users are not counted.
+ */
+@Service
+@Transactional(readOnly = true)
+public class UserExportService {
+
+    private final Logger log = LoggerFactory.getLogger(UserExportService.class);
+
+    private final UserRepository userRepository;
+
+    private final EntityManager entityManager;
+
+    public UserExportService(UserRepository userRepository, EntityManager entityManager) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Export all the users, in the order of their ids.
+     *
+     * @param exporter the consumer of the users, called as they are read.
+     * @return the number of exported users.
+     */
+    public long exportUsers(Consumer<AdminUserDTO> exporter) {
+        long exported = 0;
+        List<User> chunk = new ArrayList<>(UserRepository.STREAM_FETCH_SIZE);
+        try (Stream<User> users = userRepository.streamAllByOrderById()) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == UserRepository.STREAM_FETCH_SIZE || !iterator.hasNext()) {
+                    exportChunk(chunk, exporter);
+                    exported += chunk.size();
+                    chunk.clear();
+                }
+            }
+        }
+        log.debug("Exported {} users", exported);
+        return exported;
+    }
+
+    private void exportChunk(List<User> chunk, Consumer<AdminUserDTO> exporter) {
+        // initializes the authorities of the users of the chunk, which are already in the persistence context
+        userRepository.findAllWithAuthoritiesByIdIn(chunk.stream().map(User::getId).collect(Collectors.toList()));
+        chunk.forEach(user -> exporter.accept(new AdminUserDTO(user)));
+        entityManager.clear();
+    }
+}
@@ -1,27 +1,45 @@
 package com.jmdev.crazypic.service;
 
+import com.jmdev.crazypic.cache.CacheInvalidationBus;
 import com.jmdev.crazypic.config.Constants;
 import com.jmdev.crazypic.domain.Authority;
 import com.jmdev.crazypic.domain.User;
 import com.jmdev.crazypic.repository.AuthorityRepository;
+import com.jmdev.crazypic.repository.UserIdentityFilter;
 import com.jmdev.crazypic.repository.UserRepository;
 import com.jmdev.crazypic.security.AuthoritiesConstants;
 import com.jmdev.crazypic.security.SecurityUtils;
+import com.jmdev.crazypic.security.UnusablePasswordEncoder;
+import com.jmdev.crazypic.security.UserIdentityCache;
 import com.jmdev.crazypic.service.dto.AdminUserDTO;
+import com.jmdev.crazypic.service.dto.BulkUserOperationDTO;
+import com.jmdev.crazypic.service.dto.BulkUserResultDTO;
+import com.jmdev.crazypic.service.dto.KeysetPage;
 import com.jmdev.crazypic.service.dto.UserDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import tech.jhipster.security.RandomUtil;
 
 /**
@@ -31,6 +49,18 @@ import tech.jhipster.security.RandomUtil;
 @Transactional
 public class UserService {
 
+    public static final int PURGE_CHUNK_SIZE = 500;
+
+    public static final String PURGED_ROWS_METER_NAME = "user.purge.rows";
+    public static final String PURGED_ROWS_METER_DESCRIPTION =
+        "Indicates count of the rows deleted by the purge of the not activated users.";
+    public static final String PURGED_ROWS_METER_BASE_UNIT = "rows";
+    public static final String PURGE_DURATION_METER_NAME = "user.purge.duration";
+    public static final String PURGE_DURATION_METER_DESCRIPTION = "Indicates duration of the purges of the not activated users.";
+
+    // attempts of a write of a user, when the user was concurrently updated
+    private static final int USER_WRITE_ATTEMPTS = 3;
+
     private final Logger log = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
@@ -39,71 +69,116 @@ public class UserService {
 
     private final AuthorityRepository authorityRepository;
 
-    private final CacheManager cacheManager;
+    private final UserIdentityCache userIdentityCache;
+
+    private final UserIdentityFilter userIdentityFilter;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final MailService mailService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter purgedUserRows;
+
+    private final Counter purgedAuthorityRows;
+
+    private final Timer purgeDuration;
 
     public UserService(
         UserRepository userRepository,
         PasswordEncoder passwordEncoder,
         AuthorityRepository authorityRepository,
-        CacheManager cacheManager
+        UserIdentityCache userIdentityCache,
+        UserIdentityFilter userIdentityFilter,
+        CacheInvalidationBus cacheInvalidationBus,
+        MailService mailService,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry registry
     ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
-        this.cacheManager = cacheManager;
+        this.userIdentityCache = userIdentityCache;
+        this.userIdentityFilter = userIdentityFilter;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.mailService = mailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.purgedUserRows = purgedRowsCounter("jhi_user", registry);
+        this.purgedAuthorityRows = purgedRowsCounter("jhi_user_authority", registry);
+        this.purgeDuration = Timer.builder(PURGE_DURATION_METER_NAME).description(PURGE_DURATION_METER_DESCRIPTION).register(registry);
+    }
+
+    private static Counter purgedRowsCounter(String table, MeterRegistry registry) {
+        return Counter
+            .builder(PURGED_ROWS_METER_NAME)
+            .description(PURGED_ROWS_METER_DESCRIPTION)
+            .baseUnit(PURGED_ROWS_METER_BASE_UNIT)
+            .tag("table", table)
+            .register(registry);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Optional<User> activateRegistration(String key) {
         log.debug("Activating user for activation key {}", key);
-        return userRepository
-            .findOneByActivationKey(key)
-            .map(user -> {
-                // activate given user for the registration key.
-                user.setActivated(true);
-                user.setActivationKey(null);
-                this.clearUserCaches(user);
-                log.debug("Activated user: {}", user);
-                return user;
-            });
+        return writeUser(() ->
+            userRepository
+                .findOneByActivationKey(key)
+                .map(user -> {
+                    // activate given user for the registration key.
+                    user.setActivated(true);
+                    user.setActivationKey(null);
+                    this.clearUserCaches(user);
+                    log.debug("Activated user: {}", user);
+                    return user;
+                })
+        );
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Optional<User> completePasswordReset(String newPassword, String key) {
         log.debug("Reset user password for reset key {}", key);
-        return userRepository
-            .findOneByResetKey(key)
-            .filter(user -> user.getResetDate().isAfter(Instant.now().minus(1, ChronoUnit.DAYS)))
-            .map(user -> {
-                user.setPassword(passwordEncoder.encode(newPassword));
-                user.setResetKey(null);
-                user.setResetDate(null);
-                this.clearUserCaches(user);
-                return user;
-            });
+        return writeUser(() ->
+            userRepository
+                .findOneByResetKey(key)
+                .filter(user -> user.getResetDate().isAfter(Instant.now().minus(1, ChronoUnit.DAYS)))
+                .map(user -> {
+                    user.setPassword(passwordEncoder.encode(newPassword));
+                    user.setResetKey(null);
+                    user.setResetDate(null);
+                    this.clearUserCaches(user);
+                    return user;
+                })
+        );
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Optional<User> requestPasswordReset(String mail) {
-        return userRepository
-            .findOneByEmailIgnoreCase(mail)
-            .filter(User::isActivated)
-            .map(user -> {
-                user.setResetKey(RandomUtil.generateResetKey());
-                user.setResetDate(Instant.now());
-                this.clearUserCaches(user);
-                return user;
-            });
+        return writeUser(() ->
+            userRepository
+                .findOneByEmailIgnoreCase(mail)
+                .filter(User::isActivated)
+                .map(user -> {
+                    user.setResetKey(RandomUtil.generateResetKey());
+                    user.setResetDate(Instant.now());
+                    this.clearUserCaches(user);
+                    mailService.sendPasswordResetMail(user);
+                    return user;
+                })
+        );
     }
 
     public User registerUser(AdminUserDTO userDTO, String password) {
-        userRepository
-            .findOneByLogin(userDTO.getLogin().toLowerCase())
+        userIdentityFilter
+            .findByLogin(userDTO.getLogin().toLowerCase(), userRepository::findOneByLogin)
             .ifPresent(existingUser -> {
                 boolean removed = removeNonActivatedUser(existingUser);
                 if (!removed) {
                     throw new UsernameAlreadyUsedException();
                 }
             });
-        userRepository
-            .findOneByEmailIgnoreCase(userDTO.getEmail())
+        userIdentityFilter
+            .findByEmail(userDTO.getEmail(), userRepository::findOneByEmailIgnoreCase)
             .ifPresent(existingUser -> {
                 boolean removed = removeNonActivatedUser(existingUser);
                 if (!removed) {
@@ -131,6 +206,7 @@ public class UserService {
         newUser.setAuthorities(authorities);
         userRepository.save(newUser);
         this.clearUserCaches(newUser);
+        mailService.sendActivationEmail(newUser);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
     }
@@ -146,6 +222,25 @@ public class UserService {
     }
 
     public User createUser(AdminUserDTO userDTO) {
+        User user = newUser(userDTO);
+        if (userDTO.getAuthorities() != null) {
+            Set<Authority> authorities = userDTO
+                .getAuthorities()
+                .stream()
+                .map(authorityRepository::findById)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toSet());
+            user.setAuthorities(authorities);
+        }
+        userRepository.save(user);
+        this.clearUserCaches(user);
+        mailService.sendCreationEmail(user);
+        log.debug("Created Information for User: {}", user);
+        return user;
+    }
+
+    private User newUser(AdminUserDTO userDTO) {
         User user = new User();
         user.setLogin(userDTO.getLogin().toLowerCase());
         user.setFirstName(userDTO.getFirstName());
@@ -159,73 +254,193 @@ public class UserService {
         } else {
             user.setLangKey(userDTO.getLangKey());
         }
-        String encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
-        user.setPassword(encryptedPassword);
+        // no password matches until the user chooses one with the reset key
+        user.setPassword(UnusablePasswordEncoder.PASSWORD_HASH);
         user.setResetKey(RandomUtil.generateResetKey());
         user.setResetDate(Instant.now());
         user.setActivated(true);
-        if (userDTO.getAuthorities() != null) {
-            Set<Authority> authorities = userDTO
-                .getAuthorities()
-                .stream()
-                .map(authorityRepository::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toSet());
-            user.setAuthorities(authorities);
-        }
-        userRepository.save(user);
-        this.clearUserCaches(user);
-        log.debug("Created Information for User: {}", user);
         return user;
     }
 
+    /**
+     * Create, update and deactivate users in bulk.
+     * <p>
+     * The users with the logins and the emails of the operations are read by two queries, and the authorities by one,
+     * then the changes are written by JDBC batches when the transaction is flushed. An operation is rejected on its own
+     * if it conflicts with the existing users or with a previous operation. The created users get no password, which
+     * they choose with their reset key, and their creation mail is written to the outbox with them.
+     * <p>
+     * The operations are retried if a user was concurrently updated. If that keeps failing, each operation is applied in
+     * a transaction of its own, and rejected if its user keeps being concurrently updated, unless they are part of a
+     * transaction already.
+     *
+     * @param operations the operations, applied in order.
+     * @return the result of each operation, in the same order.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<BulkUserResultDTO> bulkUpdateUsers(List<BulkUserOperationDTO> operations) {
+        try {
+            return writeUser(() -> applyBulkOperations(operations));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw e;
+            }
+            log.debug("Applying {} User operations one by one, user {} was concurrently updated", operations.size(), e.getIdentifier());
+            return operations.stream().map(this::applyBulkOperation).collect(Collectors.toList());
+        }
+    }
+
+    private BulkUserResultDTO applyBulkOperation(BulkUserOperationDTO operation) {
+        try {
+            return writeUser(() -> applyBulkOperations(List.of(operation)).get(0));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return BulkUserResultDTO.rejected(operation.getUser().getLogin().toLowerCase(), "concurrentupdate");
+        }
+    }
+
+    private List<BulkUserResultDTO> applyBulkOperations(List<BulkUserOperationDTO> operations) {
+        Set<String> logins = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (BulkUserOperationDTO operation : operations) {
+            logins.add(operation.getUser().getLogin().toLowerCase());
+            if (operation.getUser().getEmail() != null) {
+                emails.add(operation.getUser().getEmail().toLowerCase());
+            }
+        }
+        Map<String, User> usersByLogin = userRepository
+            .findAllWithAuthoritiesByLoginIn(logins)
+            .stream()
+            .collect(Collectors.toMap(User::getLogin, Function.identity()));
+        Map<String, User> usersByEmail = new HashMap<>();
+        if (!emails.isEmpty()) {
+            userRepository
+                .findAllByUppercaseEmailIn(emails.stream().map(String::toUpperCase).collect(Collectors.toSet()))
+                .forEach(user -> usersByEmail.put(user.getEmail().toLowerCase(), user));
+        }
+        Map<String, Authority> authorities = authorityRepository
+            .findAll()
+            .stream()
+            .collect(Collectors.toMap(Authority::getName, Function.identity()));
+        List<User> createdUsers = new ArrayList<>();
+        List<BulkUserResultDTO> results = new ArrayList<>(operations.size());
+        for (BulkUserOperationDTO operation : operations) {
+            AdminUserDTO userDTO = operation.getUser();
+            String login = userDTO.getLogin().toLowerCase();
+            User user = usersByLogin.get(login);
+            User emailOwner = userDTO.getEmail() != null ? usersByEmail.get(userDTO.getEmail().toLowerCase()) : null;
+            if (operation.getAction() == BulkUserOperationDTO.Action.CREATE) {
+                if (userDTO.getId() != null) {
+                    results.add(BulkUserResultDTO.rejected(login, "idexists"));
+                } else if (user != null) {
+                    results.add(BulkUserResultDTO.rejected(login, "userexists"));
+                } else if (emailOwner != null) {
+                    results.add(BulkUserResultDTO.rejected(login, "emailexists"));
+                } else {
+                    user = newUser(userDTO);
+                    setAuthorities(user, userDTO.getAuthorities(), authorities);
+                    // the id is allocated from the sequence, the user is inserted when the transaction is flushed
+                    userRepository.save(user);
+                    usersByLogin.put(user.getLogin(), user);
+                    if (user.getEmail() != null) {
+                        usersByEmail.put(user.getEmail(), user);
+                    }
+                    createdUsers.add(user);
+                    results.add(BulkUserResultDTO.done(user.getId(), login, BulkUserResultDTO.Status.CREATED));
+                }
+            } else if (user == null) {
+                results.add(BulkUserResultDTO.rejected(login, "usernotfound"));
+            } else if (operation.getAction() == BulkUserOperationDTO.Action.UPDATE) {
+                if (emailOwner != null && emailOwner != user) {
+                    results.add(BulkUserResultDTO.rejected(login, "emailexists"));
+                } else {
+                    if (user.getEmail() != null) {
+                        usersByEmail.remove(user.getEmail().toLowerCase(), user);
+                    }
+                    user.setFirstName(userDTO.getFirstName());
+                    user.setLastName(userDTO.getLastName());
+                    if (userDTO.getEmail() != null) {
+                        user.setEmail(userDTO.getEmail().toLowerCase());
+                        usersByEmail.put(user.getEmail(), user);
+                    }
+                    user.setImageUrl(userDTO.getImageUrl());
+                    user.setActivated(userDTO.isActivated());
+                    user.setLangKey(userDTO.getLangKey());
+                    if (userDTO.getAuthorities() != null) {
+                        user.getAuthorities().clear();
+                        setAuthorities(user, userDTO.getAuthorities(), authorities);
+                    }
+                    this.clearUserCaches(user);
+                    results.add(BulkUserResultDTO.done(user.getId(), login, BulkUserResultDTO.Status.UPDATED));
+                }
+            } else {
+                user.setActivated(false);
+                this.clearUserCaches(user);
+                results.add(BulkUserResultDTO.done(user.getId(), login, BulkUserResultDTO.Status.DEACTIVATED));
+            }
+        }
+        createdUsers.forEach(mailService::sendCreationEmail);
+        log.debug("Applied {} User operations, {} created", operations.size(), createdUsers.size());
+        return results;
+    }
+
+    private static void setAuthorities(User user, Set<String> names, Map<String, Authority> authorities) {
+        if (names != null) {
+            names.stream().map(authorities::get).filter(Objects::nonNull).forEach(user.getAuthorities()::add);
+        }
+    }
+
     /**
      * Update all information for a specific user, and return the modified user.
      *
      * @param userDTO user to update.
      * @return updated user.
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Optional<AdminUserDTO> updateUser(AdminUserDTO userDTO) {
-        return Optional
-            .of(userRepository.findById(userDTO.getId()))
-            .filter(Optional::isPresent)
-            .map(Optional::get)
-            .map(user -> {
-                this.clearUserCaches(user);
-                user.setLogin(userDTO.getLogin().toLowerCase());
-                user.setFirstName(userDTO.getFirstName());
-                user.setLastName(userDTO.getLastName());
-                if (userDTO.getEmail() != null) {
-                    user.setEmail(userDTO.getEmail().toLowerCase());
-                }
-                user.setImageUrl(userDTO.getImageUrl());
-                user.setActivated(userDTO.isActivated());
-                user.setLangKey(userDTO.getLangKey());
-                Set<Authority> managedAuthorities = user.getAuthorities();
-                managedAuthorities.clear();
-                userDTO
-                    .getAuthorities()
-                    .stream()
-                    .map(authorityRepository::findById)
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
-                    .forEach(managedAuthorities::add);
-                this.clearUserCaches(user);
-                log.debug("Changed Information for User: {}", user);
-                return user;
-            })
-            .map(AdminUserDTO::new);
+        return writeUser(() ->
+            Optional
+                .of(userRepository.findById(userDTO.getId()))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .map(user -> {
+                    this.clearUserCaches(user);
+                    user.setLogin(userDTO.getLogin().toLowerCase());
+                    user.setFirstName(userDTO.getFirstName());
+                    user.setLastName(userDTO.getLastName());
+                    if (userDTO.getEmail() != null) {
+                        user.setEmail(userDTO.getEmail().toLowerCase());
+                    }
+                    user.setImageUrl(userDTO.getImageUrl());
+                    user.setActivated(userDTO.isActivated());
+                    user.setLangKey(userDTO.getLangKey());
+                    Set<Authority> managedAuthorities = user.getAuthorities();
+                    managedAuthorities.clear();
+                    userDTO
+                        .getAuthorities()
+                        .stream()
+                        .map(authorityRepository::findById)
+                        .filter(Optional::isPresent)
+                        .map(Optional::get)
+                        .forEach(managedAuthorities::add);
+                    this.clearUserCaches(user);
+                    log.debug("Changed Information for User: {}", user);
+                    return user;
+                })
+                .map(AdminUserDTO::new)
+        );
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void deleteUser(String login) {
-        userRepository
-            .findOneByLogin(login)
-            .ifPresent(user -> {
-                userRepository.delete(user);
-                this.clearUserCaches(user);
-                log.debug("Deleted User: {}", user);
-            });
+        writeUser(() ->
+            userRepository
+                .findOneByLogin(login)
+                .ifPresent(user -> {
+                    userRepository.delete(user);
+                    this.clearUserCaches(user);
+                    log.debug("Deleted User: {}", user);
+                })
+        );
     }
 
     /**
@@ -237,38 +452,64 @@ public class UserService {
      * @param langKey   language key.
      * @param imageUrl  image URL of user.
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void updateUser(String firstName, String lastName, String email, String langKey, String imageUrl) {
-        SecurityUtils
-            .getCurrentUserLogin()
-            .flatMap(userRepository::findOneByLogin)
-            .ifPresent(user -> {
-                user.setFirstName(firstName);
-                user.setLastName(lastName);
-                if (email != null) {
-                    user.setEmail(email.toLowerCase());
-                }
-                user.setLangKey(langKey);
-                user.setImageUrl(imageUrl);
-                this.clearUserCaches(user);
-                log.debug("Changed Information for User: {}", user);
-            });
+        writeUser(() ->
+            SecurityUtils
+                .getCurrentUserLogin()
+                .flatMap(userRepository::findOneByLogin)
+                .ifPresent(user -> {
+                    user.setFirstName(firstName);
+                    user.setLastName(lastName);
+                    if (email != null) {
+                        user.setEmail(email.toLowerCase());
+                    }
+                    user.setLangKey(langKey);
+                    user.setImageUrl(imageUrl);
+                    this.clearUserCaches(user);
+                    log.debug("Changed Information for User: {}", user);
+                })
+        );
     }
 
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void changePassword(String currentClearTextPassword, String newPassword) {
-        SecurityUtils
-            .getCurrentUserLogin()
-            .flatMap(userRepository::findOneByLogin)
-            .ifPresent(user -> {
-                String currentEncryptedPassword = user.getPassword();
-                if (!passwordEncoder.matches(currentClearTextPassword, currentEncryptedPassword)) {
-                    throw new InvalidPasswordException();
-                }
-                String encryptedPassword = passwordEncoder.encode(newPassword);
-                user.setPassword(encryptedPassword);
-                this.clearUserCaches(user);
-                log.debug("Changed password for User: {}", user);
-            });
+        writeUser(() ->
+            SecurityUtils
+                .getCurrentUserLogin()
+                .flatMap(userRepository::findOneByLogin)
+                .ifPresent(user -> {
+                    String currentEncryptedPassword = user.getPassword();
+                    if (!passwordEncoder.matches(currentClearTextPassword, currentEncryptedPassword)) {
+                        throw new InvalidPasswordException();
+                    }
+                    String encryptedPassword = passwordEncoder.encode(newPassword);
+                    user.setPassword(encryptedPassword);
+                    this.clearUserCaches(user);
+                    log.debug("Changed password for User: {}", user);
+                })
+        );
+    }
+
+    /**
+     * Replace the stored hash of a user by the same password encoded in the current target format.
+     *
+     * @param login the login of the user.
+     * @param encryptedPassword the new hash of the password.
+     * @return the updated user, if any.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<User> upgradePassword(String login, String encryptedPassword) {
+        return writeUser(() ->
+            userRepository
+                .findOneByLogin(login)
+                .map(user -> {
+                    user.setPassword(encryptedPassword);
+                    this.clearUserCaches(user);
+                    log.debug("Upgraded password hash for User: {}", login);
+                    return user;
+                })
+        );
     }
 
     @Transactional(readOnly = true)
@@ -278,7 +519,52 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public Page<UserDTO> getAllPublicUsers(Pageable pageable) {
-        return userRepository.findAllByIdNotNullAndActivatedIsTrue(pageable).map(UserDTO::new);
+        return userRepository.findAllPublicUsers(pageable);
+    }
+
+    /**
+     * Get a page of the users, through keyset pagination.
+     *
+     * @param sort the sort, by properties which cannot be {@code null}, followed by the {@code id} unless it contains the
+     * {@code id} or the {@code login}.
+     * @param cursor the cursor of the previous page, {@code null} or empty for the first page.
+     * @param size the size of the page.
+     * @return the page of the users.
+     * @throws InvalidCursorException if the cursor is invalid.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<AdminUserDTO> getAllManagedUsers(Sort sort, String cursor, int size) {
+        return getUsersAfter(false, sort, cursor, size, AdminUserDTO::new);
+    }
+
+    /**
+     * Get a page of the activated users, through keyset pagination.
+     *
+     * @param sort the sort, by properties which cannot be {@code null}, followed by the {@code id} unless it contains the
+     * {@code id} or the {@code login}.
+     * @param cursor the cursor of the previous page, {@code null} or empty for the first page.
+     * @param size the size of the page.
+     * @return the page of the users.
+     * @throws InvalidCursorException if the cursor is invalid.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<UserDTO> getAllPublicUsers(Sort sort, String cursor, int size) {
+        return getUsersAfter(true, sort, cursor, size, UserDTO::new);
+    }
+
+    private <T> KeysetPage<T> getUsersAfter(boolean activatedOnly, Sort sort, String cursor, int size, Function<User, T> mapper) {
+        Sort keysetSort = KeysetCursor.keysetSort(sort);
+        List<Object> after = cursor == null || cursor.isEmpty() ? null : KeysetCursor.decode(cursor, keysetSort);
+        // one more user tells whether there is a next page, without counting the users
+        List<User> users = userRepository.findAllAfter(activatedOnly, keysetSort, after, size + 1);
+        if (users.size() <= size) {
+            return new KeysetPage<>(users.stream().map(mapper).collect(Collectors.toList()), null);
+        }
+        List<User> page = users.subList(0, size);
+        return new KeysetPage<>(
+            page.stream().map(mapper).collect(Collectors.toList()),
+            KeysetCursor.encode(keysetSort, page.get(size - 1))
+        );
     }
 
     @Transactional(readOnly = true)
@@ -286,25 +572,93 @@ public class UserService {
         return userRepository.findOneWithAuthoritiesByLogin(login);
     }
 
+    /**
+     * Get the id and the current version of a user, without loading the user: the identity cache may be behind the
+     * database, as on the instances which do not share their invalidations.
+     *
+     * @param login the login of the user.
+     * @return the id and the version of the user, or empty if there is no such user.
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserRepository.IdAndVersion> getUserVersionByLogin(String login) {
+        return userRepository.findIdAndVersionByLogin(login);
+    }
+
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthorities() {
         return SecurityUtils.getCurrentUserLogin().flatMap(userRepository::findOneWithAuthoritiesByLogin);
     }
 
+    /**
+     * Run a write of a user in a transaction, retried if the user was concurrently updated, unless it is part of a
+     * transaction already.
+     * <p>
+     * The version of the users is only meant to tell their representations apart: the writes, such as the activation,
+     * the upgrade of the password hash at login, or an update of the account, win over the concurrent ones instead of
+     * failing.
+     *
+     * @param write the write, reading the user again.
+     * @return the result of the write.
+     */
+    private <T> T writeUser(Supplier<T> write) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> write.get());
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (attempt == USER_WRITE_ATTEMPTS || TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw e;
+                }
+                log.debug("Retrying a write of user {}, which was concurrently updated", e.getIdentifier());
+            }
+        }
+    }
+
+    private void writeUser(Runnable write) {
+        writeUser(() -> {
+            write.run();
+            return null;
+        });
+    }
+
     /**
      * Not activated users should be automatically deleted after 3 days.
      * <p>
+     * They are deleted by chunks of {@value #PURGE_CHUNK_SIZE}, each in its own transaction: the ids of a chunk are
+     * locked, then their authorities and the users are deleted by two statements, and the caches are invalidated once
+     * for the whole chunk. The deleted rows are counted in the {@value #PURGED_ROWS_METER_NAME} meter, by table, and the
+     * purges are timed in the {@value #PURGE_DURATION_METER_NAME} meter.
+     * <p>
      * This is scheduled to get fired everyday, at 01:00 (am).
      */
     @Scheduled(cron = "0 0 1 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeNotActivatedUsers() {
-        userRepository
-            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant.now().minus(3, ChronoUnit.DAYS))
-            .forEach(user -> {
-                log.debug("Deleting not activated user {}", user.getLogin());
-                userRepository.delete(user);
-                this.clearUserCaches(user);
-            });
+        Instant createdBefore = Instant.now().minus(3, ChronoUnit.DAYS);
+        long purged = purgeDuration.record(() -> {
+            long users = 0;
+            int chunk;
+            do {
+                chunk = Objects.requireNonNull(transactionTemplate.execute(status -> purgeNotActivatedUsers(createdBefore)));
+                users += chunk;
+            } while (chunk == PURGE_CHUNK_SIZE);
+            return users;
+        });
+        log.info("Deleted {} not activated users", purged);
+    }
+
+    private int purgeNotActivatedUsers(Instant createdBefore) {
+        List<Long> ids = userRepository.findNotActivatedUserIdsCreatedBefore(createdBefore, PageRequest.of(0, PURGE_CHUNK_SIZE));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        purgedAuthorityRows.increment(userRepository.deleteAuthoritiesByUserIdIn(ids));
+        purgedUserRows.increment(userRepository.deleteUsersByIdIn(ids));
+        userIdentityCache.evictAll(ids);
+        // the local second level cache regions were invalidated by the deletes
+        cacheInvalidationBus.publishAll(User.class.getName(), ids);
+        cacheInvalidationBus.publishAll(User.class.getName() + ".authorities", ids);
+        log.debug("Deleted not activated users {}", ids);
+        return ids.size();
     }
 
     /**
@@ -317,9 +671,9 @@ public class UserService {
     }
 
     private void clearUserCaches(User user) {
-        Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE)).evict(user.getLogin());
-        if (user.getEmail() != null) {
-            Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE)).evict(user.getEmail());
-        }
+        userIdentityCache.evict(user);
+        // the local second level cache is kept up to date by Hibernate
+        cacheInvalidationBus.publish(User.class.getName(), user.getId());
+        cacheInvalidationBus.publish(User.class.getName() + ".authorities", user.getId());
     }
 }
@@ -0,0 +1,59 @@
+package com.jmdev.crazypic.service.dto;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+/**
+ * A DTO representing an operation of a bulk user administration: the creation, update or deactivation of a user.
+ * <p>
+ * The users to update or deactivate are identified by their login, which cannot be changed in bulk.
+ */
+public class BulkUserOperationDTO {
+
+    public enum Action {
+        CREATE,
+        UPDATE,
+        DEACTIVATE,
+    }
+
+    @NotNull
+    private Action action;
+
+    @NotNull
+    @Valid
+    private AdminUserDTO user;
+
+    public BulkUserOperationDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public BulkUserOperationDTO(Action action, AdminUserDTO user) {
+        this.action = action;
+        this.user = user;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public AdminUserDTO getUser() {
+        return user;
+    }
+
+    public void setUser(AdminUserDTO user) {
+        this.user = user;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BulkUserOperationDTO{" +
+            "action=" + action +
+            ", user=" + user +
+            "}";
+    }
+}
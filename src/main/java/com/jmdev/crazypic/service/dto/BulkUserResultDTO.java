@@ -0,0 +1,70 @@
+package com.jmdev.crazypic.service.dto;
+
+/**
+ * A DTO representing the result of an operation of a bulk user administration.
+ */
+public class BulkUserResultDTO {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DEACTIVATED,
+        REJECTED,
+    }
+
+    private final Long id;
+
+    private final String login;
+
+    private final Status status;
+
+    private final String error;
+
+    private BulkUserResultDTO(Long id, String login, Status status, String error) {
+        this.id = id;
+        this.login = login;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static BulkUserResultDTO done(Long id, String login, Status status) {
+        return new BulkUserResultDTO(id, login, status, null);
+    }
+
+    public static BulkUserResultDTO rejected(String login, String error) {
+        return new BulkUserResultDTO(null, login, Status.REJECTED, error);
+    }
+
+    /**
+     * @return the id of the user, {@code null} if the operation was rejected.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the key of the error the operation was rejected with, {@code null} if it was not rejected.
+     */
+    public String getError() {
+        return error;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BulkUserResultDTO{" +
+            "id=" + id +
+            ", login='" + login + '\'' +
+            ", status=" + status +
+            ", error='" + error + '\'' +
+            "}";
+    }
+}
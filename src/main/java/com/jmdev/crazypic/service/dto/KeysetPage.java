@@ -0,0 +1,35 @@
+package com.jmdev.crazypic.service.dto;
+
+import java.util.List;
+
+/**
+ * A page of a keyset pagination, with the cursor of the next page.
+ *
+ * @param <T> the type of the content.
+ */
+public class KeysetPage<T> {
+
+    private final List<T> content;
+
+    private final String nextCursor;
+
+    public KeysetPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the opaque cursor of the next page, {@code null} if this page is the last one.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -2,8 +2,8 @@ package com.jmdev.crazypic.web.rest;
 
 import com.jmdev.crazypic.domain.User;
 import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.security.PasswordHashingRejectedException;
 import com.jmdev.crazypic.security.SecurityUtils;
-import com.jmdev.crazypic.service.MailService;
 import com.jmdev.crazypic.service.UserService;
 import com.jmdev.crazypic.service.dto.AdminUserDTO;
 import com.jmdev.crazypic.service.dto.PasswordChangeDTO;
@@ -11,16 +11,27 @@ import com.jmdev.crazypic.web.rest.errors.*;
 import com.jmdev.crazypic.web.rest.vm.KeyAndPasswordVM;
 import com.jmdev.crazypic.web.rest.vm.ManagedUserVM;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 import org.springframework.web.bind.annotation.*;
 
 /**
  * REST controller for managing the current user's account.
+ * <p>
+ * The registration and the password changes run on the password hashing executor, as the login does, so the request
+ * thread is released while the password is hashed, and they are rejected with a {@code 503} when the executor is
+ * saturated.
  */
 @RestController
 @RequestMapping("/api")
@@ -39,30 +50,34 @@ public class AccountResource {
 
     private final UserService userService;
 
-    private final MailService mailService;
+    private final ExecutorService passwordHashingExecutor;
 
-    public AccountResource(UserRepository userRepository, UserService userService, MailService mailService) {
+    public AccountResource(
+        UserRepository userRepository,
+        UserService userService,
+        @Qualifier("passwordHashingExecutor") ExecutorService passwordHashingExecutor
+    ) {
         this.userRepository = userRepository;
         this.userService = userService;
-        this.mailService = mailService;
+        this.passwordHashingExecutor = passwordHashingExecutor;
     }
 
     /**
      * {@code POST  /register} : register the user.
      *
      * @param managedUserVM the managed user View Model.
+     * @return the completion of the registration.
      * @throws InvalidPasswordException {@code 400 (Bad Request)} if the password is incorrect.
      * @throws EmailAlreadyUsedException {@code 400 (Bad Request)} if the email is already used.
      * @throws LoginAlreadyUsedException {@code 400 (Bad Request)} if the login is already used.
      */
     @PostMapping("/register")
     @ResponseStatus(HttpStatus.CREATED)
-    public void registerAccount(@Valid @RequestBody ManagedUserVM managedUserVM) {
+    public CompletableFuture<Void> registerAccount(@Valid @RequestBody ManagedUserVM managedUserVM) {
         if (isPasswordLengthInvalid(managedUserVM.getPassword())) {
             throw new InvalidPasswordException();
         }
-        User user = userService.registerUser(managedUserVM, managedUserVM.getPassword());
-        mailService.sendActivationEmail(user);
+        return runOnPasswordHashingExecutor(() -> userService.registerUser(managedUserVM, managedUserVM.getPassword()));
     }
 
     /**
@@ -94,15 +109,25 @@ public class AccountResource {
     /**
      * {@code GET  /account} : get the current user.
      *
-     * @return the current user.
+     * @param ifNoneMatch the entity tag of the current user known to the client, if any.
+     * @return the current user, or status {@code 304 (Not Modified)} if it did not change.
      * @throws RuntimeException {@code 500 (Internal Server Error)} if the user couldn't be returned.
      */
     @GetMapping("/account")
-    public AdminUserDTO getAccount() {
-        return userService
-            .getUserWithAuthorities()
-            .map(AdminUserDTO::new)
-            .orElseThrow(() -> new AccountResourceException("User could not be found"));
+    public ResponseEntity<AdminUserDTO> getAccount(
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        if (ifNoneMatch != null) {
+            Optional<String> etag = SecurityUtils
+                .getCurrentUserLogin()
+                .flatMap(userService::getUserVersionByLogin)
+                .map(UserETags::of);
+            if (etag.isPresent() && UserETags.matches(ifNoneMatch, etag.get())) {
+                return UserETags.notModified(etag.get());
+            }
+        }
+        User user = userService.getUserWithAuthorities().orElseThrow(() -> new AccountResourceException("User could not be found"));
+        return UserETags.ok(UserETags.of(user), new AdminUserDTO(user));
     }
 
     /**
@@ -138,14 +163,17 @@ public class AccountResource {
      * {@code POST  /account/change-password} : changes the current user's password.
      *
      * @param passwordChangeDto current and new password.
+     * @return the completion of the change.
      * @throws InvalidPasswordException {@code 400 (Bad Request)} if the new password is incorrect.
      */
     @PostMapping(path = "/account/change-password")
-    public void changePassword(@RequestBody PasswordChangeDTO passwordChangeDto) {
+    public CompletableFuture<Void> changePassword(@RequestBody PasswordChangeDTO passwordChangeDto) {
         if (isPasswordLengthInvalid(passwordChangeDto.getNewPassword())) {
             throw new InvalidPasswordException();
         }
-        userService.changePassword(passwordChangeDto.getCurrentPassword(), passwordChangeDto.getNewPassword());
+        return runOnPasswordHashingExecutor(
+            () -> userService.changePassword(passwordChangeDto.getCurrentPassword(), passwordChangeDto.getNewPassword())
+        );
     }
 
     /**
@@ -156,9 +184,7 @@ public class AccountResource {
     @PostMapping(path = "/account/reset-password/init")
     public void requestPasswordReset(@RequestBody String mail) {
         Optional<User> user = userService.requestPasswordReset(mail);
-        if (user.isPresent()) {
-            mailService.sendPasswordResetMail(user.get());
-        } else {
+        if (user.isEmpty()) {
             // Pretend the request has been successful to prevent checking which emails really exist
             // but log that an invalid attempt has been made
             log.warn("Password reset requested for non existing mail");
@@ -169,18 +195,38 @@ public class AccountResource {
      * {@code POST   /account/reset-password/finish} : Finish to reset the password of the user.
      *
      * @param keyAndPassword the generated key and the new password.
+     * @return the completion of the reset.
      * @throws InvalidPasswordException {@code 400 (Bad Request)} if the password is incorrect.
      * @throws RuntimeException {@code 500 (Internal Server Error)} if the password could not be reset.
      */
     @PostMapping(path = "/account/reset-password/finish")
-    public void finishPasswordReset(@RequestBody KeyAndPasswordVM keyAndPassword) {
+    public CompletableFuture<Void> finishPasswordReset(@RequestBody KeyAndPasswordVM keyAndPassword) {
         if (isPasswordLengthInvalid(keyAndPassword.getNewPassword())) {
             throw new InvalidPasswordException();
         }
-        Optional<User> user = userService.completePasswordReset(keyAndPassword.getNewPassword(), keyAndPassword.getKey());
+        return runOnPasswordHashingExecutor(
+            () -> {
+                Optional<User> user = userService.completePasswordReset(keyAndPassword.getNewPassword(), keyAndPassword.getKey());
+
+                if (!user.isPresent()) {
+                    throw new AccountResourceException("No user was found for this reset key");
+                }
+            }
+        );
+    }
 
-        if (!user.isPresent()) {
-            throw new AccountResourceException("No user was found for this reset key");
+    /**
+     * Runs a task hashing a password on the password hashing executor, with the security context of the request.
+     *
+     * @param task the task.
+     * @return the completion of the task.
+     * @throws PasswordHashingRejectedException if the executor is saturated.
+     */
+    private CompletableFuture<Void> runOnPasswordHashingExecutor(Runnable task) {
+        try {
+            return CompletableFuture.runAsync(new DelegatingSecurityContextRunnable(task), passwordHashingExecutor);
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingRejectedException("Password hashing capacity exceeded", e);
         }
     }
 
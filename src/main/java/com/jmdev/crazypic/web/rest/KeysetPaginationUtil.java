@@ -0,0 +1,37 @@
+package com.jmdev.crazypic.web.rest;
+
+import com.jmdev.crazypic.service.dto.KeysetPage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling the keyset pagination.
+ * <p>
+ * Unlike the offset pagination of {@link tech.jhipster.web.util.PaginationUtil}, there is no {@code X-Total-Count}
+ * header, as the users are not counted, and the only link is the one to the next page, when there is one.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String CURSOR_PARAMETER = "cursor";
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private KeysetPaginationUtil() {}
+
+    /**
+     * Generate the pagination headers of a keyset page.
+     *
+     * @param uriBuilder the builder of the URI of the current page.
+     * @param page the page.
+     * @return the {@code X-Next-Cursor} and {@code Link} headers, empty if the page is the last one.
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(UriComponentsBuilder uriBuilder, KeysetPage<?> page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.hasNext()) {
+            String next = uriBuilder.replaceQueryParam("page").replaceQueryParam(CURSOR_PARAMETER, page.getNextCursor()).toUriString();
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+}
@@ -1,6 +1,7 @@
 package com.jmdev.crazypic.web.rest;
 
 import com.jmdev.crazypic.service.UserService;
+import com.jmdev.crazypic.service.dto.KeysetPage;
 import com.jmdev.crazypic.service.dto.UserDTO;
 import java.util.*;
 import java.util.Collections;
@@ -24,6 +25,9 @@ public class PublicUserResource {
         Arrays.asList("id", "login", "firstName", "lastName", "email", "activated", "langKey")
     );
 
+    // the sort values are written in the cursors, and the keyset pagination needs properties which cannot be null
+    private static final List<String> ALLOWED_KEYSET_ORDERED_PROPERTIES = List.of("id", "login");
+
     private final Logger log = LoggerFactory.getLogger(PublicUserResource.class);
 
     private final UserService userService;
@@ -35,16 +39,37 @@ public class PublicUserResource {
     /**
      * {@code GET /users} : get all users with only the public informations - calling this are allowed for anyone.
      *
+     * <p>
+     * With a {@code cursor} parameter, empty for the first page, the users are paginated by keyset rather than by offset:
+     * they are not counted, and the {@code X-Next-Cursor} header holds the cursor of the next page. This pagination
+     * is only sorted by {@code id} or {@code login}.
+     *
      * @param pageable the pagination information.
+     * @param cursor the cursor of the keyset pagination.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
      */
     @GetMapping("/users")
-    public ResponseEntity<List<UserDTO>> getAllPublicUsers(Pageable pageable) {
+    public ResponseEntity<List<UserDTO>> getAllPublicUsers(
+        Pageable pageable,
+        @RequestParam(name = KeysetPaginationUtil.CURSOR_PARAMETER, required = false) String cursor
+    ) {
         log.debug("REST request to get all public User names");
         if (!onlyContainsAllowedProperties(pageable)) {
             return ResponseEntity.badRequest().build();
         }
 
+        if (cursor != null) {
+            if (!onlyContainsAllowedKeysetProperties(pageable)) {
+                return ResponseEntity.badRequest().build();
+            }
+            KeysetPage<UserDTO> page = userService.getAllPublicUsers(pageable.getSort(), cursor, pageable.getPageSize());
+            HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                page
+            );
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        }
+
         final Page<UserDTO> page = userService.getAllPublicUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
@@ -54,6 +79,10 @@ public class PublicUserResource {
         return pageable.getSort().stream().map(Sort.Order::getProperty).allMatch(ALLOWED_ORDERED_PROPERTIES::contains);
     }
 
+    private boolean onlyContainsAllowedKeysetProperties(Pageable pageable) {
+        return pageable.getSort().stream().map(Sort.Order::getProperty).allMatch(ALLOWED_KEYSET_ORDERED_PROPERTIES::contains);
+    }
+
     /**
      * Gets a list of all roles.
      * @return a string list of all roles.
@@ -0,0 +1,65 @@
+package com.jmdev.crazypic.web.rest;
+
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.UserRepository;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Entity tags of the representations of a user, made of its id and of its version, which is incremented on every
+ * update of the user.
+ * <p>
+ * The version is first looked up alone, so that an unchanged user is answered with {@code 304 (Not Modified)} without
+ * loading the user nor serializing it. It is read from the database rather than from the identity cache, which may be
+ * behind it.
+ */
+final class UserETags {
+
+    /**
+     * The representations may be cached by the client only, and must be revalidated.
+     */
+    static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private UserETags() {}
+
+    static String of(User user) {
+        return of(user.getId(), user.getVersion());
+    }
+
+    static String of(UserRepository.IdAndVersion version) {
+        return of(version.getId(), version.getVersion());
+    }
+
+    private static String of(long id, long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Check an {@code If-None-Match} header, with the weak comparison it calls for.
+     *
+     * @param ifNoneMatch the header value, {@code null} if there is none.
+     * @param etag the current entity tag.
+     * @return whether the client already has the current representation.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CACHE_CONTROL).build();
+    }
+
+    static <T> ResponseEntity<T> ok(String etag, T body) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CACHE_CONTROL).body(body);
+    }
+}
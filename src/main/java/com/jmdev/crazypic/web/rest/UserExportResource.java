@@ -0,0 +1,161 @@
+package com.jmdev.crazypic.web.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jmdev.crazypic.security.AuthoritiesConstants;
+import com.jmdev.crazypic.service.UserExportService;
+import com.jmdev.crazypic.service.dto.AdminUserDTO;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for exporting all the users at once.
+ * <p>
+ * The users are written to the response as they are read from the database, as newline delimited JSON or as CSV,
+ * instead of being paginated: the export is neither counted nor held in memory.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@Validated
+public class UserExportResource {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    public static final String CSV_VALUE = "text/csv";
+
+    private static final String NDJSON = "ndjson";
+
+    private static final String CSV = "csv";
+
+    // the first characters of the values which spreadsheets would run as formulas
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private static final String[] CSV_HEADER = {
+        "id",
+        "login",
+        "firstName",
+        "lastName",
+        "email",
+        "imageUrl",
+        "activated",
+        "langKey",
+        "createdBy",
+        "createdDate",
+        "lastModifiedBy",
+        "lastModifiedDate",
+        "authorities",
+    };
+
+    private final Logger log = LoggerFactory.getLogger(UserExportResource.class);
+
+    private final UserExportService userExportService;
+
+    private final ObjectWriter objectWriter;
+
+    public UserExportResource(UserExportService userExportService, ObjectMapper objectMapper) {
+        this.userExportService = userExportService;
+        // the writer is shared by all the users, and flushed once they are all written
+        this.objectWriter =
+            objectMapper
+                .writerFor(AdminUserDTO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * {@code GET /admin/export/users} : export all users with all the details.
+     *
+     * @param format the format of the export: {@code ndjson}, one JSON user per line, or {@code csv}, with the
+     * authorities of a user separated by spaces.
+     * @param response the response the users are written to.
+     * @throws IOException if the users cannot be written to the response.
+     */
+    @GetMapping("/export/users")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public void exportUsers(
+        @RequestParam(defaultValue = NDJSON) @Pattern(regexp = NDJSON + "|" + CSV) String format,
+        HttpServletResponse response
+    ) throws IOException {
+        log.debug("REST request to export all Users as {}", format);
+        response.setContentType((NDJSON.equals(format) ? NDJSON_VALUE : CSV_VALUE) + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("users." + format).build().toString());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        try {
+            if (NDJSON.equals(format)) {
+                userExportService.exportUsers(user -> writeJsonLine(writer, user));
+            } else {
+                writer.write(csvLine((Object[]) CSV_HEADER));
+                userExportService.exportUsers(user -> writeCsvLine(writer, user));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeJsonLine(Writer writer, AdminUserDTO user) {
+        try {
+            objectWriter.writeValue(writer, user);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsvLine(Writer writer, AdminUserDTO user) {
+        try {
+            writer.write(
+                csvLine(
+                    user.getId(),
+                    user.getLogin(),
+                    user.getFirstName(),
+                    user.getLastName(),
+                    user.getEmail(),
+                    user.getImageUrl(),
+                    user.isActivated(),
+                    user.getLangKey(),
+                    user.getCreatedBy(),
+                    user.getCreatedDate(),
+                    user.getLastModifiedBy(),
+                    user.getLastModifiedDate(),
+                    user.getAuthorities() != null ? String.join(" ", user.getAuthorities()) : null
+                )
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csvLine(Object... values) {
+        return Stream.of(values).map(value -> csvValue(Objects.toString(value, ""))).collect(Collectors.joining(",", "", "\r\n"));
+    }
+
+    private static String csvValue(String value) {
+        if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+            // not run as a formula by the spreadsheets opening the export
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
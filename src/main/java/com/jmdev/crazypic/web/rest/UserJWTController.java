@@ -1,21 +1,33 @@
 package com.jmdev.crazypic.web.rest;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.jmdev.crazypic.security.BoundedPasswordEncoder;
+import com.jmdev.crazypic.security.PasswordHashingRejectedException;
 import com.jmdev.crazypic.security.jwt.JWTFilter;
 import com.jmdev.crazypic.security.jwt.TokenProvider;
 import com.jmdev.crazypic.web.rest.vm.LoginVM;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.validation.Valid;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 /**
  * Controller to authenticate users.
+ * <p>
+ * The authentication runs on the password hashing executor, so the request thread is released while the password is
+ * checked, and a login is rejected with a {@code 503} when the executor is saturated. The wait of the logins for a
+ * thread of the executor is timed in the {@value BoundedPasswordEncoder#QUEUE_WAIT_METER_NAME} meter, and the matching of
+ * their password by the {@link BoundedPasswordEncoder}.
  */
 @RestController
 @RequestMapping("/api")
@@ -25,24 +37,50 @@ public class UserJWTController {
 
     private final AuthenticationManagerBuilder authenticationManagerBuilder;
 
-    public UserJWTController(TokenProvider tokenProvider, AuthenticationManagerBuilder authenticationManagerBuilder) {
+    private final ExecutorService passwordHashingExecutor;
+
+    private final Timer queueWait;
+
+    public UserJWTController(
+        TokenProvider tokenProvider,
+        AuthenticationManagerBuilder authenticationManagerBuilder,
+        @Qualifier("passwordHashingExecutor") ExecutorService passwordHashingExecutor,
+        MeterRegistry meterRegistry
+    ) {
         this.tokenProvider = tokenProvider;
         this.authenticationManagerBuilder = authenticationManagerBuilder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.queueWait = BoundedPasswordEncoder.queueWaitTimer(meterRegistry, "authenticate");
     }
 
     @PostMapping("/authenticate")
-    public ResponseEntity<JWTToken> authorize(@Valid @RequestBody LoginVM loginVM) {
+    public CompletableFuture<ResponseEntity<JWTToken>> authorize(@Valid @RequestBody LoginVM loginVM) {
         UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
             loginVM.getUsername(),
             loginVM.getPassword()
         );
 
-        Authentication authentication = authenticationManagerBuilder.getObject().authenticate(authenticationToken);
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = tokenProvider.createToken(authentication, loginVM.isRememberMe());
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
-        return new ResponseEntity<>(new JWTToken(jwt), httpHeaders, HttpStatus.OK);
+        long submitted = System.nanoTime();
+        try {
+            return CompletableFuture
+                .supplyAsync(
+                    () -> {
+                        queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                        return authenticationManagerBuilder.getObject().authenticate(authenticationToken);
+                    },
+                    passwordHashingExecutor
+                )
+                .thenApply(
+                    authentication -> {
+                        String jwt = tokenProvider.createToken(authentication, loginVM.isRememberMe());
+                        HttpHeaders httpHeaders = new HttpHeaders();
+                        httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
+                        return new ResponseEntity<>(new JWTToken(jwt), httpHeaders, HttpStatus.OK);
+                    }
+                );
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingRejectedException("Password hashing capacity exceeded", e);
+        }
     }
 
     /**
@@ -2,14 +2,17 @@ package com.jmdev.crazypic.web.rest;
 
 import com.jmdev.crazypic.config.Constants;
 import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.UserIdentityFilter;
 import com.jmdev.crazypic.repository.UserRepository;
 import com.jmdev.crazypic.security.AuthoritiesConstants;
-import com.jmdev.crazypic.service.MailService;
 import com.jmdev.crazypic.service.UserService;
 import com.jmdev.crazypic.service.dto.AdminUserDTO;
+import com.jmdev.crazypic.service.dto.BulkUserResultDTO;
+import com.jmdev.crazypic.service.dto.KeysetPage;
 import com.jmdev.crazypic.web.rest.errors.BadRequestAlertException;
 import com.jmdev.crazypic.web.rest.errors.EmailAlreadyUsedException;
 import com.jmdev.crazypic.web.rest.errors.LoginAlreadyUsedException;
+import com.jmdev.crazypic.web.rest.vm.BulkUserVM;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
@@ -27,6 +30,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -76,6 +80,9 @@ public class UserResource {
         )
     );
 
+    // the keyset pagination needs properties which cannot be null
+    private static final List<String> ALLOWED_KEYSET_ORDERED_PROPERTIES = List.of("id", "login", "activated", "createdBy");
+
     private final Logger log = LoggerFactory.getLogger(UserResource.class);
 
     @Value("${jhipster.clientApp.name}")
@@ -85,12 +92,12 @@ public class UserResource {
 
     private final UserRepository userRepository;
 
-    private final MailService mailService;
+    private final UserIdentityFilter userIdentityFilter;
 
-    public UserResource(UserService userService, UserRepository userRepository, MailService mailService) {
+    public UserResource(UserService userService, UserRepository userRepository, UserIdentityFilter userIdentityFilter) {
         this.userService = userService;
         this.userRepository = userRepository;
-        this.mailService = mailService;
+        this.userIdentityFilter = userIdentityFilter;
     }
 
     /**
@@ -113,13 +120,12 @@ public class UserResource {
         if (userDTO.getId() != null) {
             throw new BadRequestAlertException("A new user cannot already have an ID", "userManagement", "idexists");
             // Lowercase the user login before comparing with database
-        } else if (userRepository.findOneByLogin(userDTO.getLogin().toLowerCase()).isPresent()) {
+        } else if (userIdentityFilter.findByLogin(userDTO.getLogin().toLowerCase(), userRepository::findOneByLogin).isPresent()) {
             throw new LoginAlreadyUsedException();
-        } else if (userRepository.findOneByEmailIgnoreCase(userDTO.getEmail()).isPresent()) {
+        } else if (userIdentityFilter.findByEmail(userDTO.getEmail(), userRepository::findOneByEmailIgnoreCase).isPresent()) {
             throw new EmailAlreadyUsedException();
         } else {
             User newUser = userService.createUser(userDTO);
-            mailService.sendCreationEmail(newUser);
             return ResponseEntity
                 .created(new URI("/api/admin/users/" + newUser.getLogin()))
                 .headers(HeaderUtil.createAlert(applicationName, "userManagement.created", newUser.getLogin()))
@@ -155,20 +161,59 @@ public class UserResource {
         );
     }
 
+    /**
+     * {@code POST  /admin/users/bulk} : Creates, updates and deactivates users in bulk.
+     * <p>
+     * The operations are applied in order, in a single transaction. An operation is rejected on its own if its login or
+     * email is already used, or if the user to update or deactivate does not exist. The created users are sent a mail
+     * with an activation link. If users keep being concurrently updated, each operation is applied in a transaction of
+     * its own, and those whose user is still concurrently updated are rejected.
+     *
+     * @param bulkUserVM the operations, at most {@value BulkUserVM#MAX_OPERATIONS}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each operation, in the same order.
+     */
+    @PostMapping("/users/bulk")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<List<BulkUserResultDTO>> bulkUpdateUsers(@Valid @RequestBody BulkUserVM bulkUserVM) {
+        log.debug("REST request to apply {} User operations", bulkUserVM.getOperations().size());
+        return ResponseEntity.ok(userService.bulkUpdateUsers(bulkUserVM.getOperations()));
+    }
+
     /**
      * {@code GET /admin/users} : get all users with all the details - calling this are only allowed for the administrators.
      *
+     * <p>
+     * With a {@code cursor} parameter, empty for the first page, the users are paginated by keyset rather than by offset:
+     * they are not counted, and the {@code X-Next-Cursor} header holds the cursor of the next page. This pagination
+     * is only sorted by {@code id}, {@code login}, {@code activated} or {@code createdBy}.
+     *
      * @param pageable the pagination information.
+     * @param cursor the cursor of the keyset pagination.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
      */
     @GetMapping("/users")
     @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
-    public ResponseEntity<List<AdminUserDTO>> getAllUsers(Pageable pageable) {
+    public ResponseEntity<List<AdminUserDTO>> getAllUsers(
+        Pageable pageable,
+        @RequestParam(name = KeysetPaginationUtil.CURSOR_PARAMETER, required = false) String cursor
+    ) {
         log.debug("REST request to get all User for an admin");
         if (!onlyContainsAllowedProperties(pageable)) {
             return ResponseEntity.badRequest().build();
         }
 
+        if (cursor != null) {
+            if (!onlyContainsAllowedKeysetProperties(pageable)) {
+                return ResponseEntity.badRequest().build();
+            }
+            KeysetPage<AdminUserDTO> page = userService.getAllManagedUsers(pageable.getSort(), cursor, pageable.getPageSize());
+            HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                page
+            );
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        }
+
         final Page<AdminUserDTO> page = userService.getAllManagedUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
@@ -178,17 +223,35 @@ public class UserResource {
         return pageable.getSort().stream().map(Sort.Order::getProperty).allMatch(ALLOWED_ORDERED_PROPERTIES::contains);
     }
 
+    private boolean onlyContainsAllowedKeysetProperties(Pageable pageable) {
+        return pageable.getSort().stream().map(Sort.Order::getProperty).allMatch(ALLOWED_KEYSET_ORDERED_PROPERTIES::contains);
+    }
+
     /**
      * {@code GET /admin/users/:login} : get the "login" user.
      *
      * @param login the login of the user to find.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the "login" user, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the entity tag of the user known to the client, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the "login" user, or with status
+     * {@code 304 (Not Modified)} if it did not change, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/users/{login}")
     @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
-    public ResponseEntity<AdminUserDTO> getUser(@PathVariable @Pattern(regexp = Constants.LOGIN_REGEX) String login) {
+    public ResponseEntity<AdminUserDTO> getUser(
+        @PathVariable @Pattern(regexp = Constants.LOGIN_REGEX) String login,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         log.debug("REST request to get User : {}", login);
-        return ResponseUtil.wrapOrNotFound(userService.getUserWithAuthoritiesByLogin(login).map(AdminUserDTO::new));
+        if (ifNoneMatch != null) {
+            Optional<String> etag = userService.getUserVersionByLogin(login).map(UserETags::of);
+            if (etag.isPresent() && UserETags.matches(ifNoneMatch, etag.get())) {
+                return UserETags.notModified(etag.get());
+            }
+        }
+        return userService
+            .getUserWithAuthoritiesByLogin(login)
+            .map(user -> UserETags.ok(UserETags.of(user), new AdminUserDTO(user)))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     /**
@@ -0,0 +1,28 @@
+package com.jmdev.crazypic.web.rest.vm;
+
+import com.jmdev.crazypic.service.dto.BulkUserOperationDTO;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+
+/**
+ * View Model object for storing the operations of a bulk user administration.
+ */
+public class BulkUserVM {
+
+    public static final int MAX_OPERATIONS = 1000;
+
+    @NotEmpty
+    @Size(max = MAX_OPERATIONS)
+    @Valid
+    private List<BulkUserOperationDTO> operations;
+
+    public List<BulkUserOperationDTO> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<BulkUserOperationDTO> operations) {
+        this.operations = operations;
+    }
+}
@@ -0,0 +1,72 @@
+package com.jmdev.crazypic.aop.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.repository.OutboxMailRepository;
+import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link LoggingAspect}, through the proxies of the application beans. Every call is traced
+ * in the tests.
+ */
+@IntegrationTest
+@Transactional
+class LoggingAspectIT {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OutboxMailRepository outboxMailRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testRepositoryCallsAreTracedByRepositoryInterface() {
+        long userCalls = count("UserRepository", "findOneByLogin");
+        long outboxCalls = count("OutboxMailRepository", "findByNextAttemptDateLessThanEqualOrderByNextAttemptDate");
+
+        userRepository.findOneByLogin("admin");
+        outboxMailRepository.findByNextAttemptDateLessThanEqualOrderByNextAttemptDate(Instant.now(), PageRequest.of(0, 1));
+
+        // the Spring Data repositories share the SimpleJpaRepository implementation
+        assertThat(count("UserRepository", "findOneByLogin")).isEqualTo(userCalls + 1);
+        assertThat(count("OutboxMailRepository", "findByNextAttemptDateLessThanEqualOrderByNextAttemptDate")).isEqualTo(outboxCalls + 1);
+        assertThat(meterRegistry.find(LoggingAspect.METHOD_METER_NAME).tag("class", "SimpleJpaRepository").timers()).isEmpty();
+    }
+
+    @Test
+    void testServiceCallsAreTracedByServiceClass() {
+        long calls = count("UserService", "getAuthorities");
+
+        userService.getAuthorities();
+
+        // the proxy of the service is a subclass generated by CGLIB
+        assertThat(count("UserService", "getAuthorities")).isEqualTo(calls + 1);
+        assertThat(meterRegistry.get(LoggingAspect.METHOD_METER_NAME).tag("class", "UserService").timer().getId().getDescription())
+            .isEqualTo(LoggingAspect.METHOD_METER_DESCRIPTION);
+    }
+
+    private long count(String className, String methodName) {
+        Timer timer = meterRegistry
+            .find(LoggingAspect.METHOD_METER_NAME)
+            .tag("class", className)
+            .tag("method", methodName)
+            .tag("exception", "none")
+            .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,100 @@
+package com.jmdev.crazypic.aop.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import com.jmdev.crazypic.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * Unit tests for the {@link LoggingAspect}.
+ */
+class LoggingAspectTest {
+
+    private MeterRegistry meterRegistry;
+
+    private ApplicationProperties applicationProperties;
+
+    private ProceedingJoinPoint joinPoint;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(TracedService.class.getMethod("greet", String.class));
+        joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(new TracedService());
+        when(joinPoint.getArgs()).thenReturn(new Object[] { "john" });
+    }
+
+    @Test
+    void shouldOnlyForwardTheCallsWhichAreNotSampled() throws Throwable {
+        applicationProperties.getMethodTracing().setSampleRate(0);
+        when(joinPoint.proceed()).thenReturn("Hello john");
+
+        Object result = aspect().logAround(joinPoint);
+
+        assertThat(result).isEqualTo("Hello john");
+        verify(joinPoint, never()).getSignature();
+        assertThat(meterRegistry.find(LoggingAspect.METHOD_METER_NAME).timers()).isEmpty();
+    }
+
+    @Test
+    void shouldTimeTheSampledCalls() throws Throwable {
+        applicationProperties.getMethodTracing().setSampleRate(1);
+        when(joinPoint.proceed()).thenReturn("Hello john");
+        LoggingAspect loggingAspect = aspect();
+
+        loggingAspect.logAround(joinPoint);
+        loggingAspect.logAround(joinPoint);
+
+        assertThat(
+            meterRegistry
+                .get(LoggingAspect.METHOD_METER_NAME)
+                .tag("class", "TracedService")
+                .tag("method", "greet")
+                .tag("exception", "none")
+                .timer()
+                .count()
+        )
+            .isEqualTo(2);
+    }
+
+    @Test
+    void shouldTimeTheSampledCallsThrowingAnException() throws Throwable {
+        applicationProperties.getMethodTracing().setSampleRate(1);
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException("failed"));
+
+        assertThatThrownBy(() -> aspect().logAround(joinPoint)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(
+            meterRegistry
+                .get(LoggingAspect.METHOD_METER_NAME)
+                .tag("method", "greet")
+                .tag("exception", "IllegalStateException")
+                .timer()
+                .count()
+        )
+            .isEqualTo(1);
+    }
+
+    private LoggingAspect aspect() {
+        return new LoggingAspect(new MockEnvironment(), applicationProperties, meterRegistry);
+    }
+
+    public static class TracedService {
+
+        public String greet(String name) {
+            return "Hello " + name;
+        }
+    }
+}
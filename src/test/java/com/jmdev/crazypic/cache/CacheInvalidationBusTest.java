@@ -0,0 +1,235 @@
+package com.jmdev.crazypic.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for the {@link CacheInvalidationBus}, with two instances sharing an in-memory transport.
+ */
+class CacheInvalidationBusTest {
+
+    private static final String REGION = "region";
+
+    private LoopbackTransport transport;
+
+    private MeterRegistry meterRegistry;
+
+    private CacheInvalidationBus sender;
+
+    private CacheInvalidationBus receiver;
+
+    private RecordingHandler senderHandler;
+
+    private RecordingHandler receiverHandler;
+
+    @BeforeEach
+    public void setup() {
+        transport = new LoopbackTransport(200);
+        meterRegistry = new SimpleMeterRegistry();
+        sender = bus(transport);
+        receiver = bus(transport);
+        senderHandler = new RecordingHandler();
+        receiverHandler = new RecordingHandler();
+        sender.register(REGION, senderHandler);
+        receiver.register(REGION, receiverHandler);
+    }
+
+    @Test
+    void shouldEvictOnTheOtherInstancesOnly() {
+        sender.publish(REGION, 1L);
+        sender.publish(REGION, 2L);
+        sender.flush();
+
+        assertThat(receiverHandler.evicted).containsExactly(1L, 2L);
+        assertThat(senderHandler.evicted).isEmpty();
+        assertThat(transport.messages).hasSize(1);
+    }
+
+    @Test
+    void shouldBatchAndDeduplicateTheInvalidations() {
+        sender.publish(REGION, 1L);
+        sender.publish(REGION, 1L);
+        sender.publish("other", 1L);
+        sender.flush();
+        sender.flush();
+
+        assertThat(transport.messages).containsExactly(sender.getOrigin() + "\nregion=1\nother=1");
+        assertThat(receiverHandler.evicted).containsExactly(1L);
+    }
+
+    @Test
+    void shouldSplitTheMessagesAboveTheMaximumLength() {
+        for (long id = 1000; id < 1100; id++) {
+            sender.publish(REGION, id);
+        }
+        sender.flush();
+
+        assertThat(transport.messages).hasSizeGreaterThan(1).allSatisfy(message -> assertThat(message.length()).isLessThanOrEqualTo(200));
+        assertThat(receiverHandler.evicted).hasSize(100).startsWith(1000L).endsWith(1099L);
+    }
+
+    @Test
+    void shouldPublishOnceCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            sender.publish(REGION, 1L);
+            sender.flush();
+            assertThat(transport.messages).isEmpty();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        sender.flush();
+
+        assertThat(receiverHandler.evicted).containsExactly(1L);
+    }
+
+    @Test
+    void shouldPublishAllOnceCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            sender.publishAll(REGION, List.of(1L, 2L, 3L));
+            sender.flush();
+            assertThat(transport.messages).isEmpty();
+            assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        sender.flush();
+
+        assertThat(transport.messages).containsExactly(sender.getOrigin() + "\nregion=1,2,3");
+        assertThat(receiverHandler.evicted).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void shouldClearTheRegionsWhenMessagesAreLost() {
+        transport.receivers.forEach(CacheInvalidationTransport.Receiver::onMessagesLost);
+
+        assertThat(receiverHandler.clears.get()).isEqualTo(1);
+        assertThat(meterRegistry.get(CacheInvalidationBus.LOSSES_METER_NAME).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRetryTheUnsentInvalidations() {
+        transport.failures = 1;
+        sender.publish(REGION, 1L);
+        sender.flush();
+        sender.publish(REGION, 2L);
+        sender.flush();
+        assertThat(receiverHandler.evicted).isEmpty();
+
+        sender.flush();
+
+        assertThat(receiverHandler.evicted).containsExactly(1L, 2L);
+        assertThat(receiverHandler.clears.get()).isZero();
+    }
+
+    @Test
+    void shouldMakeTheOtherInstancesClearTheRegionsWhenGivingUp() {
+        transport.failures = 5;
+        sender.publish(REGION, 1L);
+        for (int i = 0; i < 31; i++) {
+            sender.flush();
+        }
+        assertThat(meterRegistry.get(CacheInvalidationBus.LOSSES_METER_NAME).counter().count()).isEqualTo(1);
+        assertThat(receiverHandler.clears.get()).isZero();
+
+        sender.flush();
+
+        assertThat(receiverHandler.clears.get()).isEqualTo(1);
+        assertThat(receiverHandler.evicted).isEmpty();
+        assertThat(senderHandler.clears.get()).isZero();
+        assertThat(meterRegistry.get(CacheInvalidationBus.LOSSES_METER_NAME).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldIgnoreUnknownRegionsAndInvalidIds() {
+        receiver.receive(sender.getOrigin() + "\nunknown=1\nregion=x,3");
+
+        assertThat(receiverHandler.evicted).containsExactly(3L);
+    }
+
+    @Test
+    void shouldNotPublishWithoutTransport() {
+        CacheInvalidationBus local = new CacheInvalidationBus(
+            new StaticListableBeanFactory().getBeanProvider(CacheInvalidationTransport.class),
+            meterRegistry
+        );
+
+        local.publish(REGION, 1L);
+        local.flush();
+
+        assertThat(transport.messages).isEmpty();
+    }
+
+    private CacheInvalidationBus bus(CacheInvalidationTransport transport) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("transport", transport);
+        return new CacheInvalidationBus(beanFactory.getBeanProvider(CacheInvalidationTransport.class), meterRegistry);
+    }
+
+    private static final class LoopbackTransport implements CacheInvalidationTransport {
+
+        private final int maxMessageLength;
+
+        private final List<Receiver> receivers = new ArrayList<>();
+
+        private final List<String> messages = new ArrayList<>();
+
+        private int failures;
+
+        private LoopbackTransport(int maxMessageLength) {
+            this.maxMessageLength = maxMessageLength;
+        }
+
+        @Override
+        public int getMaxMessageLength() {
+            return maxMessageLength;
+        }
+
+        @Override
+        public void send(String message) {
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("Transport unavailable");
+            }
+            messages.add(message);
+            receivers.forEach(receiver -> receiver.onMessage(message));
+        }
+
+        @Override
+        public void subscribe(Receiver receiver) {
+            receivers.add(receiver);
+        }
+    }
+
+    private static final class RecordingHandler implements CacheInvalidationHandler {
+
+        private final List<Long> evicted = new ArrayList<>();
+
+        private final AtomicInteger clears = new AtomicInteger();
+
+        @Override
+        public void evict(Long id) {
+            evicted.add(id);
+        }
+
+        @Override
+        public void clear() {
+            clears.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.jmdev.crazypic.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.AuthorityRepository;
+import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.security.AuthoritiesConstants;
+import java.util.Set;
+import javax.persistence.EntityManagerFactory;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for the revalidation of the second level cache by {@link HibernateCacheInvalidation}.
+ * <p>
+ * The second level cache is disabled by the other tests. These ones are not transactional, as the entities are only
+ * cached once loaded by a committed transaction. The rows are changed through JDBC, as while the application was down.
+ */
+@IntegrationTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=true")
+class HibernateCacheInvalidationIT {
+
+    private static final String AUTHORITIES_ROLE = User.class.getName() + ".authorities";
+
+    @Autowired
+    private HibernateCacheInvalidation hibernateCacheInvalidation;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Cache cache;
+
+    private User user;
+
+    @BeforeEach
+    public void init() {
+        cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        user = new User();
+        user.setLogin("l2-revalidation");
+        user.setEmail("l2-revalidation@localhost");
+        user.setPassword(RandomStringUtils.random(60));
+        user.setActivated(true);
+        user.setAuthorities(Set.of(authorityRepository.findById(AuthoritiesConstants.USER).orElseThrow()));
+        user = userRepository.saveAndFlush(user);
+        cache.evictAllRegions();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteUserRow();
+        cache.evictAllRegions();
+    }
+
+    @Test
+    void testCurrentEntitiesAreKept() {
+        userRepository.findById(user.getId()).orElseThrow();
+
+        assertThat(hibernateCacheInvalidation.revalidate()).isZero();
+
+        assertThat(cache.containsEntity(User.class, user.getId())).isTrue();
+    }
+
+    @Test
+    void testChangedEntitiesAreDroppedWithTheirCollections() {
+        Long adminId = userRepository.findOneByLogin("admin").orElseThrow().getId();
+        userRepository.findById(adminId).orElseThrow();
+        userRepository.findOneWithAuthoritiesByLogin("l2-revalidation").orElseThrow();
+        assertThat(cache.containsEntity(User.class, user.getId())).isTrue();
+        assertThat(cache.containsCollection(AUTHORITIES_ROLE, user.getId())).isTrue();
+        new TransactionTemplate(transactionManager)
+            .executeWithoutResult(status -> jdbcTemplate.update("update jhi_user set version = version + 1 where id = ?", user.getId()));
+
+        hibernateCacheInvalidation.revalidate();
+
+        assertThat(cache.containsEntity(User.class, user.getId())).isFalse();
+        assertThat(cache.containsCollection(AUTHORITIES_ROLE, user.getId())).isFalse();
+        assertThat(cache.containsEntity(User.class, adminId)).isTrue();
+    }
+
+    @Test
+    void testDeletedEntitiesAreDropped() {
+        userRepository.findById(user.getId()).orElseThrow();
+        deleteUserRow();
+
+        assertThat(hibernateCacheInvalidation.revalidate()).isEqualTo(1);
+
+        assertThat(cache.containsEntity(User.class, user.getId())).isFalse();
+    }
+
+    private void deleteUserRow() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from jhi_user_authority where user_id = ?", user.getId());
+            jdbcTemplate.update("delete from jhi_user where id = ?", user.getId());
+        });
+    }
+}
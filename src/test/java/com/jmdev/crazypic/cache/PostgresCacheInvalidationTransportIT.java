@@ -0,0 +1,129 @@
+package com.jmdev.crazypic.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.config.ApplicationProperties;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Integration tests for {@link PostgresCacheInvalidationTransport}, between transports listening to the test database.
+ * <p>
+ * These tests only run with the {@code testcontainers} profile, against PostgreSQL. They are not transactional, as the
+ * notifications are only delivered once committed.
+ */
+@IntegrationTest
+@EnabledIfEnvironmentVariable(named = "spring.profiles.active", matches = ".*testcontainers.*")
+class PostgresCacheInvalidationTransportIT {
+
+    private static final String MESSAGES_LOST = "<messages lost>";
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    private final List<PostgresCacheInvalidationTransport> transports = new ArrayList<>();
+
+    @AfterEach
+    public void stopTransports() {
+        transports.forEach(PostgresCacheInvalidationTransport::stop);
+    }
+
+    @Test
+    void testMessagesAreDeliveredBetweenTransports() throws InterruptedException {
+        BlockingQueue<String> first = new LinkedBlockingQueue<>();
+        BlockingQueue<String> second = new LinkedBlockingQueue<>();
+        PostgresCacheInvalidationTransport firstTransport = start("cache_invalidation_it_delivery", first);
+        PostgresCacheInvalidationTransport secondTransport = start("cache_invalidation_it_delivery", second);
+
+        firstTransport.send("from-first");
+        secondTransport.send("from-second");
+
+        assertThat(List.of(poll(first), poll(first))).containsExactlyInAnyOrder("from-first", "from-second");
+        assertThat(List.of(poll(second), poll(second))).containsExactlyInAnyOrder("from-first", "from-second");
+    }
+
+    @Test
+    void testMessagesAreNotDeliveredOnOtherChannels() throws InterruptedException {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        start("cache_invalidation_it_listened", received);
+        PostgresCacheInvalidationTransport other = start("cache_invalidation_it_other", new LinkedBlockingQueue<>());
+
+        other.send("elsewhere");
+        transports.get(0).send("here");
+
+        assertThat(poll(received)).isEqualTo("here");
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void testMessagesAreLostOnReconnectOnly() throws InterruptedException {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        PostgresCacheInvalidationTransport transport = start("cache_invalidation_it_reconnect", received);
+        transport.send("before-reconnect");
+        // not lost when first listening, as the restored caches are checked against the database instead
+        assertThat(poll(received)).isEqualTo("before-reconnect");
+
+        List<Boolean> terminated = jdbcTemplate.queryForList(
+            "select pg_terminate_backend(pid) from pg_stat_activity where query = ?",
+            Boolean.class,
+            "LISTEN cache_invalidation_it_reconnect"
+        );
+        assertThat(terminated).containsExactly(true);
+
+        assertThat(poll(received)).isEqualTo(MESSAGES_LOST);
+        transport.send("after-reconnect");
+        assertThat(poll(received)).isEqualTo("after-reconnect");
+    }
+
+    private PostgresCacheInvalidationTransport start(String channel, BlockingQueue<String> received) {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCache().getInvalidation().setChannel(channel);
+        applicationProperties.getCache().getInvalidation().setReconnectDelay(Duration.ofMillis(100));
+        PostgresCacheInvalidationTransport transport = new PostgresCacheInvalidationTransport(
+            jdbcTemplate,
+            transactionManager,
+            dataSourceProperties,
+            applicationProperties
+        );
+        transport.subscribe(
+            new CacheInvalidationTransport.Receiver() {
+                @Override
+                public void onMessage(String message) {
+                    received.add(message);
+                }
+
+                @Override
+                public void onMessagesLost() {
+                    received.add(MESSAGES_LOST);
+                }
+            }
+        );
+        transport.start();
+        transports.add(transport);
+        return transport;
+    }
+
+    private static String poll(BlockingQueue<String> received) throws InterruptedException {
+        return received.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,245 @@
+package com.jmdev.crazypic.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.time.Duration;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.SizedResourcePool;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.impl.config.persistence.DefaultPersistenceConfiguration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Unit tests for the per-cache settings of {@link CacheConfiguration}.
+ */
+class CacheConfigurationTest {
+
+    private JHipsterProperties.Cache.Ehcache ehcache;
+
+    private ApplicationProperties.Cache.Region region;
+
+    @BeforeEach
+    public void setup() {
+        ehcache = new JHipsterProperties().getCache().getEhcache();
+        ehcache.setMaxEntries(100);
+        ehcache.setTimeToLiveSeconds(3600);
+        region = new ApplicationProperties.Cache.Region();
+    }
+
+    @Test
+    void shouldFallBackToTheDefaults() {
+        org.ehcache.config.CacheConfiguration<Object, Object> configuration = CacheConfiguration.ehcacheConfiguration(
+            "test",
+            region,
+            ehcache
+        );
+
+        SizedResourcePool heap = configuration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP);
+        assertThat(heap.getSize()).isEqualTo(100);
+        assertThat(heap.getUnit()).isEqualTo(EntryUnit.ENTRIES);
+        assertThat(configuration.getResourcePools().getResourceTypeSet()).containsExactly(ResourceType.Core.HEAP);
+        assertThat(configuration.getExpiryPolicy().getExpiryForCreation(1, 1)).isEqualTo(Duration.ofHours(1));
+    }
+
+    @Test
+    void shouldSizeTheHeapInBytes() {
+        region.setHeap(DataSize.ofMegabytes(16));
+
+        SizedResourcePool heap = CacheConfiguration
+            .ehcacheConfiguration("test", region, ehcache)
+            .getResourcePools()
+            .getPoolForResource(ResourceType.Core.HEAP);
+
+        assertThat(heap.getSize()).isEqualTo(16 * 1024 * 1024);
+        assertThat(heap.getUnit()).isEqualTo(MemoryUnit.B);
+    }
+
+    @Test
+    void shouldSizeTheHeapInEntries() {
+        region.setHeapEntries(5000L);
+
+        SizedResourcePool heap = CacheConfiguration
+            .ehcacheConfiguration("test", region, ehcache)
+            .getResourcePools()
+            .getPoolForResource(ResourceType.Core.HEAP);
+
+        assertThat(heap.getSize()).isEqualTo(5000);
+        assertThat(heap.getUnit()).isEqualTo(EntryUnit.ENTRIES);
+    }
+
+    @Test
+    void shouldRejectBothHeapSizes() {
+        region.setHeap(DataSize.ofMegabytes(16));
+        region.setHeapEntries(5000L);
+
+        assertThatThrownBy(() -> CacheConfiguration.ehcacheConfiguration("test", region, ehcache))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("test");
+    }
+
+    @Test
+    void shouldAddAnOffHeapTier() {
+        region.setHeap(DataSize.ofMegabytes(1));
+        region.setOffHeap(DataSize.ofMegabytes(8));
+
+        SizedResourcePool offHeap = CacheConfiguration
+            .ehcacheConfiguration("test", region, ehcache)
+            .getResourcePools()
+            .getPoolForResource(ResourceType.Core.OFFHEAP);
+
+        assertThat(offHeap.getSize()).isEqualTo(8);
+        assertThat(offHeap.getUnit()).isEqualTo(MemoryUnit.MB);
+    }
+
+    @Test
+    void shouldRoundTheOffHeapTierUpToMegabytes() {
+        region.setHeapEntries(10L);
+        region.setOffHeap(DataSize.ofKilobytes(1536));
+
+        SizedResourcePool offHeap = CacheConfiguration
+            .ehcacheConfiguration("test", region, ehcache)
+            .getResourcePools()
+            .getPoolForResource(ResourceType.Core.OFFHEAP);
+
+        assertThat(offHeap.getSize()).isEqualTo(2);
+        assertThat(offHeap.getUnit()).isEqualTo(MemoryUnit.MB);
+    }
+
+    @Test
+    void shouldRejectAnOffHeapTierUnderOneMegabyte() {
+        region.setHeapEntries(10L);
+        region.setOffHeap(DataSize.ofKilobytes(512));
+
+        assertThatThrownBy(() -> CacheConfiguration.ehcacheConfiguration("test", region, ehcache))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("off-heap");
+    }
+
+    @Test
+    void shouldAllowEhcacheToMeasureTheEntriesInTheTests() {
+        // the tests run with the --add-opens of the build, as the application does
+        assertThat(CacheConfiguration.isSizeOfAllowed()).isTrue();
+    }
+
+    @Test
+    void shouldExpireAfterTheRegionTimeToLive() {
+        region.setTimeToLive(Duration.ofMinutes(5));
+
+        org.ehcache.config.CacheConfiguration<Object, Object> configuration = CacheConfiguration.ehcacheConfiguration(
+            "test",
+            region,
+            ehcache
+        );
+
+        assertThat(configuration.getExpiryPolicy().getExpiryForCreation(1, 1)).isEqualTo(Duration.ofMinutes(5));
+        assertThat(configuration.getExpiryPolicy().getExpiryForAccess(1, () -> 1)).isNull();
+    }
+
+    @Test
+    void shouldExpireAfterTheRegionTimeToIdle() {
+        region.setExpiryPolicy(ApplicationProperties.Cache.Region.ExpiryPolicy.TIME_TO_IDLE);
+        region.setTimeToIdle(Duration.ofMinutes(10));
+
+        org.ehcache.config.CacheConfiguration<Object, Object> configuration = CacheConfiguration.ehcacheConfiguration(
+            "test",
+            region,
+            ehcache
+        );
+
+        assertThat(configuration.getExpiryPolicy().getExpiryForCreation(1, 1)).isEqualTo(Duration.ofMinutes(10));
+        assertThat(configuration.getExpiryPolicy().getExpiryForAccess(1, () -> 1)).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void shouldRejectTimeToIdleWithoutDuration() {
+        region.setExpiryPolicy(ApplicationProperties.Cache.Region.ExpiryPolicy.TIME_TO_IDLE);
+
+        assertThatThrownBy(() -> CacheConfiguration.ehcacheConfiguration("test", region, ehcache))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("time-to-idle");
+    }
+
+    @Test
+    void shouldNeverExpire() {
+        region.setExpiryPolicy(ApplicationProperties.Cache.Region.ExpiryPolicy.NONE);
+
+        org.ehcache.config.CacheConfiguration<Object, Object> configuration = CacheConfiguration.ehcacheConfiguration(
+            "test",
+            region,
+            ehcache
+        );
+
+        assertThat(configuration.getExpiryPolicy().getExpiryForCreation(1, 1)).isEqualTo(org.ehcache.expiry.ExpiryPolicy.INFINITE);
+    }
+
+    @Test
+    void shouldStoreEntriesInByteSizedTiers() {
+        region.setHeap(DataSize.ofMegabytes(1));
+        region.setOffHeap(DataSize.ofMegabytes(8));
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager();
+        try {
+            Cache<Object, Object> cache = cacheManager.createCache(
+                "cacheConfigurationTest",
+                Eh107Configuration.fromEhcacheCacheConfiguration(CacheConfiguration.ehcacheConfiguration("test", region, ehcache))
+            );
+            for (long id = 0; id < 10000; id++) {
+                cache.put("user-" + id, id);
+            }
+
+            assertThat(cache.get("user-9999")).isEqualTo(9999L);
+        } finally {
+            cacheManager.destroyCache("cacheConfigurationTest");
+        }
+    }
+
+    @Test
+    void shouldRestoreThePersistentDiskTier(@TempDir File directory) {
+        region.setHeapEntries(10L);
+        region.setOffHeap(DataSize.ofMegabytes(1));
+        region.setDisk(DataSize.ofMegabytes(8));
+
+        CacheManager cacheManager = persistentCacheManager(directory);
+        Cache<Object, Object> cache = cacheManager.createCache(
+            "cacheConfigurationTest",
+            Eh107Configuration.fromEhcacheCacheConfiguration(CacheConfiguration.ehcacheConfiguration("test", region, ehcache))
+        );
+        for (long id = 0; id < 1000; id++) {
+            cache.put("user-" + id, id);
+        }
+        cacheManager.close();
+
+        CacheManager restarted = persistentCacheManager(directory);
+        try {
+            Cache<Object, Object> restored = restarted.createCache(
+                "cacheConfigurationTest",
+                Eh107Configuration.fromEhcacheCacheConfiguration(CacheConfiguration.ehcacheConfiguration("test", region, ehcache))
+            );
+
+            assertThat(restored.get("user-0")).isEqualTo(0L);
+            assertThat(restored.get("user-999")).isEqualTo(999L);
+        } finally {
+            restarted.close();
+        }
+    }
+
+    private CacheManager persistentCacheManager(File directory) {
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        return provider.getCacheManager(
+            directory.toURI(),
+            new DefaultConfiguration(provider.getDefaultClassLoader(), new DefaultPersistenceConfiguration(directory))
+        );
+    }
+}
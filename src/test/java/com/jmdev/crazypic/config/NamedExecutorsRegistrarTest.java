@@ -0,0 +1,135 @@
+package com.jmdev.crazypic.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Unit tests for the {@link NamedExecutorsRegistrar}.
+ */
+class NamedExecutorsRegistrarTest {
+
+    private MeterRegistry meterRegistry;
+
+    private ApplicationProperties.TaskExecution.Executor properties;
+
+    private ExecutorService executor;
+
+    private CountDownLatch release;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new ApplicationProperties.TaskExecution.Executor();
+        properties.setCoreSize(1);
+        properties.setMaxSize(1);
+        properties.setQueueCapacity(1);
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRejectTasksOnceTheQueueIsFull() throws Exception {
+        executor = NamedExecutorsRegistrar.createExecutor("test", properties, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.execute(() -> {});
+
+        assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RejectedExecutionException.class);
+        assertThat(meterRegistry.get(NamedExecutorsRegistrar.REJECTED_METER_NAME).tag("name", "test").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("executor.queued").tag("name", "test").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("executor.active").tag("name", "test").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRunTheRejectedTasksOnTheCaller() throws Exception {
+        properties.setRejectionPolicy(ApplicationProperties.TaskExecution.Executor.RejectionPolicy.CALLER_RUNS);
+        executor = NamedExecutorsRegistrar.createExecutor("test", properties, meterRegistry);
+        executor.execute(() -> await(release));
+        executor.execute(() -> {});
+
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        executor.execute(() -> runner.set(Thread.currentThread()));
+
+        assertThat(runner.get()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    void shouldRunTheAsyncMethodsOnTheirNamedExecutor() throws Exception {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("application.task-execution.executors.test.core-size", "1");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.setEnvironment(environment);
+            context.register(AsyncTestConfiguration.class);
+            context.refresh();
+
+            assertThat(context.getBean("testExecutor")).isInstanceOf(ExecutorService.class);
+            String threadName = context.getBean(AsyncTestService.class).threadName().get(5, TimeUnit.SECONDS);
+            assertThat(threadName).startsWith("crazy-pic-test-");
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Configuration
+    @EnableAsync
+    static class AsyncTestConfiguration {
+
+        @Bean
+        public static NamedExecutorsRegistrar namedExecutorsRegistrar() {
+            return new NamedExecutorsRegistrar();
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public AsyncTestService asyncTestService() {
+            return new AsyncTestService();
+        }
+    }
+
+    static class AsyncTestService {
+
+        @Async("testExecutor")
+        public CompletableFuture<String> threadName() {
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.jmdev.crazypic.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link VirtualThreadPinningMonitor}.
+ */
+class VirtualThreadPinningMonitorTest {
+
+    private MeterRegistry meterRegistry;
+
+    private VirtualThreadPinningMonitor monitor;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getTaskExecution().getVirtualThreads().setPinnedThreshold(Duration.ofMillis(10));
+        monitor = new VirtualThreadPinningMonitor(applicationProperties, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        monitor.stop();
+    }
+
+    @Test
+    void shouldNotRecordWithoutVirtualThreads() {
+        assumeTrue(!VirtualThreads.isSupported(), "The runtime supports virtual threads");
+
+        assertThat(monitor.start()).isFalse();
+
+        assertThat(meterRegistry.get(VirtualThreadPinningMonitor.PINNED_METER_NAME).timer().count()).isZero();
+        assertThatCode(() -> monitor.stop()).doesNotThrowAnyException();
+    }
+
+    @Test
+    void shouldTimeTheVirtualThreadsPinnedLongerThanTheThreshold() throws Exception {
+        assumeTrue(VirtualThreads.isSupported(), "The runtime does not support virtual threads");
+        // the monitors stopped pinning the virtual threads in Java 24
+        assumeTrue(Runtime.version().feature() < 24, "The runtime does not pin the virtual threads in monitors");
+        assertThat(monitor.start()).isTrue();
+
+        ExecutorService executor = VirtualThreads
+            .newThreadPerTaskExecutor("test-", ApplicationProperties.TaskExecution.VirtualThreads.PinnedThreadsTrace.NONE)
+            .orElseThrow();
+        Object lock = new Object();
+        try {
+            executor
+                .submit(() -> {
+                    synchronized (lock) {
+                        Thread.sleep(50);
+                    }
+                    return null;
+                })
+                .get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Timer pinned = meterRegistry.get(VirtualThreadPinningMonitor.PINNED_METER_NAME).timer();
+        // the events are streamed about once a second
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pinned.count() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(pinned.count()).isPositive();
+        assertThat(pinned.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+    }
+}
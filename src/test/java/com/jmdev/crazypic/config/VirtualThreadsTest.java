@@ -0,0 +1,100 @@
+package com.jmdev.crazypic.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.task.TaskExecutionProperties;
+import tech.jhipster.async.ExceptionHandlingAsyncTaskExecutor;
+
+/**
+ * Unit tests for the {@link VirtualThreads}.
+ */
+class VirtualThreadsTest {
+
+    private ExecutorService executor;
+
+    @AfterEach
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        System.clearProperty(VirtualThreads.TRACE_PINNED_THREADS_PROPERTY);
+    }
+
+    @Test
+    void shouldBeSupportedFromJava21() {
+        if (Runtime.version().feature() >= 21) {
+            assertThat(VirtualThreads.isSupported()).isTrue();
+        } else if (Runtime.version().feature() < 19) {
+            assertThat(VirtualThreads.isSupported()).isFalse();
+        }
+    }
+
+    @Test
+    void shouldNotCreateAnExecutorWhenUnsupported() {
+        assumeTrue(!VirtualThreads.isSupported(), "The runtime supports virtual threads");
+
+        Optional<ExecutorService> executor = VirtualThreads.newThreadPerTaskExecutor(
+            "test-",
+            ApplicationProperties.TaskExecution.VirtualThreads.PinnedThreadsTrace.NONE
+        );
+
+        assertThat(executor).isEmpty();
+    }
+
+    @Test
+    void shouldRunEachTaskOnANamedVirtualThread() throws Exception {
+        assumeTrue(VirtualThreads.isSupported(), "The runtime does not support virtual threads");
+
+        executor =
+            VirtualThreads
+                .newThreadPerTaskExecutor("test-", ApplicationProperties.TaskExecution.VirtualThreads.PinnedThreadsTrace.SHORT)
+                .orElseThrow();
+        Callable<Thread> currentThread = Thread::currentThread;
+        Thread first = executor.submit(currentThread).get(5, TimeUnit.SECONDS);
+        Thread second = executor.submit(currentThread).get(5, TimeUnit.SECONDS);
+
+        assertThat(first.getName()).startsWith("test-");
+        assertThat(first.toString()).startsWith("VirtualThread");
+        assertThat(second).isNotSameAs(first);
+        assertThat(System.getProperty(VirtualThreads.TRACE_PINNED_THREADS_PROPERTY)).isEqualTo("short");
+    }
+
+    @Test
+    void shouldRunTheAsyncTasksOnVirtualThreadsWhenEnabled() throws Exception {
+        TaskExecutionProperties taskExecutionProperties = new TaskExecutionProperties();
+        taskExecutionProperties.setThreadNamePrefix("test-task-");
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getTaskExecution().getVirtualThreads().setEnabled(true);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(
+            Collections.singletonMap("meterRegistry", new SimpleMeterRegistry())
+        );
+        AsyncConfiguration asyncConfiguration = new AsyncConfiguration(
+            taskExecutionProperties,
+            applicationProperties,
+            beanFactory.getBeanProvider(MeterRegistry.class)
+        );
+
+        ExceptionHandlingAsyncTaskExecutor taskExecutor = (ExceptionHandlingAsyncTaskExecutor) asyncConfiguration.getAsyncExecutor();
+        taskExecutor.afterPropertiesSet();
+        try {
+            Thread thread = taskExecutor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            assertThat(thread.getName()).startsWith("test-task-");
+            // the pool of platform threads is kept when the runtime has no virtual threads
+            assertThat(thread.toString().startsWith("VirtualThread")).isEqualTo(VirtualThreads.isSupported());
+        } finally {
+            taskExecutor.destroy();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.jmdev.crazypic.config;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -10,8 +11,10 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import io.undertow.servlet.api.DeploymentInfo;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import javax.servlet.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,6 +40,8 @@ class WebConfigurerTest {
 
     private JHipsterProperties props;
 
+    private ApplicationProperties applicationProperties;
+
     @BeforeEach
     public void setup() {
         servletContext = spy(new MockServletContext());
@@ -45,8 +50,9 @@ class WebConfigurerTest {
 
         env = new MockEnvironment();
         props = new JHipsterProperties();
+        applicationProperties = new ApplicationProperties();
 
-        webConfigurer = new WebConfigurer(env, props);
+        webConfigurer = new WebConfigurer(env, props, applicationProperties);
     }
 
     @Test
@@ -76,6 +82,44 @@ class WebConfigurerTest {
         }
     }
 
+    @Test
+    void shouldKeepTheWorkerThreadsByDefault() {
+        UndertowServletWebServerFactory container = new UndertowServletWebServerFactory();
+        webConfigurer.customize(container);
+        assertThat(container.getDeploymentInfoCustomizers()).isEmpty();
+    }
+
+    @Test
+    void shouldDispatchRequestsToVirtualThreadsWhenSupported() {
+        applicationProperties.getTaskExecution().getVirtualThreads().setEnabled(true);
+        UndertowServletWebServerFactory container = new UndertowServletWebServerFactory();
+        webConfigurer.customize(container);
+        // the worker threads are kept when the runtime has no virtual threads
+        assertThat(container.getDeploymentInfoCustomizers()).hasSize(VirtualThreads.isSupported() ? 1 : 0);
+    }
+
+    @Test
+    void shouldShutDownTheVirtualThreadsOfTheRequests() throws InterruptedException {
+        assumeTrue(VirtualThreads.isSupported(), "The runtime does not support virtual threads");
+        applicationProperties.getTaskExecution().getVirtualThreads().setEnabled(true);
+        UndertowServletWebServerFactory container = new UndertowServletWebServerFactory();
+        webConfigurer.customize(container);
+        DeploymentInfo deploymentInfo = new DeploymentInfo();
+        container.getDeploymentInfoCustomizers().forEach(customizer -> customizer.customize(deploymentInfo));
+
+        webConfigurer.shutdownRequestExecutor();
+
+        assertThat(((ExecutorService) deploymentInfo.getExecutor()).isTerminated()).isTrue();
+    }
+
+    @Test
+    void shouldShutDownWithoutVirtualThreads() {
+        UndertowServletWebServerFactory container = new UndertowServletWebServerFactory();
+        webConfigurer.customize(container);
+
+        assertThatCode(() -> webConfigurer.shutdownRequestExecutor()).doesNotThrowAnyException();
+    }
+
     @Test
     void shouldCorsFilterOnApiPath() throws Exception {
         props.getCors().setAllowedOrigins(Collections.singletonList("other.domain.com"));
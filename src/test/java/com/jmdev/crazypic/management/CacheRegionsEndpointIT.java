@@ -0,0 +1,135 @@
+package com.jmdev.crazypic.management;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.security.UserIdentityCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Integration tests for the {@link CacheRegionsEndpoint}, and the binding of the cache statistics to Micrometer.
+ */
+@IntegrationTest
+class CacheRegionsEndpointIT {
+
+    @Autowired
+    private CacheRegionsEndpoint cacheRegionsEndpoint;
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void init() {
+        userIdentityCache.clear();
+    }
+
+    @Test
+    void testEveryRegionIsBoundToMicrometer() {
+        assertThat(cacheRegionsEndpoint.regions())
+            .containsKeys(
+                UserIdentityCache.USER_IDENTITIES_CACHE,
+                UserIdentityCache.USER_IDS_BY_LOGIN_CACHE,
+                UserIdentityCache.USER_IDS_BY_EMAIL_CACHE,
+                User.class.getName(),
+                User.class.getName() + ".authorities"
+            )
+            .allSatisfy((name, region) -> {
+                assertThat(meterRegistry.find("cache.gets").tag("cache", name).tag("result", "hit").functionCounter()).isNotNull();
+                assertThat(region.getSampledEntries()).isNull();
+            });
+    }
+
+    @Test
+    void testRegionStatisticsAndSample() {
+        userIdentityCache.findByLogin("admin").orElseThrow();
+        userIdentityCache.findByLogin("admin").orElseThrow();
+
+        CacheRegionsEndpoint.CacheRegion region = cacheRegionsEndpoint.region(UserIdentityCache.USER_IDS_BY_LOGIN_CACHE);
+
+        assertThat(region.getTiers()).containsEntry("heap", "100 entries");
+        assertThat(region.getTierUsage()).containsOnlyKeys("heap");
+        assertThat(region.getTierUsage().get("heap").getMappings()).isEqualTo(1);
+        assertThat(region.getSampledEntries()).isEqualTo(1);
+        assertThat(region.getEstimatedBytesPerEntry()).isPositive();
+        assertThat(region.getHits()).isPositive();
+        assertThat(region.getTopKeys())
+            .singleElement()
+            .satisfies(entry -> assertThat(entry.getKeyHash()).hasSize(16).doesNotContain("admin"));
+        assertThat(cacheRegionsEndpoint.region(UserIdentityCache.USER_IDS_BY_LOGIN_CACHE).getTopKeys())
+            .extracting(CacheRegionsEndpoint.SampledEntry::getKeyHash)
+            .containsExactly(region.getTopKeys().get(0).getKeyHash());
+    }
+
+    @Test
+    void testSampleIsBounded() {
+        Cache<Object, Object> cache = cacheManager.getCache(UserIdentityCache.USER_IDS_BY_EMAIL_CACHE);
+        for (long id = 0; id < CacheRegionsEndpoint.SAMPLE_SIZE * 2; id++) {
+            cache.put("user-" + id + "@localhost", id);
+        }
+        double hits = cacheRegionsEndpoint.regions().get(UserIdentityCache.USER_IDS_BY_EMAIL_CACHE).getHits();
+
+        CacheRegionsEndpoint.CacheRegion region = cacheRegionsEndpoint.region(UserIdentityCache.USER_IDS_BY_EMAIL_CACHE);
+
+        assertThat(region.getSampledEntries()).isEqualTo(CacheRegionsEndpoint.SAMPLE_SIZE);
+        assertThat(cacheRegionsEndpoint.regions().get(UserIdentityCache.USER_IDS_BY_EMAIL_CACHE).getHits())
+            .isLessThanOrEqualTo(hits + CacheRegionsEndpoint.SAMPLE_SIZE);
+    }
+
+    @Test
+    void testOverviewIsNotCountedAsReads() {
+        userIdentityCache.findByLogin("admin").orElseThrow();
+        double hits = cacheRegionsEndpoint.regions().get(UserIdentityCache.USER_IDENTITIES_CACHE).getHits();
+
+        assertThat(cacheRegionsEndpoint.regions().get(UserIdentityCache.USER_IDENTITIES_CACHE).getHits()).isEqualTo(hits);
+    }
+
+    @Test
+    void testTierUsage() {
+        Cache<Object, Object> cache = cacheManager.createCache(
+            "tiered",
+            Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                    Object.class,
+                    Object.class,
+                    ResourcePoolsBuilder.heap(10).offheap(1, MemoryUnit.MB)
+                )
+            )
+        );
+        try {
+            for (long id = 0; id < 50; id++) {
+                cache.put("user-" + id + "@localhost", id);
+            }
+
+            CacheRegionsEndpoint.CacheRegion region = cacheRegionsEndpoint.regions().get("tiered");
+
+            assertThat(region.getTierUsage()).containsOnlyKeys("heap", "offheap");
+            // the off-heap tier is the authority, holding every entry, the heap one only caches the entries read
+            assertThat(region.getTierUsage().get("offheap").getMappings()).isEqualTo(50);
+            assertThat(region.getTierUsage().get("offheap").getOccupiedBytes()).isPositive();
+            assertThat(region.getTierUsage().get("heap").getOccupiedBytes()).isEqualTo(-1);
+        } finally {
+            cacheManager.destroyCache("tiered");
+        }
+    }
+
+    @Test
+    void testUnknownRegion() {
+        assertThat(cacheRegionsEndpoint.region("unknown")).isNull();
+    }
+}
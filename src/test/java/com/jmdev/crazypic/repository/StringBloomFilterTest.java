@@ -0,0 +1,51 @@
+package com.jmdev.crazypic.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link StringBloomFilter} class.
+ */
+class StringBloomFilterTest {
+
+    private static final int INSERTIONS = 10000;
+
+    @Test
+    void testAddedStringsAreAlwaysFound() {
+        StringBloomFilter filter = new StringBloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put("user-" + i);
+        }
+
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertThat(filter.mightContain("user-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateIsAsSized() {
+        StringBloomFilter filter = new StringBloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put("user-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < INSERTIONS; i++) {
+            if (filter.mightContain("unknown-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(INSERTIONS * 2 / 100);
+        assertThat(filter.expectedFalsePositiveProbability()).isBetween(0.005, 0.015);
+    }
+
+    @Test
+    void testEmptyFilterContainsNothing() {
+        StringBloomFilter filter = new StringBloomFilter(INSERTIONS, 0.01);
+
+        assertThat(filter.mightContain("user")).isFalse();
+        assertThat(filter.expectedFalsePositiveProbability()).isZero();
+    }
+}
@@ -0,0 +1,203 @@
+package com.jmdev.crazypic.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.cache.CacheInvalidationBus;
+import com.jmdev.crazypic.cache.CacheInvalidationTransport;
+import com.jmdev.crazypic.config.ApplicationProperties;
+import com.jmdev.crazypic.domain.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link UserIdentityFilter}.
+ */
+@Transactional
+@IntegrationTest
+@Import(UserIdentityFilterIT.LoopbackTransportConfiguration.class)
+class UserIdentityFilterIT {
+
+    /**
+     * The filter is only used with a transport of the cache invalidations: this one only loops them back.
+     */
+    @TestConfiguration
+    static class LoopbackTransportConfiguration {
+
+        @Bean
+        public CacheInvalidationTransport loopbackCacheInvalidationTransport() {
+            return new CacheInvalidationTransport() {
+                private CacheInvalidationTransport.Receiver receiver;
+
+                @Override
+                public int getMaxMessageLength() {
+                    return 8000;
+                }
+
+                @Override
+                public void send(String message) {
+                    if (receiver != null) {
+                        receiver.onMessage(message);
+                    }
+                }
+
+                @Override
+                public void subscribe(Receiver receiver) {
+                    this.receiver = receiver;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private UserIdentityFilter userIdentityFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    private final AtomicInteger databaseLookups = new AtomicInteger();
+
+    @BeforeEach
+    public void init() {
+        userIdentityFilter.rebuild();
+    }
+
+    @Test
+    void testExistingUserIsLookedUp() {
+        assertThat(userIdentityFilter.findByLogin("admin", this::countedFindOneByLogin)).isPresent();
+        assertThat(userIdentityFilter.findByEmail("ADMIN@localhost", this::countedFindOneByEmail)).isPresent();
+        assertThat(databaseLookups.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testUnknownUserIsRejectedWithoutDatabaseLookup() {
+        double rejected = lookups("login", "rejected");
+
+        assertThat(userIdentityFilter.findByLogin("unknown-login", this::countedFindOneByLogin)).isEmpty();
+        assertThat(userIdentityFilter.findByEmail("unknown@localhost", this::countedFindOneByEmail)).isEmpty();
+
+        assertThat(databaseLookups.get()).isZero();
+        assertThat(lookups("login", "rejected")).isEqualTo(rejected + 1);
+    }
+
+    @Test
+    void testSavedUserIsAddedStraightAway() {
+        User user = new User();
+        user.setLogin("identity-filter");
+        user.setEmail("identity-filter@localhost");
+        user.setPassword(RandomStringUtils.random(60));
+        user.setActivated(true);
+        userRepository.save(user);
+
+        assertThat(userIdentityFilter.findByLogin("identity-filter", this::countedFindOneByLogin)).isPresent();
+        assertThat(userIdentityFilter.findByEmail("identity-filter@localhost", this::countedFindOneByEmail)).isPresent();
+    }
+
+    @Test
+    void testUserSavedByAnotherInstanceIsAddedFromItsMessage() {
+        // written by another instance, without the listener of this one
+        jdbcTemplate.update(
+            "insert into jhi_user (id, login, email, password_hash, activated, created_by) values (?, ?, ?, ?, ?, ?)",
+            10_000L,
+            "identity-filter-elsewhere",
+            "identity-filter-elsewhere@localhost",
+            RandomStringUtils.random(60),
+            true,
+            "system"
+        );
+        assertThat(userIdentityFilter.findByLogin("identity-filter-elsewhere", this::countedFindOneByLogin)).isEmpty();
+
+        userIdentityFilter.addSavedElsewhere(10_000L);
+
+        assertThat(userIdentityFilter.findByLogin("identity-filter-elsewhere", this::countedFindOneByLogin)).isPresent();
+        assertThat(userIdentityFilter.findByEmail("identity-filter-elsewhere@localhost", this::countedFindOneByEmail)).isPresent();
+    }
+
+    @Test
+    void testUserAddedBeforeBeingCommittedIsKeptByTheRebuild() {
+        User user = new User();
+        user.setLogin("identity-filter-uncommitted");
+        user.setEmail("identity-filter-uncommitted@localhost");
+
+        // saved by a transaction not committed yet when the rebuild reads the table
+        userIdentityFilter.add(user);
+        userIdentityFilter.rebuild();
+
+        assertThat(userIdentityFilter.findByLogin("identity-filter-uncommitted", this::countedFindOneByLogin)).isEmpty();
+        assertThat(userIdentityFilter.findByEmail("identity-filter-uncommitted@localhost", this::countedFindOneByEmail)).isEmpty();
+        assertThat(databaseLookups.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testFilterIsNotUsedWithoutTransport() {
+        CacheInvalidationBus busWithoutTransport = new CacheInvalidationBus(
+            new StaticListableBeanFactory().getBeanProvider(CacheInvalidationTransport.class),
+            new SimpleMeterRegistry()
+        );
+        UserIdentityFilter filterWithoutTransport = new UserIdentityFilter(
+            userRepository,
+            applicationProperties,
+            busWithoutTransport,
+            new SimpleMeterRegistry()
+        );
+
+        filterWithoutTransport.rebuild();
+
+        assertThat(filterWithoutTransport.isSynced()).isFalse();
+        assertThat(filterWithoutTransport.findByLogin("unknown-login", this::countedFindOneByLogin)).isEmpty();
+        assertThat(databaseLookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testLostMessagesBypassTheFilterUntilRebuilt() {
+        double bypassed = lookups("login", "bypassed");
+
+        userIdentityFilter.onMessagesLost();
+
+        assertThat(userIdentityFilter.isSynced()).isFalse();
+        assertThat(userIdentityFilter.findByLogin("unknown-login", this::countedFindOneByLogin)).isEmpty();
+        assertThat(databaseLookups.get()).isEqualTo(1);
+        assertThat(lookups("login", "bypassed")).isEqualTo(bypassed + 1);
+
+        userIdentityFilter.rebuild();
+
+        assertThat(userIdentityFilter.isSynced()).isTrue();
+        assertThat(userIdentityFilter.findByLogin("unknown-login", this::countedFindOneByLogin)).isEmpty();
+        assertThat(databaseLookups.get()).isEqualTo(1);
+    }
+
+    private Optional<User> countedFindOneByLogin(String login) {
+        databaseLookups.incrementAndGet();
+        return userRepository.findOneByLogin(login);
+    }
+
+    private Optional<User> countedFindOneByEmail(String email) {
+        databaseLookups.incrementAndGet();
+        return userRepository.findOneByEmailIgnoreCase(email);
+    }
+
+    private double lookups(String identity, String result) {
+        return meterRegistry.get(UserIdentityFilter.LOOKUPS_METER_NAME).tag("identity", identity).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,85 @@
+package com.jmdev.crazypic.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.IntegrationTest;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests of the indexes of the {@link UserRepository} lookups, checking the query plans of PostgreSQL.
+ * <p>
+ * The statements are the ones Hibernate generates for the lookups. As the test database is too small for the planner
+ * to prefer an index over a sequential scan, sequential scans are disabled for the transaction of each test.
+ * <p>
+ * These tests only run with the {@code testcontainers} profile, against PostgreSQL.
+ */
+@Transactional
+@IntegrationTest
+@EnabledIfEnvironmentVariable(named = "spring.profiles.active", matches = ".*testcontainers.*")
+class UserIndexesIT {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void init() {
+        jdbcTemplate.execute("analyze jhi_user");
+        jdbcTemplate.execute("set local enable_seqscan = off");
+    }
+
+    @Test
+    void testFindOneByActivationKeyUsesIndex() {
+        assertThat(explain("select * from jhi_user where activation_key = ?", "12345678901234567890"))
+            .contains("idx_user_activation_key");
+    }
+
+    @Test
+    void testFindOneByResetKeyUsesIndex() {
+        assertThat(explain("select * from jhi_user where reset_key = ?", "12345678901234567890")).contains("idx_user_reset_key");
+    }
+
+    @Test
+    void testFindOneByEmailIgnoreCaseUsesIndex() {
+        assertThat(explain("select * from jhi_user where upper(email) = upper(?)", "Admin@Localhost")).contains("idx_user_upper_email");
+    }
+
+    @Test
+    void testFindNotActivatedUserIdsCreatedBeforeUsesIndex() {
+        String plan = explain(
+            "select id from jhi_user where activated = false and activation_key is not null and created_date < ?" +
+            " order by id limit 500 for update",
+            Timestamp.from(Instant.now())
+        );
+        assertThat(plan).contains("idx_user_not_activated").doesNotContain("Sort");
+    }
+
+    @Test
+    void testFindAllPublicUsersIsIndexOnly() {
+        assertThat(explain("select id, login from jhi_user where id is not null and activated = true order by login limit 20"))
+            .contains("Index Only Scan using idx_user_activated_login");
+    }
+
+    @Test
+    void testFindAllPublicUsersAfterIsIndexRange() {
+        // as the keyset pagination by login seeks the next page
+        String plan = explain(
+            "select * from jhi_user where activated = true and login >= ? and login > ? order by login asc limit 21",
+            "admin",
+            "admin"
+        );
+        assertThat(plan).contains("idx_user_activated_login").contains("Index Cond").doesNotContain("Sort");
+    }
+
+    private String explain(String sql, Object... args) {
+        List<String> plan = jdbcTemplate.queryForList("explain " + sql, String.class, args);
+        return String.join("\n", plan);
+    }
+}
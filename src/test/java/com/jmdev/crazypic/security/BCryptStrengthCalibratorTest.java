@@ -0,0 +1,35 @@
+package com.jmdev.crazypic.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.function.IntToLongFunction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link BCryptStrengthCalibrator} class.
+ */
+class BCryptStrengthCalibratorTest {
+
+    // strength 10 takes 64 ms, and each additional strength doubles it
+    private static final IntToLongFunction DURATION = strength -> 64L << (strength - 10);
+
+    @Test
+    void testHighestStrengthWithinBudgetIsPicked() {
+        assertThat(BCryptStrengthCalibrator.calibrate(300, 10, 14, DURATION)).isEqualTo(12);
+    }
+
+    @Test
+    void testMinStrengthIsKeptWhenOverBudget() {
+        assertThat(BCryptStrengthCalibrator.calibrate(10, 10, 14, DURATION)).isEqualTo(10);
+    }
+
+    @Test
+    void testMaxStrengthIsNotExceeded() {
+        assertThat(BCryptStrengthCalibrator.calibrate(10_000, 10, 14, DURATION)).isEqualTo(14);
+    }
+
+    @Test
+    void testCalibrationOnCurrentHardware() {
+        assertThat(BCryptStrengthCalibrator.calibrate(1, 4, 6)).isBetween(4, 6);
+    }
+}
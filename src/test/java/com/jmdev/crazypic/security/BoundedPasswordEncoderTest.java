@@ -0,0 +1,143 @@
+package com.jmdev.crazypic.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Test class for the {@link BoundedPasswordEncoder} class.
+ */
+class BoundedPasswordEncoderTest {
+
+    private ExecutorService executor;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    public void setup() {
+        executor =
+            new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1),
+                BoundedPasswordEncoder.newThreadFactory()
+            );
+        meterRegistry = new SimpleMeterRegistry();
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), executor, 5000, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testEncodeAndMatch() {
+        String encoded = passwordEncoder.encode("password");
+
+        assertThat(passwordEncoder.matches("password", encoded)).isTrue();
+        assertThat(passwordEncoder.matches("other", encoded)).isFalse();
+    }
+
+    @Test
+    void testQueueWaitAndHashingAreTimed() throws Exception {
+        String encoded = passwordEncoder.encode("password");
+        passwordEncoder.matches("password", encoded);
+        // already on the executor, so not queued
+        executor.submit(() -> passwordEncoder.matches("password", encoded)).get(5, TimeUnit.SECONDS);
+
+        assertThat(timer(BoundedPasswordEncoder.QUEUE_WAIT_METER_NAME, "encode").count()).isEqualTo(1);
+        assertThat(timer(BoundedPasswordEncoder.QUEUE_WAIT_METER_NAME, "matches").count()).isEqualTo(1);
+        assertThat(timer(BoundedPasswordEncoder.HASHING_METER_NAME, "encode").count()).isEqualTo(1);
+        assertThat(timer(BoundedPasswordEncoder.HASHING_METER_NAME, "matches").count()).isEqualTo(2);
+        assertThat(timer(BoundedPasswordEncoder.HASHING_METER_NAME, "matches").totalTime(TimeUnit.NANOSECONDS)).isPositive();
+    }
+
+    @Test
+    void testRejectedWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> block(started, release));
+        executor.submit(() -> block(new CountDownLatch(1), release));
+        started.await();
+
+        try {
+            assertThatThrownBy(() -> passwordEncoder.encode("password")).isInstanceOf(PasswordHashingRejectedException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testRejectedOnTimeout() throws Exception {
+        BoundedPasswordEncoder timingOutEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), executor, 50, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> block(started, release));
+        started.await();
+
+        try {
+            assertThatThrownBy(() -> timingOutEncoder.encode("password")).isInstanceOf(PasswordHashingRejectedException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testRunsInlineOnPasswordHashingThread() throws Exception {
+        // the only thread of the executor is busy, so the nested encoding would be rejected if it was submitted again
+        Future<String> encoded = executor.submit(() -> passwordEncoder.encode("password"));
+
+        assertThat(passwordEncoder.matches("password", encoded.get(5, TimeUnit.SECONDS))).isTrue();
+    }
+
+    @Test
+    void testSubmitsFromThreadOnlyNamedLikePasswordHashingThread() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> block(started, release));
+        executor.submit(() -> block(new CountDownLatch(1), release));
+        started.await();
+        ExecutorService namedLikeExecutor = Executors.newSingleThreadExecutor(
+            new CustomizableThreadFactory(BoundedPasswordEncoder.THREAD_NAME_PREFIX)
+        );
+
+        try {
+            // the executor is saturated, so the encoding is rejected unless it wrongly runs inline
+            Future<String> encoded = namedLikeExecutor.submit(() -> passwordEncoder.encode("password"));
+
+            assertThatThrownBy(() -> encoded.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(PasswordHashingRejectedException.class);
+        } finally {
+            release.countDown();
+            namedLikeExecutor.shutdownNow();
+        }
+    }
+
+    private Timer timer(String name, String operation) {
+        return meterRegistry.get(name).tag("operation", operation).timer();
+    }
+
+    private static Void block(CountDownLatch started, CountDownLatch release) throws InterruptedException {
+        started.countDown();
+        release.await();
+        return null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.jmdev.crazypic.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Test class for the {@link GrantedAuthorities} utility class.
+ */
+class GrantedAuthoritiesTest {
+
+    @Test
+    void testKnownAuthorityIsCanonical() {
+        assertThat(GrantedAuthorities.of(AuthoritiesConstants.USER)).isSameAs(GrantedAuthorities.of(AuthoritiesConstants.USER));
+        assertThat(GrantedAuthorities.of(AuthoritiesConstants.USER).getAuthority()).isEqualTo(AuthoritiesConstants.USER);
+    }
+
+    @Test
+    void testUnknownAuthorityIsResolved() {
+        assertThat(GrantedAuthorities.of("ROLE_OTHER").getAuthority()).isEqualTo("ROLE_OTHER");
+    }
+
+    @Test
+    void testClaimIsResolvedToSharedImmutableList() {
+        String claim = new String((AuthoritiesConstants.ADMIN + "," + AuthoritiesConstants.USER).toCharArray());
+
+        List<GrantedAuthority> authorities = GrantedAuthorities.fromClaim(claim);
+
+        assertThat(authorities)
+            .extracting(GrantedAuthority::getAuthority)
+            .containsExactly(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+        assertThat(authorities.get(0)).isSameAs(GrantedAuthorities.of(AuthoritiesConstants.ADMIN));
+        assertThat(GrantedAuthorities.fromClaim(AuthoritiesConstants.ADMIN + "," + AuthoritiesConstants.USER)).isSameAs(authorities);
+        assertThatThrownBy(() -> authorities.add(GrantedAuthorities.of(AuthoritiesConstants.ANONYMOUS)))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testBlankAuthoritiesAreIgnored() {
+        assertThat(GrantedAuthorities.fromClaim("")).isEmpty();
+        assertThat(GrantedAuthorities.fromClaim(null)).isEmpty();
+        assertThat(GrantedAuthorities.fromClaim("ROLE_OTHER, ,")).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_OTHER");
+    }
+
+    @Test
+    void testMaskRoundTrip() {
+        long mask = GrantedAuthorities.toMask(List.of(AuthoritiesConstants.USER, "ROLE_OTHER", AuthoritiesConstants.ADMIN));
+
+        assertThat(GrantedAuthorities.fromMask(mask))
+            .extracting(GrantedAuthority::getAuthority)
+            .containsExactly(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+        assertThat(GrantedAuthorities.fromMask(mask)).isSameAs(GrantedAuthorities.fromMask(mask));
+        assertThat(GrantedAuthorities.fromMask(0)).isEmpty();
+        assertThat(GrantedAuthorities.isKnown("ROLE_OTHER")).isFalse();
+    }
+}
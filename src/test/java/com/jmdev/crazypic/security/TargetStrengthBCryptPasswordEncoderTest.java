@@ -0,0 +1,38 @@
+package com.jmdev.crazypic.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Test class for the {@link TargetStrengthBCryptPasswordEncoder} class.
+ */
+class TargetStrengthBCryptPasswordEncoderTest {
+
+    private final TargetStrengthBCryptPasswordEncoder passwordEncoder = new TargetStrengthBCryptPasswordEncoder(5);
+
+    @Test
+    void testHashOfTargetStrengthIsKept() {
+        assertThat(passwordEncoder.upgradeEncoding(passwordEncoder.encode("password"))).isFalse();
+    }
+
+    @Test
+    void testWeakerHashIsUpgraded() {
+        assertThat(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+    }
+
+    @Test
+    void testStrongerHashIsDowngraded() {
+        String encoded = new BCryptPasswordEncoder(6).encode("password");
+
+        assertThat(passwordEncoder.upgradeEncoding(encoded)).isTrue();
+        assertThat(passwordEncoder.matches("password", encoded)).isTrue();
+    }
+
+    @Test
+    void testUnknownHashIsKept() {
+        assertThat(passwordEncoder.upgradeEncoding(null)).isFalse();
+        assertThat(passwordEncoder.upgradeEncoding("not a bcrypt hash")).isFalse();
+    }
+}
@@ -0,0 +1,30 @@
+package com.jmdev.crazypic.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+
+/**
+ * Test class for the {@link UnusablePasswordEncoder} class.
+ */
+class UnusablePasswordEncoderTest {
+
+    private final DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(
+        "bcrypt",
+        Map.of("bcrypt", new TargetStrengthBCryptPasswordEncoder(4), UnusablePasswordEncoder.ID, new UnusablePasswordEncoder())
+    );
+
+    @Test
+    void testNoPasswordMatchesUnusableHash() {
+        assertThat(passwordEncoder.matches("", UnusablePasswordEncoder.PASSWORD_HASH)).isFalse();
+        assertThat(passwordEncoder.matches("password", UnusablePasswordEncoder.PASSWORD_HASH)).isFalse();
+    }
+
+    @Test
+    void testPasswordIsNotEncodedAsUnusable() {
+        assertThatThrownBy(() -> new UnusablePasswordEncoder().encode("password")).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
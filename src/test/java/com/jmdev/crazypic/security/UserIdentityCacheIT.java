@@ -0,0 +1,143 @@
+package com.jmdev.crazypic.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.service.UserService;
+import com.jmdev.crazypic.service.dto.AdminUserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link UserIdentityCache}.
+ */
+@Transactional
+@IntegrationTest
+class UserIdentityCacheIT {
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+
+    @BeforeEach
+    public void init() {
+        userIdentityCache.clear();
+        user = new User();
+        user.setLogin("identity-cache");
+        user.setEmail("identity-cache@localhost");
+        user.setPassword(RandomStringUtils.random(60));
+        user.setActivated(true);
+        user.setLangKey("en");
+        userRepository.saveAndFlush(user);
+    }
+
+    @Test
+    void testIdentityIsCachedUnderIdLoginAndEmail() {
+        UserIdentity identity = userIdentityCache.findByLogin("identity-cache").orElseThrow();
+
+        assertThat(identity.getId()).isEqualTo(user.getId());
+        assertThat(identity.getPasswordHash()).isEqualTo(user.getPassword());
+        assertThat(identity.isActivated()).isTrue();
+        assertThat(cacheManager.getCache(UserIdentityCache.USER_IDENTITIES_CACHE).get(user.getId()).get()).isEqualTo(identity);
+        assertThat(cacheManager.getCache(UserIdentityCache.USER_IDS_BY_LOGIN_CACHE).get("identity-cache").get()).isEqualTo(user.getId());
+        assertThat(userIdentityCache.findByEmail("IDENTITY-CACHE@localhost")).contains(identity);
+    }
+
+    @Test
+    void testAuthoritiesAreKept() {
+        UserIdentity identity = userIdentityCache.findByLogin("admin").orElseThrow();
+
+        assertThat(identity.getAuthorities())
+            .extracting(GrantedAuthority::getAuthority)
+            .containsExactlyInAnyOrder(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+    }
+
+    @Test
+    void testRenamedUserIsNotFoundUnderPreviousLoginAndEmail() {
+        userIdentityCache.findByLogin("identity-cache").orElseThrow();
+
+        AdminUserDTO userDTO = new AdminUserDTO(user);
+        userDTO.setLogin("identity-cache-renamed");
+        userDTO.setEmail("identity-cache-renamed@localhost");
+        userService.updateUser(userDTO);
+        userRepository.flush();
+
+        assertThat(userIdentityCache.findByLogin("identity-cache")).isEmpty();
+        assertThat(userIdentityCache.findByEmail("identity-cache@localhost")).isEmpty();
+        assertThat(userIdentityCache.findByLogin("identity-cache-renamed")).map(UserIdentity::getId).contains(user.getId());
+    }
+
+    @Test
+    void testStaleAliasIsNotFollowed() {
+        userIdentityCache.findByLogin("identity-cache").orElseThrow();
+        // renamed without going through the UserService, so without eviction
+        user.setLogin("identity-cache-renamed");
+        userRepository.saveAndFlush(user);
+        userIdentityCache.findByLogin("identity-cache-renamed").orElseThrow();
+
+        assertThat(userIdentityCache.findByLogin("identity-cache")).isEmpty();
+    }
+
+    @Test
+    void testStaleIdentitiesAreDroppedOnRevalidation() {
+        userIdentityCache.findByLogin("identity-cache").orElseThrow();
+        userIdentityCache.findByLogin("admin").orElseThrow();
+        // deactivated without going through the UserService, as while the application was down
+        user.setActivated(false);
+        userRepository.saveAndFlush(user);
+
+        assertThat(userIdentityCache.revalidate()).isEqualTo(1);
+
+        assertThat(cacheManager.getCache(UserIdentityCache.USER_IDENTITIES_CACHE).get(user.getId())).isNull();
+        assertThat(userIdentityCache.findByLogin("identity-cache")).map(UserIdentity::isActivated).contains(false);
+        assertThat(userIdentityCache.revalidate()).isZero();
+    }
+
+    @Test
+    void testDeletedUserIdentityIsDroppedOnRevalidation() {
+        userIdentityCache.findByLogin("identity-cache").orElseThrow();
+        userRepository.delete(user);
+        userRepository.flush();
+
+        assertThat(userIdentityCache.revalidate()).isEqualTo(1);
+
+        assertThat(userIdentityCache.findByLogin("identity-cache")).isEmpty();
+    }
+
+    @Test
+    void testLookupsAreCountedByResult() {
+        double hits = lookups("hit");
+        double misses = lookups("miss");
+
+        userIdentityCache.findByLogin("identity-cache").orElseThrow();
+        userIdentityCache.findByLogin("identity-cache").orElseThrow();
+
+        assertThat(lookups("miss")).isEqualTo(misses + 1);
+        assertThat(lookups("hit")).isEqualTo(hits + 1);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get(UserIdentityCache.LOOKUPS_METER_NAME).tag("identity", "login").tag("result", result).counter().count();
+    }
+}
@@ -1,7 +1,9 @@
 package com.jmdev.crazypic.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.jmdev.crazypic.config.ApplicationProperties;
 import com.jmdev.crazypic.management.SecurityMetersService;
 import com.jmdev.crazypic.security.AuthoritiesConstants;
 import io.jsonwebtoken.io.Decoders;
@@ -15,6 +17,7 @@ import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -34,7 +37,7 @@ class JWTFilterTest {
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
 
-        tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), securityMetersService);
         ReflectionTestUtils.setField(tokenProvider, "key", Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret)));
 
         ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", 60000);
@@ -61,6 +64,33 @@ class JWTFilterTest {
         assertThat(SecurityContextHolder.getContext().getAuthentication().getCredentials()).hasToString(jwt);
     }
 
+    @Test
+    void testJWTFilterAuthenticationIsNotSharedBetweenRequests() throws Exception {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+            "test-user",
+            "test-password",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))
+        );
+        String jwt = tokenProvider.createToken(authentication, false);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
+        request.setRequestURI("/api/test");
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication first = SecurityContextHolder.getContext().getAuthentication();
+        first.setAuthenticated(false);
+        ((JWTAuthenticationToken) first).setDetails("first request");
+        ((JWTAuthenticationToken) first).eraseCredentials();
+
+        SecurityContextHolder.clearContext();
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication second = SecurityContextHolder.getContext().getAuthentication();
+
+        assertThat(second.isAuthenticated()).isTrue();
+        assertThat(second.getDetails()).isNull();
+        assertThat(second.getCredentials()).hasToString(jwt);
+        assertThatThrownBy(() -> second.setAuthenticated(true)).isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     void testJWTFilterInvalidToken() throws Exception {
         String jwt = "wrong_jwt";
@@ -2,6 +2,7 @@ package com.jmdev.crazypic.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.jmdev.crazypic.config.ApplicationProperties;
 import com.jmdev.crazypic.management.SecurityMetersService;
 import com.jmdev.crazypic.security.AuthoritiesConstants;
 import io.jsonwebtoken.Jwts;
@@ -24,6 +25,8 @@ import tech.jhipster.config.JHipsterProperties;
 class TokenProviderTest {
 
     private static final long ONE_MINUTE = 60000;
+    private static final String BASE64_SECRET =
+        "fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8";
 
     private Key key;
     private TokenProvider tokenProvider;
@@ -36,7 +39,7 @@ class TokenProviderTest {
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
 
-        tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), securityMetersService);
         key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
 
         ReflectionTestUtils.setField(tokenProvider, "key", key);
@@ -88,6 +91,96 @@ class TokenProviderTest {
         assertThat(isTokenValid).isFalse();
     }
 
+    @Test
+    void testVerifyTokenReturnsAuthenticationOfValidToken() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        TokenVerification verification = tokenProvider.verifyToken(token);
+
+        assertThat(verification.isValid()).isTrue();
+        assertThat(verification.getFailure()).isNull();
+        assertThat(verification.getAuthentication().getName()).isEqualTo("anonymous");
+        assertThat(verification.getAuthentication().getCredentials()).hasToString(token);
+    }
+
+    @Test
+    void testVerifyTokenReturnsFailureCause() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", -ONE_MINUTE);
+        String expiredToken = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.verifyToken(expiredToken).getFailure()).isEqualTo(TokenVerification.Failure.EXPIRED);
+        assertThat(tokenProvider.verifyToken(createUnsupportedToken()).getFailure()).isEqualTo(TokenVerification.Failure.UNSUPPORTED);
+        assertThat(tokenProvider.verifyToken(token.substring(1)).getFailure()).isEqualTo(TokenVerification.Failure.MALFORMED);
+        assertThat(tokenProvider.verifyToken("wrong_jwt").getFailure()).isEqualTo(TokenVerification.Failure.MALFORMED);
+        assertThat(tokenProvider.verifyToken(createTokenWithDifferentSignature()).getFailure())
+            .isEqualTo(TokenVerification.Failure.INVALID_SIGNATURE);
+        assertThat(tokenProvider.verifyToken("").getFailure()).isEqualTo(TokenVerification.Failure.INVALID);
+        assertThat(tokenProvider.verifyToken(expiredToken).getAuthentication()).isNull();
+    }
+
+    @Test
+    void testValidatedTokenAuthenticationIsCached() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.validateToken(token)).isTrue();
+        Authentication first = tokenProvider.getAuthentication(token);
+        Authentication second = tokenProvider.getAuthentication(token);
+
+        // each request gets its own authentication, sharing the verified principal and authorities
+        assertThat(first).isNotSameAs(second).isEqualTo(second);
+        assertThat(first.getPrincipal()).isSameAs(second.getPrincipal());
+        assertThat(first.getAuthorities()).isSameAs(second.getAuthorities());
+        assertThat(first.getName()).isEqualTo("anonymous");
+        assertThat(first.getCredentials()).hasToString(token);
+        assertThat(first.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly(AuthoritiesConstants.ANONYMOUS);
+    }
+
+    @Test
+    void testTokenIsNotCachedWhenCacheIsDisabled() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(BASE64_SECRET);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().getTokenCache().setEnabled(false);
+        TokenProvider tokenProvider = new TokenProvider(
+            jHipsterProperties,
+            applicationProperties,
+            new SecurityMetersService(new SimpleMeterRegistry())
+        );
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.validateToken(token)).isTrue();
+
+        assertThat(tokenProvider.getAuthentication(token)).isNotSameAs(tokenProvider.getAuthentication(token));
+    }
+
+    @Test
+    void testRejectedTokenIsCachedByDigest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TokenProvider tokenProvider = tokenProvider(meterRegistry);
+        String invalidSignature = createTokenWithDifferentSignature();
+
+        assertThat(tokenProvider.verifyToken(invalidSignature).getFailure()).isEqualTo(TokenVerification.Failure.INVALID_SIGNATURE);
+        assertThat(tokenProvider.verifyToken(invalidSignature).getFailure()).isEqualTo(TokenVerification.Failure.INVALID_SIGNATURE);
+
+        assertThat(tokenCacheLookups(meterRegistry, "rejected-hit")).isEqualTo(1);
+        VerifiedTokenCache rejectedTokenCache = (VerifiedTokenCache) ReflectionTestUtils.getField(tokenProvider, "rejectedTokenCache");
+        assertThat(rejectedTokenCache.get(invalidSignature)).isNull();
+    }
+
+    @Test
+    void testOversizedTokenIsRejectedWithoutBeingCached() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TokenProvider tokenProvider = tokenProvider(meterRegistry);
+        String oversizedToken = "a." + "b".repeat(TokenProvider.MAX_TOKEN_LENGTH) + ".c";
+
+        assertThat(tokenProvider.verifyToken(oversizedToken).getFailure()).isEqualTo(TokenVerification.Failure.MALFORMED);
+        assertThat(tokenProvider.verifyToken(oversizedToken).getFailure()).isEqualTo(TokenVerification.Failure.MALFORMED);
+
+        assertThat(tokenCacheLookups(meterRegistry, "rejected-hit")).isZero();
+        assertThat(tokenCacheLookups(meterRegistry, "miss")).isEqualTo(2);
+    }
+
     @Test
     void testKeyIsSetFromSecretWhenSecretIsNotEmpty() {
         final String secret = "NwskoUmKHZtzGRKJKVjsJF7BtQMMxNWi";
@@ -96,7 +189,7 @@ class TokenProviderTest {
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
 
-        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), securityMetersService);
 
         Key key = (Key) ReflectionTestUtils.getField(tokenProvider, "key");
         assertThat(key).isNotNull().isEqualTo(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)));
@@ -110,12 +203,26 @@ class TokenProviderTest {
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
 
-        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), securityMetersService);
 
         Key key = (Key) ReflectionTestUtils.getField(tokenProvider, "key");
         assertThat(key).isNotNull().isEqualTo(Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret)));
     }
 
+    private TokenProvider tokenProvider(SimpleMeterRegistry meterRegistry) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(BASE64_SECRET);
+        return new TokenProvider(jHipsterProperties, new ApplicationProperties(), new SecurityMetersService(meterRegistry));
+    }
+
+    private static double tokenCacheLookups(SimpleMeterRegistry meterRegistry, String result) {
+        return meterRegistry
+            .get(SecurityMetersService.TOKEN_CACHE_METER_NAME)
+            .tag(SecurityMetersService.TOKEN_CACHE_METER_RESULT_DIMENSION, result)
+            .counter()
+            .count();
+    }
+
     private Authentication createAuthentication() {
         Collection<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
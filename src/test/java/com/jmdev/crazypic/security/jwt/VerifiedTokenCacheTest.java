@@ -0,0 +1,83 @@
+package com.jmdev.crazypic.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.security.AuthoritiesConstants;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+class VerifiedTokenCacheTest {
+
+    private static final long ONE_MINUTE = 60000;
+
+    @Test
+    void testCachedTokenIsReturned() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        TokenVerification verification = createVerification("token");
+
+        cache.put("token", verification, System.currentTimeMillis() + ONE_MINUTE);
+
+        assertThat(cache.get("token")).isSameAs(verification);
+        assertThat(cache.get("other-token")).isNull();
+    }
+
+    @Test
+    void testAlreadyExpiredTokenIsNotCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        cache.put("expired", createVerification("expired"), System.currentTimeMillis() - 1);
+
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testValidTokenIsReportedExpiredOnceItsEntryExpires() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        cache.put("token", createVerification("token"), System.currentTimeMillis() + 5);
+        Thread.sleep(10);
+
+        assertThat(cache.get("token").getFailure()).isEqualTo(TokenVerification.Failure.EXPIRED);
+        assertThat(cache.get("token")).isNull();
+    }
+
+    @Test
+    void testRejectedTokenIsForgottenOnceItsEntryExpires() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        cache.put("token", TokenVerification.failed(TokenVerification.Failure.INVALID_SIGNATURE), System.currentTimeMillis() + 5);
+        assertThat(cache.get("token").getFailure()).isEqualTo(TokenVerification.Failure.INVALID_SIGNATURE);
+        Thread.sleep(10);
+
+        assertThat(cache.get("token")).isNull();
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("token-" + i, createVerification("token-" + i), System.currentTimeMillis() + ONE_MINUTE);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+        assertThat(cache.get("token-99")).isNotNull();
+    }
+
+    @Test
+    void testNothingIsCachedWhenDisabled() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(0);
+
+        cache.put("token", createVerification("token"), System.currentTimeMillis() + ONE_MINUTE);
+
+        assertThat(cache.get("token")).isNull();
+    }
+
+    private TokenVerification createVerification(String token) {
+        return TokenVerification.valid(
+            new JWTAuthenticationToken("test-user", token, Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER)))
+        );
+    }
+}
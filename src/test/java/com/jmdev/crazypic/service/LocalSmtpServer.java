@@ -0,0 +1,143 @@
+package com.jmdev.crazypic.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+/**
+ * Local stand-in of an SMTP server, listening on a random port of the loopback address.
+ * <p>
+ * It accepts any mail, except the ones to a recipient starting with {@code rejected}, and keeps the messages it
+ * received in memory.
+ */
+class LocalSmtpServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+
+    LocalSmtpServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.execute(this::accept);
+    }
+
+    /**
+     * @return a sender of the mails to this server.
+     */
+    JavaMailSenderImpl newMailSender() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost(serverSocket.getInetAddress().getHostAddress());
+        mailSender.setPort(serverSocket.getLocalPort());
+        return mailSender;
+    }
+
+    int getConnections() {
+        return connections.get();
+    }
+
+    List<MimeMessage> getMessages() throws MessagingException {
+        Session session = Session.getInstance(new Properties());
+        List<MimeMessage> mimeMessages = new ArrayList<>();
+        for (String message : messages) {
+            mimeMessages.add(new MimeMessage(session, new ByteArrayInputStream(message.getBytes(StandardCharsets.ISO_8859_1))));
+        }
+        return mimeMessages;
+    }
+
+    MimeMessage getLastMessage() throws MessagingException {
+        List<MimeMessage> mimeMessages = getMessages();
+        return mimeMessages.get(mimeMessages.size() - 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // closed
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (
+            socket;
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1)
+        ) {
+            reply(out, "220 localhost");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line : line.substring(0, 4).toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                        reply(out, "250 localhost");
+                        break;
+                    case "RCPT":
+                        reply(out, line.toLowerCase().contains("<rejected") ? "550 Mailbox unavailable" : "250 OK");
+                        break;
+                    case "DATA":
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        messages.add(readData(in));
+                        reply(out, "250 OK");
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Bye");
+                        return;
+                    default:
+                        // MAIL, RSET and NOOP
+                        reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // closed by the client
+        }
+    }
+
+    private static String readData(BufferedReader in) throws IOException {
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            data.append(line.startsWith(".") ? line.substring(1) : line).append("\r\n");
+        }
+        return data.toString();
+    }
+
+    private static void reply(Writer out, String reply) throws IOException {
+        out.write(reply + "\r\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,168 @@
+package com.jmdev.crazypic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.config.ApplicationProperties;
+import com.jmdev.crazypic.domain.OutboxMail;
+import com.jmdev.crazypic.repository.OutboxMailRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import javax.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Integration tests for {@link MailDispatcher}, sending the mails to a {@link LocalSmtpServer}.
+ */
+@IntegrationTest
+@Transactional
+class MailDispatcherIT {
+
+    @Autowired
+    private MailService mailService;
+
+    @Autowired
+    private OutboxMailRepository outboxMailRepository;
+
+    @Autowired
+    private JHipsterProperties jHipsterProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private LocalSmtpServer smtpServer;
+
+    private ApplicationProperties.Mail.Outbox properties;
+
+    private MeterRegistry meterRegistry;
+
+    private MailDispatcher mailDispatcher;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        // the mails left by the other tests
+        outboxMailRepository.deleteAll();
+        smtpServer = new LocalSmtpServer();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        properties = applicationProperties.getMail().getOutbox();
+        properties.setBatchSize(2);
+        properties.setMaxRate(0);
+        properties.setMaxAttempts(3);
+        meterRegistry = new SimpleMeterRegistry();
+        mailDispatcher =
+            new MailDispatcher(
+                outboxMailRepository,
+                smtpServer.newMailSender(),
+                jHipsterProperties,
+                transactionManager,
+                applicationProperties,
+                null,
+                meterRegistry
+            );
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        smtpServer.close();
+    }
+
+    @Test
+    void testBatchesAreSentOverOneConnectionEach() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mailService.sendEmail("user-" + i + "@example.com", "testSubject", "testContent", false, false);
+        }
+
+        assertThat(mailDispatcher.dispatch()).isEqualTo(3);
+
+        assertThat(smtpServer.getMessages())
+            .extracting(message -> message.getAllRecipients()[0].toString())
+            .containsExactly("user-0@example.com", "user-1@example.com", "user-2@example.com");
+        assertThat(smtpServer.getConnections()).isEqualTo(2);
+        assertThat(outboxMailRepository.findAll()).isEmpty();
+        assertThat(mails("sent")).isEqualTo(3);
+    }
+
+    @Test
+    void testBatchesAreSpacedOutByTheMaxRate() {
+        properties.setBatchSize(1);
+        properties.setMaxRate(20);
+        for (int i = 0; i < 3; i++) {
+            mailService.sendEmail("user-" + i + "@example.com", "testSubject", "testContent", false, false);
+        }
+
+        long start = System.nanoTime();
+        mailDispatcher.dispatch();
+
+        // each mail of a full batch is followed by a 50 ms wait
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+        assertThat(smtpServer.getConnections()).isEqualTo(3);
+    }
+
+    @Test
+    void testRejectedMailIsRetriedWithBackoff() throws Exception {
+        mailService.sendEmail("rejected@example.com", "testSubject", "testContent", false, false);
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+
+        mailDispatcher.dispatch();
+
+        assertThat(smtpServer.getMessages()).extracting(MimeMessage::getSubject).containsExactly("testSubject");
+        OutboxMail rejected = outboxMailRepository.findAll().get(0);
+        assertThat(rejected.getRecipient()).isEqualTo("rejected@example.com");
+        assertThat(rejected.getAttempts()).isEqualTo(1);
+        assertThat(rejected.getLastError()).contains("550");
+        assertThat(rejected.getNextAttemptDate())
+            .isCloseTo(Instant.now().plus(properties.getInitialBackoff()), within(5, ChronoUnit.SECONDS));
+        assertThat(mails("retried")).isEqualTo(1);
+
+        // not due yet
+        assertThat(mailDispatcher.dispatch()).isZero();
+
+        rejected.setNextAttemptDate(Instant.now());
+        mailDispatcher.dispatch();
+
+        assertThat(rejected.getAttempts()).isEqualTo(2);
+        assertThat(rejected.getNextAttemptDate())
+            .isCloseTo(Instant.now().plus(properties.getInitialBackoff().multipliedBy(2)), within(5, ChronoUnit.SECONDS));
+    }
+
+    @Test
+    void testMailIsGivenUpAfterMaxAttempts() {
+        mailService.sendEmail("rejected@example.com", "testSubject", "testContent", false, false);
+        OutboxMail rejected = outboxMailRepository.findAll().get(0);
+        rejected.setAttempts(properties.getMaxAttempts() - 1);
+
+        mailDispatcher.dispatch();
+
+        assertThat(rejected.getAttempts()).isEqualTo(properties.getMaxAttempts());
+        assertThat(rejected.getNextAttemptDate()).isNull();
+        assertThat(outboxMailRepository.findAll()).containsExactly(rejected);
+        assertThat(mails("given-up")).isEqualTo(1);
+    }
+
+    @Test
+    void testMailIsRetriedWhenTheServerIsUnavailable() throws Exception {
+        smtpServer.close();
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+
+        mailDispatcher.dispatch();
+
+        OutboxMail mail = outboxMailRepository.findAll().get(0);
+        assertThat(mail.getAttempts()).isEqualTo(1);
+        assertThat(mail.getNextAttemptDate()).isAfter(Instant.now());
+    }
+
+    private double mails(String result) {
+        return meterRegistry.get(MailDispatcher.MAILS_METER_NAME).tag("result", result).counter().count();
+    }
+}
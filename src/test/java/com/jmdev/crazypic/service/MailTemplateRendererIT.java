@@ -0,0 +1,90 @@
+package com.jmdev.crazypic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.domain.User;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Integration tests for {@link MailTemplateRenderer}.
+ */
+@IntegrationTest
+class MailTemplateRendererIT {
+
+    private static final String[] languages = {
+        "fr",
+        "en",
+        "es",
+        // jhipster-needle-i18n-language-constant - JHipster will add/remove languages in this array
+    };
+
+    @Autowired
+    private MailTemplateRenderer mailTemplateRenderer;
+
+    @Autowired
+    private SpringTemplateEngine templateEngine;
+
+    @Autowired
+    private MessageSource messageSource;
+
+    @Autowired
+    private JHipsterProperties jHipsterProperties;
+
+    @Test
+    void testPrecompiledTemplatesRenderAsTheTemplateEngine() {
+        for (String langKey : languages) {
+            Locale locale = Locale.forLanguageTag(langKey);
+            for (String templateName : MailTemplateRenderer.PRECOMPILED_TEMPLATES) {
+                for (String login : new String[] { "john", "o'neil&co<script>", "\"quoted\"" }) {
+                    User user = new User();
+                    user.setLogin(login);
+                    user.setEmail(login + "@example.com");
+                    user.setActivationKey("activation" + login);
+                    user.setResetKey("reset" + login);
+                    assertThat(mailTemplateRenderer.render(templateName, user, locale))
+                        .as("%s in %s for %s", templateName, langKey, login)
+                        .isEqualTo(process(templateName, user, locale));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFieldsAreSubstitutedPerUser() {
+        User john = new User();
+        john.setLogin("john");
+        john.setActivationKey("12345678901234567890");
+        User jane = new User();
+        jane.setLogin("jane");
+        jane.setActivationKey("09876543210987654321");
+
+        String johnContent = mailTemplateRenderer.render("mail/activationEmail", john, Locale.ENGLISH);
+        String janeContent = mailTemplateRenderer.render("mail/activationEmail", jane, Locale.ENGLISH);
+
+        assertThat(johnContent).contains("Dear john", "key=12345678901234567890").doesNotContain("jane");
+        assertThat(janeContent).contains("Dear jane", "key=09876543210987654321").doesNotContain("john");
+    }
+
+    @Test
+    void testSubjectsAreLocalized() {
+        for (String langKey : languages) {
+            Locale locale = Locale.forLanguageTag(langKey);
+            assertThat(mailTemplateRenderer.getSubject("email.reset.title", locale))
+                .isEqualTo(messageSource.getMessage("email.reset.title", null, locale));
+        }
+    }
+
+    private String process(String templateName, User user, Locale locale) {
+        Context context = new Context(locale);
+        context.setVariable("user", user);
+        context.setVariable("baseUrl", jHipsterProperties.getMail().getBaseUrl());
+        return templateEngine.process(templateName, context);
+    }
+}
@@ -0,0 +1,105 @@
+package com.jmdev.crazypic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.config.ApplicationProperties;
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.AuthorityRepository;
+import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.security.AuthoritiesConstants;
+import com.jmdev.crazypic.security.UserIdentityCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Integration tests for {@link UserCacheWarmer}.
+ * <p>
+ * Not transactional, as the users are loaded by the warm-up threads.
+ */
+@IntegrationTest
+class UserCacheWarmerIT {
+
+    @Autowired
+    private UserCacheWarmer userCacheWarmer;
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    public void init() {
+        for (int i = 0; i < 5; i++) {
+            users.add(createUser("warm-up-" + i, true));
+        }
+        users.add(createUser("warm-up-inactive", false));
+        userIdentityCache.clear();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        userRepository.deleteAll(users);
+        userIdentityCache.clear();
+        applicationProperties.getCache().getWarmUp().setMaxUsers(new ApplicationProperties.Cache.WarmUp().getMaxUsers());
+        applicationProperties.getCache().getWarmUp().setPageSize(new ApplicationProperties.Cache.WarmUp().getPageSize());
+    }
+
+    @Test
+    void testRecentlyActiveUsersAreCached() {
+        applicationProperties.getCache().getWarmUp().setPageSize(2);
+
+        assertThat(userCacheWarmer.warmUp()).isGreaterThanOrEqualTo(5);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(isCached("warm-up-" + i)).isTrue();
+        }
+        assertThat(isCached("warm-up-inactive")).isFalse();
+    }
+
+    @Test
+    void testMostRecentlyModifiedUsersAreCachedFirst() {
+        applicationProperties.getCache().getWarmUp().setMaxUsers(2);
+        applicationProperties.getCache().getWarmUp().setPageSize(1);
+
+        assertThat(userCacheWarmer.warmUp()).isEqualTo(2);
+
+        assertThat(isCached("warm-up-4")).isTrue();
+        assertThat(isCached("warm-up-3")).isTrue();
+        assertThat(isCached("warm-up-0")).isFalse();
+    }
+
+    private boolean isCached(String login) {
+        return cacheManager.getCache(UserIdentityCache.USER_IDS_BY_LOGIN_CACHE).get(login) != null;
+    }
+
+    private User createUser(String login, boolean activated) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail(login + "@localhost");
+        user.setPassword(RandomStringUtils.random(60));
+        user.setActivated(activated);
+        user.setLangKey("en");
+        user.setAuthorities(Set.of(authorityRepository.findById(AuthoritiesConstants.USER).orElseThrow()));
+        return userRepository.saveAndFlush(user);
+    }
+}
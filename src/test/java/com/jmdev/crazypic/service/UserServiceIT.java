@@ -1,28 +1,56 @@
 package com.jmdev.crazypic.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.when;
 
 import com.jmdev.crazypic.IntegrationTest;
 import com.jmdev.crazypic.config.Constants;
+import com.jmdev.crazypic.domain.Authority;
 import com.jmdev.crazypic.domain.User;
 import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.security.AuthoritiesConstants;
+import com.jmdev.crazypic.security.UnusablePasswordEncoder;
+import com.jmdev.crazypic.security.UserIdentityCache;
 import com.jmdev.crazypic.service.dto.AdminUserDTO;
+import com.jmdev.crazypic.service.dto.BulkUserOperationDTO;
+import com.jmdev.crazypic.service.dto.BulkUserResultDTO;
+import com.jmdev.crazypic.service.dto.UserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.data.auditing.AuditingHandler;
 import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import tech.jhipster.security.RandomUtil;
 
 /**
@@ -53,9 +81,24 @@ class UserServiceIT {
     @Autowired
     private AuditingHandler auditingHandler;
 
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @MockBean
     private DateTimeProvider dateTimeProvider;
 
+    @SpyBean
+    private MailService mailService;
+
+    @SpyBean
+    private UserIdentityCache userIdentityCache;
+
     private User user;
 
     @BeforeEach
@@ -182,4 +225,232 @@ class UserServiceIT {
         Optional<User> maybeDbUser = userRepository.findById(dbUser.getId());
         assertThat(maybeDbUser).contains(dbUser);
     }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void assertThatNotActivatedUsersArePurgedWithTheirAuthorities() {
+        int created = UserService.PURGE_CHUNK_SIZE + 3;
+        List<Long> ids = createNotActivatedUsers(created);
+        double purgedUsers = purgedRows("jhi_user");
+        double purgedAuthorities = purgedRows("jhi_user_authority");
+        try {
+            userService.removeNotActivatedUsers();
+
+            assertThat(remainingUsers(ids)).isZero();
+            assertThat(remainingAuthorities(ids)).isZero();
+            assertThat(purgedRows("jhi_user")).isEqualTo(purgedUsers + created);
+            assertThat(purgedRows("jhi_user_authority")).isEqualTo(purgedAuthorities + created);
+            assertThat(meterRegistry.get(UserService.PURGE_DURATION_METER_NAME).timer().count()).isPositive();
+        } finally {
+            deleteUsers(ids);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void assertThatPurgedChunksAreCommittedWhenALaterChunkFails() {
+        int created = UserService.PURGE_CHUNK_SIZE + 3;
+        List<Long> ids = createNotActivatedUsers(created);
+        AtomicInteger chunks = new AtomicInteger();
+        doAnswer(invocation -> {
+                if (chunks.incrementAndGet() == 2) {
+                    throw new IllegalStateException("second chunk failed");
+                }
+                return invocation.callRealMethod();
+            })
+            .when(userIdentityCache)
+            .evictAll(any());
+        try {
+            assertThatThrownBy(() -> userService.removeNotActivatedUsers()).isInstanceOf(IllegalStateException.class);
+
+            // the first chunk, the oldest ids, stays deleted while the second one is rolled back
+            assertThat(remainingUsers(ids.subList(0, UserService.PURGE_CHUNK_SIZE))).isZero();
+            assertThat(remainingAuthorities(ids.subList(0, UserService.PURGE_CHUNK_SIZE))).isZero();
+            assertThat(remainingUsers(ids)).isEqualTo(created - UserService.PURGE_CHUNK_SIZE);
+            assertThat(remainingAuthorities(ids)).isEqualTo(created - UserService.PURGE_CHUNK_SIZE);
+        } finally {
+            deleteUsers(ids);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void assertThatWriteIsRetriedWhenUserIsConcurrentlyUpdated() {
+        userRepository.saveAndFlush(user);
+        String upgradedPassword = RandomStringUtils.random(60);
+        long version = user.getVersion();
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(invocation -> {
+                if (attempts.incrementAndGet() == 1) {
+                    // the upgrade of the password hash at login, committed after the user was read
+                    TransactionTemplate login = new TransactionTemplate(transactionManager);
+                    login.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                    login.executeWithoutResult(status -> userService.upgradePassword(DEFAULT_LOGIN, upgradedPassword));
+                }
+                return invocation.callRealMethod();
+            })
+            .when(mailService)
+            .sendPasswordResetMail(any());
+        try {
+            assertThat(userService.requestPasswordReset(DEFAULT_EMAIL)).isPresent();
+
+            User updated = userRepository.findById(user.getId()).orElseThrow();
+            assertThat(attempts).hasValue(2);
+            assertThat(updated.getPassword()).isEqualTo(upgradedPassword);
+            assertThat(updated.getResetKey()).isNotNull();
+            assertThat(updated.getVersion()).isEqualTo(version + 2);
+        } finally {
+            userService.deleteUser(DEFAULT_LOGIN);
+        }
+    }
+
+    @Test
+    @Transactional
+    void assertThatBulkCreatedUsersAreBatched() {
+        int created = 60;
+        List<BulkUserOperationDTO> operations = new ArrayList<>();
+        for (int i = 0; i < created; i++) {
+            AdminUserDTO userDTO = new AdminUserDTO();
+            userDTO.setLogin("bulk-" + i);
+            userDTO.setEmail("bulk-" + i + "@localhost");
+            userDTO.setAuthorities(Set.of(AuthoritiesConstants.USER));
+            operations.add(new BulkUserOperationDTO(BulkUserOperationDTO.Action.CREATE, userDTO));
+        }
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            userService.bulkUpdateUsers(operations);
+            em.flush();
+
+            // the lookups, the sequence, then batches of inserts of the users and of their authorities
+            assertThat(statistics.getPrepareStatementCount()).isLessThan(created / 3);
+            assertThat(statistics.getEntityStatistics(User.class.getName()).getInsertCount()).isEqualTo(created);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        List<User> users = userRepository.findAllWithAuthoritiesByLoginIn(
+            operations.stream().map(operation -> operation.getUser().getLogin()).collect(Collectors.toSet())
+        );
+        assertThat(users).hasSize(created).extracting(User::getPassword).containsOnly(UnusablePasswordEncoder.PASSWORD_HASH);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void assertThatBulkOperationOfConcurrentlyUpdatedUserIsRejected() {
+        userRepository.saveAndFlush(user);
+        AtomicBoolean updating = new AtomicBoolean();
+        doAnswer(invocation -> {
+                User evicted = invocation.getArgument(0);
+                if (DEFAULT_LOGIN.equals(evicted.getLogin()) && updating.compareAndSet(false, true)) {
+                    try {
+                        // the upgrade of the password hash at a login, committed after each read of the user
+                        TransactionTemplate login = new TransactionTemplate(transactionManager);
+                        login.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                        login.executeWithoutResult(status -> userService.upgradePassword(DEFAULT_LOGIN, RandomStringUtils.random(60)));
+                    } finally {
+                        updating.set(false);
+                    }
+                }
+                return invocation.callRealMethod();
+            })
+            .when(userIdentityCache)
+            .evict(any(User.class));
+        doNothing().when(mailService).sendCreationEmail(any());
+        AdminUserDTO createdUser = new AdminUserDTO();
+        createdUser.setLogin("bulk-created");
+        createdUser.setEmail("bulk-created@localhost");
+        AdminUserDTO updatedUser = new AdminUserDTO(user);
+        updatedUser.setFirstName("jane");
+        try {
+            List<BulkUserResultDTO> results = userService.bulkUpdateUsers(
+                List.of(
+                    new BulkUserOperationDTO(BulkUserOperationDTO.Action.CREATE, createdUser),
+                    new BulkUserOperationDTO(BulkUserOperationDTO.Action.UPDATE, updatedUser)
+                )
+            );
+
+            // the other operations are applied in transactions of their own
+            assertThat(results)
+                .extracting(BulkUserResultDTO::getStatus)
+                .containsExactly(BulkUserResultDTO.Status.CREATED, BulkUserResultDTO.Status.REJECTED);
+            assertThat(results.get(1).getError()).isEqualTo("concurrentupdate");
+            assertThat(userRepository.findOneByLogin("bulk-created")).isPresent();
+            assertThat(userRepository.findOneByLogin(DEFAULT_LOGIN).orElseThrow().getFirstName()).isEqualTo(DEFAULT_FIRSTNAME);
+        } finally {
+            reset(userIdentityCache);
+            userService.deleteUser(DEFAULT_LOGIN);
+            userService.deleteUser("bulk-created");
+        }
+    }
+
+    private List<Long> createNotActivatedUsers(int count) {
+        when(dateTimeProvider.getNow()).thenReturn(Optional.of(Instant.now().minus(4, ChronoUnit.DAYS)));
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User notActivatedUser = new User();
+            notActivatedUser.setLogin("purged-" + i);
+            notActivatedUser.setPassword(RandomStringUtils.random(60));
+            notActivatedUser.setActivationKey(RandomStringUtils.random(20));
+            notActivatedUser.getAuthorities().add(authority);
+            users.add(notActivatedUser);
+        }
+        List<User> saved = new TransactionTemplate(transactionManager).execute(status -> userRepository.saveAll(users));
+        return saved.stream().map(User::getId).sorted().collect(Collectors.toList());
+    }
+
+    private long remainingUsers(List<Long> ids) {
+        return countIn("jhi_user", "id", ids);
+    }
+
+    private long remainingAuthorities(List<Long> ids) {
+        return countIn("jhi_user_authority", "user_id", ids);
+    }
+
+    private long countIn(String table, String column, List<Long> ids) {
+        Object count = new TransactionTemplate(transactionManager).execute(status ->
+            em
+                .createNativeQuery("select count(*) from " + table + " where " + column + " in (:ids)")
+                .setParameter("ids", ids)
+                .getSingleResult()
+        );
+        return ((Number) count).longValue();
+    }
+
+    private void deleteUsers(List<Long> ids) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.deleteAuthoritiesByUserIdIn(ids);
+            userRepository.deleteUsersByIdIn(ids);
+        });
+    }
+
+    private double purgedRows(String table) {
+        return meterRegistry.get(UserService.PURGED_ROWS_METER_NAME).tag("table", table).counter().count();
+    }
+
+    @Test
+    @Transactional
+    void assertThatOnlyActivatedUsersArePublic() {
+        userRepository.saveAndFlush(user);
+        User notActivatedUser = new User();
+        notActivatedUser.setLogin("notactivated");
+        notActivatedUser.setPassword(RandomStringUtils.random(60));
+        notActivatedUser.setActivated(false);
+        userRepository.saveAndFlush(notActivatedUser);
+        em.clear();
+
+        Page<UserDTO> users = userService.getAllPublicUsers(PageRequest.of(0, 1000, Sort.by("login")));
+
+        assertThat(users.getTotalElements()).isEqualTo(users.getContent().size());
+        assertThat(users.getContent()).extracting(UserDTO::getLogin).contains(DEFAULT_LOGIN).doesNotContain("notactivated").isSorted();
+        assertThat(users.getContent())
+            .filteredOn(publicUser -> publicUser.getLogin().equals(DEFAULT_LOGIN))
+            .singleElement()
+            .extracting(UserDTO::getId)
+            .isEqualTo(user.getId());
+        // the users are projected, not loaded as entities
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
 }
@@ -9,12 +9,12 @@ import com.jmdev.crazypic.IntegrationTest;
 import com.jmdev.crazypic.domain.User;
 import com.jmdev.crazypic.repository.UserRepository;
 import com.jmdev.crazypic.security.AuthoritiesConstants;
+import com.jmdev.crazypic.security.UserIdentityCache;
 import javax.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
-import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -37,7 +37,7 @@ class PublicUserResourceIT {
     private EntityManager em;
 
     @Autowired
-    private CacheManager cacheManager;
+    private UserIdentityCache userIdentityCache;
 
     @Autowired
     private MockMvc restUserMockMvc;
@@ -46,8 +46,7 @@ class PublicUserResourceIT {
 
     @BeforeEach
     public void setup() {
-        cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).clear();
-        cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).clear();
+        userIdentityCache.clear();
     }
 
     @BeforeEach
@@ -72,6 +71,38 @@ class PublicUserResourceIT {
             .andExpect(jsonPath("$.[*].langKey").doesNotExist());
     }
 
+    @Test
+    @Transactional
+    void getAllPublicUsersByKeyset() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+
+        restUserMockMvc
+            .perform(get("/api/users?cursor=&size=1&sort=login,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().exists(KeysetPaginationUtil.NEXT_CURSOR_HEADER));
+        restUserMockMvc
+            .perform(get("/api/users?cursor=&size=1000&sort=login,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].login").value(hasItem(DEFAULT_LOGIN)))
+            .andExpect(jsonPath("$.[*].email").doesNotExist())
+            .andExpect(header().doesNotExist(KeysetPaginationUtil.NEXT_CURSOR_HEADER))
+            .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    @Transactional
+    void getAllPublicUsersByKeysetSortedByPrivateProperty() throws Exception {
+        restUserMockMvc
+            .perform(get("/api/users?cursor=&size=1&sort=email,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        restUserMockMvc
+            .perform(get("/api/users?cursor=&size=1&sort=activated,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     void getAllAuthorities() throws Exception {
@@ -0,0 +1,137 @@
+package com.jmdev.crazypic.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jmdev.crazypic.IntegrationTest;
+import com.jmdev.crazypic.domain.User;
+import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.security.AuthoritiesConstants;
+import com.jmdev.crazypic.service.dto.AdminUserDTO;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link UserExportResource} REST controller.
+ */
+@AutoConfigureMockMvc
+@WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+@IntegrationTest
+class UserExportResourceIT {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockMvc restUserMockMvc;
+
+    private User user;
+
+    @BeforeEach
+    public void initTest() {
+        user = UserResourceIT.initTestUser(userRepository, em);
+        user.setLastName("Doe, \"Jr\"");
+    }
+
+    @Test
+    @Transactional
+    void exportUsersAsNdjson() throws Exception {
+        userRepository.saveAndFlush(user);
+
+        String export = restUserMockMvc
+            .perform(get("/api/admin/export/users"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(UserExportResource.NDJSON_VALUE))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\""))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        List<AdminUserDTO> users = new ArrayList<>();
+        for (String line : export.split("\n")) {
+            users.add(objectMapper.readValue(line, AdminUserDTO.class));
+        }
+        assertThat(users).hasSize((int) userRepository.count());
+        assertThat(users).extracting(AdminUserDTO::getId).isSorted();
+        assertThat(users)
+            .filteredOn(exported -> exported.getLogin().equals("admin"))
+            .singleElement()
+            .satisfies(admin -> assertThat(admin.getAuthorities()).contains(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER));
+        assertThat(users)
+            .filteredOn(exported -> exported.getId().equals(user.getId()))
+            .singleElement()
+            .satisfies(exported -> assertThat(exported.getLastName()).isEqualTo("Doe, \"Jr\""));
+    }
+
+    @Test
+    @Transactional
+    void exportUsersAsCsv() throws Exception {
+        userRepository.saveAndFlush(user);
+
+        String export = restUserMockMvc
+            .perform(get("/api/admin/export/users?format=csv"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(UserExportResource.CSV_VALUE))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        String[] lines = export.split("\r\n");
+        assertThat(lines).hasSize((int) userRepository.count() + 1);
+        assertThat(lines[0])
+            .isEqualTo(
+                "id,login,firstName,lastName,email,imageUrl,activated,langKey," +
+                "createdBy,createdDate,lastModifiedBy,lastModifiedDate,authorities"
+            );
+        assertThat(lines).anyMatch(line -> line.startsWith(user.getId() + ",johndoe,john,\"Doe, \"\"Jr\"\"\",johndoe@localhost,"));
+    }
+
+    @Test
+    @Transactional
+    void exportUsersAsCsvWithoutFormulas() throws Exception {
+        user.setFirstName("=1+2");
+        user.setLastName("-HYPERLINK(\"http://localhost\",\"x\")");
+        userRepository.saveAndFlush(user);
+
+        String export = restUserMockMvc
+            .perform(get("/api/admin/export/users?format=csv"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        assertThat(export.split("\r\n"))
+            .anyMatch(line -> line.startsWith(user.getId() + ",johndoe,'=1+2,\"'-HYPERLINK(\"\"http://localhost\"\",\"\"x\"\")\","));
+    }
+
+    @Test
+    @Transactional
+    void exportUsersWithUnknownFormat() throws Exception {
+        restUserMockMvc.perform(get("/api/admin/export/users?format=xml")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser
+    void exportUsersAsUser() throws Exception {
+        restUserMockMvc.perform(get("/api/admin/export/users")).andExpect(status().isForbidden());
+    }
+}
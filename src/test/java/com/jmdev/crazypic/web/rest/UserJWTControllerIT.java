@@ -1,28 +1,37 @@
 package com.jmdev.crazypic.web.rest;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.emptyString;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.jmdev.crazypic.IntegrationTest;
 import com.jmdev.crazypic.domain.User;
 import com.jmdev.crazypic.repository.UserRepository;
+import com.jmdev.crazypic.security.UserIdentityCache;
 import com.jmdev.crazypic.web.rest.vm.LoginVM;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.test.web.servlet.MvcResult;
 
 /**
  * Integration tests for the {@link UserJWTController} REST controller.
+ * <p>
+ * The authentication runs on the password hashing executor, which cannot see the data of a test transaction, so the
+ * users are committed and deleted after each test.
  */
 @AutoConfigureMockMvc
 @IntegrationTest
@@ -34,11 +43,21 @@ class UserJWTControllerIT {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
     @Autowired
     private MockMvc mockMvc;
 
+    @AfterEach
+    public void cleanup() {
+        userRepository.findOneByLogin("user-jwt-controller").ifPresent(userRepository::delete);
+        userRepository.findOneByLogin("user-jwt-controller-remember-me").ifPresent(userRepository::delete);
+        userRepository.findOneByLogin("user-jwt-controller-legacy-hash").ifPresent(userRepository::delete);
+        userIdentityCache.clear();
+    }
+
     @Test
-    @Transactional
     void testAuthorize() throws Exception {
         User user = new User();
         user.setLogin("user-jwt-controller");
@@ -51,8 +70,12 @@ class UserJWTControllerIT {
         LoginVM login = new LoginVM();
         login.setUsername("user-jwt-controller");
         login.setPassword("test");
-        mockMvc
+        MvcResult result = mockMvc
             .perform(post("/api/authenticate").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc
+            .perform(asyncDispatch(result))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.id_token").isString())
             .andExpect(jsonPath("$.id_token").isNotEmpty())
@@ -61,7 +84,6 @@ class UserJWTControllerIT {
     }
 
     @Test
-    @Transactional
     void testAuthorizeWithRememberMe() throws Exception {
         User user = new User();
         user.setLogin("user-jwt-controller-remember-me");
@@ -75,8 +97,12 @@ class UserJWTControllerIT {
         login.setUsername("user-jwt-controller-remember-me");
         login.setPassword("test");
         login.setRememberMe(true);
-        mockMvc
+        MvcResult result = mockMvc
             .perform(post("/api/authenticate").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc
+            .perform(asyncDispatch(result))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.id_token").isString())
             .andExpect(jsonPath("$.id_token").isNotEmpty())
@@ -84,13 +110,42 @@ class UserJWTControllerIT {
             .andExpect(header().string("Authorization", not(is(emptyString()))));
     }
 
+    @Test
+    void testAuthorizeUpgradesLegacyHash() throws Exception {
+        User user = new User();
+        user.setLogin("user-jwt-controller-legacy-hash");
+        user.setEmail("user-jwt-controller-legacy-hash@example.com");
+        user.setActivated(true);
+        user.setPassword(new BCryptPasswordEncoder(5).encode("test"));
+
+        userRepository.saveAndFlush(user);
+
+        LoginVM login = new LoginVM();
+        login.setUsername("user-jwt-controller-legacy-hash");
+        login.setPassword("test");
+        MvcResult result = mockMvc
+            .perform(post("/api/authenticate").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        String upgradedPassword = userRepository.findOneByLogin("user-jwt-controller-legacy-hash").orElseThrow().getPassword();
+        assertThat(upgradedPassword).startsWith("{bcrypt}$2a$04$");
+        assertThat(passwordEncoder.matches("test", upgradedPassword)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(upgradedPassword)).isFalse();
+    }
+
     @Test
     void testAuthorizeFails() throws Exception {
         LoginVM login = new LoginVM();
         login.setUsername("wrong-user");
         login.setPassword("wrong password");
-        mockMvc
+        MvcResult result = mockMvc
             .perform(post("/api/authenticate").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc
+            .perform(asyncDispatch(result))
             .andExpect(status().isUnauthorized())
             .andExpect(jsonPath("$.id_token").doesNotExist())
             .andExpect(header().doesNotExist("Authorization"));
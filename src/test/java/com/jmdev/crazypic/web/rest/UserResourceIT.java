@@ -1,20 +1,29 @@
 package com.jmdev.crazypic.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.jayway.jsonpath.JsonPath;
 import com.jmdev.crazypic.IntegrationTest;
 import com.jmdev.crazypic.domain.Authority;
 import com.jmdev.crazypic.domain.User;
 import com.jmdev.crazypic.repository.UserRepository;
 import com.jmdev.crazypic.security.AuthoritiesConstants;
+import com.jmdev.crazypic.security.UserIdentityCache;
+import com.jmdev.crazypic.service.UserService;
 import com.jmdev.crazypic.service.dto.AdminUserDTO;
+import com.jmdev.crazypic.service.dto.BulkUserOperationDTO;
 import com.jmdev.crazypic.service.dto.UserDTO;
 import com.jmdev.crazypic.service.mapper.UserMapper;
+import com.jmdev.crazypic.web.rest.vm.BulkUserVM;
 import com.jmdev.crazypic.web.rest.vm.ManagedUserVM;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
 import java.util.function.Consumer;
@@ -25,7 +34,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
@@ -64,12 +75,18 @@ class UserResourceIT {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserService userService;
+
     @Autowired
     private UserMapper userMapper;
 
     @Autowired
     private EntityManager em;
 
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
     @Autowired
     private CacheManager cacheManager;
 
@@ -80,8 +97,7 @@ class UserResourceIT {
 
     @BeforeEach
     public void setup() {
-        cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).clear();
-        cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).clear();
+        userIdentityCache.clear();
     }
 
     /**
@@ -240,6 +256,86 @@ class UserResourceIT {
         assertPersistedUsers(users -> assertThat(users).hasSize(databaseSizeBeforeCreate));
     }
 
+    @Test
+    @Transactional
+    void bulkUpdateUsers() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+        User otherUser = createEntity(em);
+        userRepository.saveAndFlush(otherUser);
+
+        AdminUserDTO newUser = new AdminUserDTO();
+        newUser.setLogin("Bulk-User");
+        newUser.setEmail("bulk-user@localhost");
+        newUser.setAuthorities(Collections.singleton(AuthoritiesConstants.USER));
+        AdminUserDTO updatedUser = new AdminUserDTO(user);
+        updatedUser.setFirstName(UPDATED_FIRSTNAME);
+        updatedUser.setEmail(UPDATED_EMAIL);
+        updatedUser.setAuthorities(Collections.singleton(AuthoritiesConstants.ADMIN));
+        AdminUserDTO existingLogin = new AdminUserDTO();
+        existingLogin.setLogin(DEFAULT_LOGIN);
+        existingLogin.setEmail("bulk-other@localhost");
+        AdminUserDTO existingEmail = new AdminUserDTO();
+        existingEmail.setLogin("bulk-other");
+        existingEmail.setEmail(UPDATED_EMAIL.toUpperCase());
+        AdminUserDTO unknownUser = new AdminUserDTO();
+        unknownUser.setLogin("bulk-unknown");
+        AdminUserDTO deactivatedUser = new AdminUserDTO();
+        deactivatedUser.setLogin(otherUser.getLogin());
+
+        BulkUserVM bulkUserVM = new BulkUserVM();
+        bulkUserVM.setOperations(
+            List.of(
+                new BulkUserOperationDTO(BulkUserOperationDTO.Action.CREATE, newUser),
+                new BulkUserOperationDTO(BulkUserOperationDTO.Action.UPDATE, updatedUser),
+                new BulkUserOperationDTO(BulkUserOperationDTO.Action.CREATE, existingLogin),
+                new BulkUserOperationDTO(BulkUserOperationDTO.Action.CREATE, existingEmail),
+                new BulkUserOperationDTO(BulkUserOperationDTO.Action.UPDATE, unknownUser),
+                new BulkUserOperationDTO(BulkUserOperationDTO.Action.DEACTIVATE, deactivatedUser)
+            )
+        );
+
+        restUserMockMvc
+            .perform(
+                post("/api/admin/users/bulk").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(bulkUserVM))
+            )
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[*].status").value(contains("CREATED", "UPDATED", "REJECTED", "REJECTED", "REJECTED", "DEACTIVATED")))
+            .andExpect(jsonPath("$.[0].login").value("bulk-user"))
+            .andExpect(jsonPath("$.[0].id").isNumber())
+            .andExpect(jsonPath("$.[1].id").value(user.getId()))
+            .andExpect(jsonPath("$.[2].error").value("userexists"))
+            .andExpect(jsonPath("$.[3].error").value("emailexists"))
+            .andExpect(jsonPath("$.[4].error").value("usernotfound"))
+            .andExpect(jsonPath("$.[5].id").value(otherUser.getId()));
+
+        em.flush();
+        em.clear();
+        User createdUser = userRepository.findOneWithAuthoritiesByLogin("bulk-user").orElseThrow();
+        assertThat(createdUser.isActivated()).isTrue();
+        assertThat(createdUser.getResetKey()).isNotNull();
+        assertThat(createdUser.getAuthorities()).extracting(Authority::getName).containsExactly(AuthoritiesConstants.USER);
+        User testUser = userRepository.findOneWithAuthoritiesByLogin(DEFAULT_LOGIN).orElseThrow();
+        assertThat(testUser.getFirstName()).isEqualTo(UPDATED_FIRSTNAME);
+        assertThat(testUser.getEmail()).isEqualTo(UPDATED_EMAIL);
+        assertThat(testUser.getAuthorities()).extracting(Authority::getName).containsExactly(AuthoritiesConstants.ADMIN);
+        assertThat(userRepository.findOneByLogin("bulk-other")).isEmpty();
+        assertThat(userRepository.findById(otherUser.getId()).orElseThrow().isActivated()).isFalse();
+    }
+
+    @Test
+    @Transactional
+    void bulkUpdateUsersWithoutOperations() throws Exception {
+        restUserMockMvc
+            .perform(
+                post("/api/admin/users/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(new BulkUserVM()))
+            )
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     void getAllUsers() throws Exception {
@@ -259,14 +355,100 @@ class UserResourceIT {
             .andExpect(jsonPath("$.[*].langKey").value(hasItem(DEFAULT_LANGKEY)));
     }
 
+    @Test
+    @Transactional
+    void getAllUsersByKeyset() throws Exception {
+        // Initialize the database, with users sharing their sort values
+        userRepository.saveAndFlush(user);
+        for (int i = 0; i < 3; i++) {
+            User other = createEntity(em);
+            other.setActivated(false);
+            userRepository.saveAndFlush(other);
+        }
+
+        List<String> all = getLoginsByKeyset("activated,desc", 1000);
+        assertThat(all).hasSize((int) userRepository.count()).doesNotHaveDuplicates().contains(DEFAULT_LOGIN);
+        assertThat(getLoginsByKeyset("activated,desc", 2)).isEqualTo(all);
+        assertThat(getLoginsByKeyset("createdBy,asc&sort=login,desc", 3)).hasSameElementsAs(all);
+        assertThat(getLoginsByKeyset("login,desc", 2)).isSortedAccordingTo(Comparator.reverseOrder()).hasSameElementsAs(all);
+    }
+
+    @Test
+    @Transactional
+    void getAllUsersByKeysetWithInvalidCursor() throws Exception {
+        userRepository.saveAndFlush(user);
+        String cursor = restUserMockMvc
+            .perform(get("/api/admin/users?cursor=&size=1&sort=login,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("Link", containsString("rel=\"next\"")))
+            .andReturn()
+            .getResponse()
+            .getHeader(KeysetPaginationUtil.NEXT_CURSOR_HEADER);
+
+        restUserMockMvc
+            .perform(get("/api/admin/users?size=1&sort=login,desc&cursor=" + cursor).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidCursor"));
+        restUserMockMvc
+            .perform(get("/api/admin/users?size=1&sort=login,asc&cursor=not-a-cursor").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        restUserMockMvc
+            .perform(get("/api/admin/users?size=1&sort=password,asc&cursor=").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        // a JSON null
+        restUserMockMvc
+            .perform(get("/api/admin/users?size=1&sort=login,asc&cursor=bnVsbA").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidCursor"));
+        // a null sort value
+        restUserMockMvc
+            .perform(
+                get("/api/admin/users?size=1&sort=login,asc&cursor=" + base64Url("{\"sort\":[\"login,ASC\"],\"after\":[null]}"))
+                    .accept(MediaType.APPLICATION_JSON)
+            )
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.invalidCursor"));
+    }
+
+    @Test
+    @Transactional
+    void getAllUsersByKeysetSortedByOptionalProperty() throws Exception {
+        restUserMockMvc
+            .perform(get("/api/admin/users?cursor=&size=1&sort=lastName,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        restUserMockMvc
+            .perform(get("/api/admin/users?size=1&sort=lastName,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+    }
+
+    private static String base64Url(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> getLoginsByKeyset(String sort, int size) throws Exception {
+        List<String> logins = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            MockHttpServletResponse response = restUserMockMvc
+                .perform(get("/api/admin/users?size=" + size + "&sort=" + sort + "&cursor=" + cursor).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+            List<String> page = JsonPath.read(response.getContentAsString(), "$.[*].login");
+            assertThat(page).hasSizeLessThanOrEqualTo(size);
+            logins.addAll(page);
+            cursor = response.getHeader(KeysetPaginationUtil.NEXT_CURSOR_HEADER);
+        }
+        return logins;
+    }
+
     @Test
     @Transactional
     void getUser() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
 
-        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(user.getLogin())).isNull();
-
         // Get the user
         restUserMockMvc
             .perform(get("/api/admin/users/{login}", user.getLogin()))
@@ -278,8 +460,66 @@ class UserResourceIT {
             .andExpect(jsonPath("$.email").value(DEFAULT_EMAIL))
             .andExpect(jsonPath("$.imageUrl").value(DEFAULT_IMAGEURL))
             .andExpect(jsonPath("$.langKey").value(DEFAULT_LANGKEY));
+    }
+
+    @Test
+    @Transactional
+    void getUserNotModified() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+
+        String etag = restUserMockMvc
+            .perform(get("/api/admin/users/{login}", user.getLogin()))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        restUserMockMvc
+            .perform(get("/api/admin/users/{login}", user.getLogin()).header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        // Change the authorities only
+        long version = user.getVersion();
+        AdminUserDTO updatedUser = new AdminUserDTO(user);
+        updatedUser.setAuthorities(Set.of(AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN));
+        userService.updateUser(updatedUser);
+        userRepository.flush();
+        assertThat(userRepository.findById(user.getId()).get().getVersion()).isGreaterThan(version);
+
+        restUserMockMvc
+            .perform(get("/api/admin/users/{login}", user.getLogin()).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+            .andExpect(jsonPath("$.authorities").value(hasItem(AuthoritiesConstants.ADMIN)));
+    }
 
-        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(user.getLogin())).isNotNull();
+    @Test
+    @Transactional
+    void getUserModifiedBehindIdentityCache() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+        String etag = restUserMockMvc
+            .perform(get("/api/admin/users/{login}", user.getLogin()))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+        userIdentityCache.findByLogin(user.getLogin()).orElseThrow();
+
+        // Updated by another instance, whose invalidations are not received
+        em.createNativeQuery("update jhi_user set version = version + 1, lang_key = 'fr' where id = :id")
+            .setParameter("id", user.getId())
+            .executeUpdate();
+        em.clear();
+
+        restUserMockMvc
+            .perform(get("/api/admin/users/{login}", user.getLogin()).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+            .andExpect(jsonPath("$.langKey").value("fr"));
     }
 
     @Test
@@ -475,7 +715,7 @@ class UserResourceIT {
             .perform(delete("/api/admin/users/{login}", user.getLogin()).accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isNoContent());
 
-        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(user.getLogin())).isNull();
+        assertThat(cacheManager.getCache(UserIdentityCache.USER_IDS_BY_LOGIN_CACHE).get(user.getLogin())).isNull();
 
         // Validate the database is empty
         assertPersistedUsers(users -> assertThat(users).hasSize(databaseSizeBeforeDelete - 1));